@@ -18,26 +18,63 @@
 
 package org.imsglobal.caliper;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.imsglobal.caliper.clients.AsyncCaliperClient;
 import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.FlushResult;
+import org.imsglobal.caliper.clients.SendResult;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
 import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
 import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Concrete implementation of the Caliper Sensor interface.  Caliper Events and Entity describes
  * are sent via an Envelope.  Serialization and transmission of the Envelope is delegated to
  * one or more registered Clients which in turn delegate serialization and transmission to
  * an associated Requestor.  The delegation chain is thus Sensor to Client to Requestor.
+ *
+ * By default an Envelope is handed to each registered Client in turn on the calling thread.  In
+ * fan-out mode, enabled with setFanOut, every Client is dispatched concurrently on the fan-out
+ * executor and the caller waits no longer than the fan-out timeout for all of them.
+ *
+ * When an Envelope goes to several Clients that share a serializer, it is serialized once and
+ * the same immutable bytes are handed to each of them.
+ *
+ * Registered Clients are held in an immutable snapshot that registration replaces atomically
+ * (copy-on-write).  Sends read the snapshot once and iterate it without locking, so Clients may
+ * be registered and unregistered while other threads are sending.
  */
 public class Sensor {
     private String id;
-    private Map<String, CaliperClient> clients = new HashMap<>();
+    private final AtomicReference<ImmutableMap<String, CaliperClient>> clients =
+        new AtomicReference<>(ImmutableMap.<String, CaliperClient>of());
+    private volatile Executor fanOutExecutor;
+    private volatile long fanOutTimeoutMillis;
+
+    private static final Logger log = LoggerFactory.getLogger(Sensor.class);
 
     /**
      * Constructor. Scope is private to force use of the static factory method for instantiating a Sensor.
@@ -59,7 +96,14 @@ public class Sensor {
      * @param client the client object
      */
     public void registerClient(CaliperClient client) {
-        clients.put(client.getId(), client);
+        while (true) {
+            ImmutableMap<String, CaliperClient> current = clients.get();
+            Map<String, CaliperClient> next = new LinkedHashMap<>(current);
+            next.put(client.getId(), client);
+            if (clients.compareAndSet(current, ImmutableMap.copyOf(next))) {
+                return;
+            }
+        }
     }
 
     /**
@@ -68,7 +112,17 @@ public class Sensor {
      * @return
      */
     public void unregisterClient(String key) {
-        clients.remove(key);
+        while (true) {
+            ImmutableMap<String, CaliperClient> current = clients.get();
+            if (!current.containsKey(key)) {
+                return;
+            }
+            Map<String, CaliperClient> next = new LinkedHashMap<>(current);
+            next.remove(key);
+            if (clients.compareAndSet(current, ImmutableMap.copyOf(next))) {
+                return;
+            }
+        }
     }
 
     /**
@@ -77,15 +131,47 @@ public class Sensor {
      * @return
      */
     public CaliperClient getClient(String key) {
-        return clients.get(key);
+        return clients.get().get(key);
     }
 
     /**
-     * Retrieve Map of clients.
+     * Retrieve an immutable snapshot of the registered clients, in registration order.
      * @return clients
      */
     public Map<String, CaliperClient> getClients() {
-        return clients;
+        return clients.get();
+    }
+
+    /**
+     * Enable fan-out mode.  Clients that do not implement AsyncCaliperClient send on the executor,
+     * so the executor should have at least as many threads as there are registered Clients.  On
+     * Java 21 an executor from SendExecutors.newVirtualThreadExecutor gives every blocking send a
+     * virtual thread of its own, so that sendAsync can keep many envelopes in flight.
+     * @param executor executor for Client sends, or null to disable fan-out mode
+     * @param timeoutMillis how long send waits for all Clients
+     */
+    public void setFanOut(Executor executor, long timeoutMillis) {
+        if (executor != null) {
+            SensorValidator.chkPositive(timeoutMillis, "timeoutMillis");
+        }
+        this.fanOutTimeoutMillis = timeoutMillis;
+        this.fanOutExecutor = executor;
+    }
+
+    /**
+     * Get the fan-out executor.
+     * @return executor, or null if fan-out mode is disabled
+     */
+    public Executor getFanOutExecutor() {
+        return fanOutExecutor;
+    }
+
+    /**
+     * Get how long a fan-out waits for all Clients.
+     * @return timeout in milliseconds
+     */
+    public long getFanOutTimeoutMillis() {
+        return fanOutTimeoutMillis;
     }
 
     /**
@@ -105,7 +191,7 @@ public class Sensor {
      * @param envelope
      */
     public void send(CaliperClient client, Envelope envelope) {
-        if (clients.containsKey(client.getId())) {
+        if (clients.get().containsKey(client.getId())) {
             client.send(envelope);
         } else {
             throw new IllegalArgumentException(client.getId() + " is not a registered Client.");
@@ -113,32 +199,301 @@ public class Sensor {
     }
 
     /**
-     * Delegate serialization and transmission of the Envelope to all registered Clients.
+     * Delegate serialization and transmission of the Envelope to all registered Clients.  In
+     * fan-out mode the Clients send concurrently and failures are logged rather than thrown; use
+     * fanOut to inspect each Client's outcome.
      * @param envelope
      */
     public void send(Envelope envelope) {
-        if (clients.size() > 0) {
-            for(CaliperClient client: clients.values()){
-                client.send(envelope);
+        if (fanOutExecutor != null) {
+            for (Map.Entry<String, SendResult> entry: fanOut(envelope).entrySet()) {
+                if (!entry.getValue().isSuccessful()) {
+                    log.warn("Client " + entry.getKey() + " did not send envelope: " + entry.getValue());
+                }
+            }
+            return;
+        }
+
+        Map<String, CaliperClient> snapshot = clients.get();
+        if (snapshot.size() > 0) {
+            Map<CaliperSerializer, SerializedEnvelope> shared = serializeShared(snapshot.values(), envelope);
+            for(CaliperClient client: snapshot.values()){
+                SerializedEnvelope serialized = shared.get(client.getSerializer());
+                if (serialized != null) {
+                    client.send(serialized);
+                } else {
+                    client.send(envelope);
+                }
+            }
+        } else {
+            throw new IllegalStateException("No Clients have been registered.");
+        }
+    }
+
+    /**
+     * Send the Envelope to all registered Clients and report each Client's outcome, keyed by
+     * Client id.  In fan-out mode the Clients send concurrently and the call returns once all
+     * have finished or the fan-out timeout has passed; a Client still sending at that point is
+     * reported as an unsuccessful result carrying a TimeoutException, and finishes in the
+     * background.  Otherwise the Clients send in turn on the calling thread.
+     * @param envelope
+     * @return results
+     */
+    public Map<String, SendResult> fanOut(Envelope envelope) {
+        Map<String, CaliperClient> snapshot = clients.get();
+        if (snapshot.size() == 0) {
+            throw new IllegalStateException("No Clients have been registered.");
+        }
+
+        Executor executor = fanOutExecutor;
+        long timeoutMillis = fanOutTimeoutMillis;
+        long start = System.nanoTime();
+
+        Map<CaliperSerializer, SerializedEnvelope> shared = serializeShared(snapshot.values(), envelope);
+        Map<String, CompletableFuture<SendResult>> futures = new LinkedHashMap<>();
+        for (CaliperClient client: snapshot.values()) {
+            futures.put(client.getId(), recover(dispatch(client, envelope,
+                shared.get(client.getSerializer()), executor), System.nanoTime()));
+        }
+
+        if (executor != null) {
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                // Outcomes are collected per Client below
+            }
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Map<String, SendResult> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<SendResult>> entry: futures.entrySet()) {
+            SendResult result = entry.getValue().getNow(null);
+            results.put(entry.getKey(), result != null ? result : SendResult.failure(new TimeoutException(
+                entry.getKey() + " did not finish within " + timeoutMillis + "ms"), elapsed));
+        }
+        return results;
+    }
+
+    /**
+     * Non-blocking counterpart of send(CaliperClient, Envelope).  The client accepts or rejects
+     * the Envelope without waiting for room in its queue or for the endpoint.
+     * @param client
+     * @param envelope
+     * @return true if the Client accepted the Envelope
+     */
+    public boolean offer(CaliperClient client, Envelope envelope) {
+        if (clients.get().containsKey(client.getId())) {
+            return client.offer(envelope);
+        } else {
+            throw new IllegalArgumentException(client.getId() + " is not a registered Client.");
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of send(Envelope).  The Envelope is offered to every registered
+     * Client, including after an earlier Client has rejected it.
+     * @param envelope
+     * @return true if every registered Client accepted the Envelope
+     */
+    public boolean offer(Envelope envelope) {
+        Map<String, CaliperClient> snapshot = clients.get();
+        if (snapshot.size() > 0) {
+            boolean accepted = true;
+            for (CaliperClient client: snapshot.values()) {
+                accepted &= client.offer(envelope);
+            }
+            return accepted;
+        } else {
+            throw new IllegalStateException("No Clients have been registered.");
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of send(CaliperClient, Envelope).  Clients that implement
+     * AsyncCaliperClient transmit without blocking; other clients send on the calling thread and
+     * return a completed future.
+     * @param client
+     * @param envelope
+     * @return future result
+     */
+    public CompletableFuture<SendResult> sendAsync(CaliperClient client, Envelope envelope) {
+        if (clients.get().containsKey(client.getId())) {
+            return dispatch(client, envelope, null, fanOutExecutor);
+        } else {
+            throw new IllegalArgumentException(client.getId() + " is not a registered Client.");
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of send(Envelope).  In fan-out mode, Clients that do not implement
+     * AsyncCaliperClient send on the fan-out executor; otherwise they send on the calling thread.
+     * The returned future completes once every registered Client has an outcome, with one result
+     * per Client keyed by Client id.  A Client that fails without a response is reported as an
+     * unsuccessful result carrying the error.
+     * @param envelope
+     * @return future map of results
+     */
+    public CompletableFuture<Map<String, SendResult>> sendAsync(Envelope envelope) {
+        Map<String, CaliperClient> snapshot = clients.get();
+        if (snapshot.size() > 0) {
+            Map<CaliperSerializer, SerializedEnvelope> shared = serializeShared(snapshot.values(), envelope);
+            Map<String, CompletableFuture<SendResult>> futures = new LinkedHashMap<>();
+            for (CaliperClient client: snapshot.values()) {
+                long start = System.nanoTime();
+                futures.put(client.getId(), recover(dispatch(client, envelope,
+                    shared.get(client.getSerializer()), fanOutExecutor), start));
             }
+
+            return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    Map<String, SendResult> results = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<SendResult>> entry: futures.entrySet()) {
+                        results.put(entry.getKey(), entry.getValue().join());
+                    }
+                    return results;
+                });
         } else {
             throw new IllegalStateException("No Clients have been registered.");
         }
     }
 
+    /**
+     * Serialize the envelope once for each serializer shared by two or more of the clients.  A
+     * client with a serializer of its own serializes as usual, so that it can stream.
+     * @param clients
+     * @param envelope
+     * @return serialized envelopes keyed by serializer
+     */
+    private static Map<CaliperSerializer, SerializedEnvelope> serializeShared(Collection<CaliperClient> clients,
+                                                                            Envelope envelope) {
+        Map<CaliperSerializer, Integer> users = new IdentityHashMap<>();
+        for (CaliperClient client: clients) {
+            CaliperSerializer serializer = client.getSerializer();
+            if (serializer != null) {
+                Integer count = users.get(serializer);
+                users.put(serializer, count == null ? 1 : count + 1);
+            }
+        }
+
+        Map<CaliperSerializer, SerializedEnvelope> shared = new IdentityHashMap<>();
+        for (Map.Entry<CaliperSerializer, Integer> entry: users.entrySet()) {
+            if (entry.getValue() > 1) {
+                try {
+                    shared.put(entry.getKey(), entry.getKey().serializeEnvelope(envelope));
+                } catch (JsonProcessingException e) {
+                    // Each client serializes for itself and reports the failure
+                    log.warn("Unable to serialize envelope for sharing", e);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Hand the envelope to a client, without blocking if the client supports it.  Other clients
+     * deliver on the executor, or on the calling thread if there is none, and report the outcome
+     * of the delivery.
+     * @param client
+     * @param envelope
+     * @param serialized envelope serialized for sharing, or null
+     * @param executor executor or null
+     * @return future result
+     */
+    private static CompletableFuture<SendResult> dispatch(CaliperClient client, Envelope envelope,
+                                                          SerializedEnvelope serialized, Executor executor) {
+        if (client instanceof AsyncCaliperClient) {
+            try {
+                AsyncCaliperClient async = (AsyncCaliperClient) client;
+                return serialized != null ? async.sendAsync(serialized) : async.sendAsync(envelope);
+            } catch (RuntimeException e) {
+                CompletableFuture<SendResult> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(
+                () -> serialized != null ? client.deliver(serialized) : client.deliver(envelope),
+                executor != null ? executor : MoreExecutors.directExecutor());
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<SendResult> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Turn an exceptional outcome into an unsuccessful result.
+     * @param future
+     * @param start
+     * @return future result that always completes normally
+     */
+    private static CompletableFuture<SendResult> recover(CompletableFuture<SendResult> future, long start) {
+        return future.exceptionally(error -> {
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null)
+                ? error.getCause() : error;
+            return SendResult.failure(cause, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Flush every registered Client within a shared deadline, so that envelopes they have
+     * accepted are delivered before, for example, a rolling deploy stops the process.
+     * @param timeout
+     * @param unit
+     * @return what each Client still held when the deadline passed, keyed by Client id
+     * @throws InterruptedException
+     */
+    public Map<String, FlushResult> flush(long timeout, TimeUnit unit) throws InterruptedException {
+        return finish(timeout, unit, false);
+    }
+
+    /**
+     * Flush and close every registered Client within a shared deadline.  Undelivered envelopes
+     * are logged and reported rather than waited for; Clients with a spool leave it on disk for
+     * the next process.
+     * @param timeout
+     * @param unit
+     * @return what each Client left undelivered, keyed by Client id
+     * @throws InterruptedException
+     */
+    public Map<String, FlushResult> close(long timeout, TimeUnit unit) throws InterruptedException {
+        return finish(timeout, unit, true);
+    }
+
+    private Map<String, FlushResult> finish(long timeout, TimeUnit unit, boolean close) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Map<String, FlushResult> results = new LinkedHashMap<>();
+        for (CaliperClient client: clients.get().values()) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            FlushResult result = close ? client.close(remaining, TimeUnit.NANOSECONDS)
+                : client.flush(remaining, TimeUnit.NANOSECONDS);
+            if (!result.isComplete()) {
+                log.warn("Client " + client.getId() + " did not deliver everything: " + result);
+            }
+            results.put(client.getId(), result);
+        }
+        return results;
+    }
+
     /**
      * Returns a map where the keys are the identifying objects and the values are the corresponding statistics
-     * for that key's Client.
+     * for that key's Client.  The map is built from a single snapshot of the registry, so it is
+     * not affected by later registration changes.
      * @return a map
      */
     public Map<String, Statistics> getStatistics() {
-        return Maps.transformValues(clients, new Function<CaliperClient, Statistics>() {
+        return ImmutableMap.copyOf(Maps.transformValues(clients.get(), new Function<CaliperClient, Statistics>() {
             @Nullable
             @Override
             public Statistics apply(@Nullable CaliperClient client) {
                 return client.getStatistics();
             }
-        });
+        }));
     }
 
     /**
@@ -18,14 +18,10 @@
 
 package org.imsglobal.caliper.clients;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
-import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
 import org.imsglobal.caliper.Envelope;
-import org.imsglobal.caliper.databind.JxnCoercibleSimpleModule;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
 import org.imsglobal.caliper.statistics.Statistics;
 import org.imsglobal.caliper.validators.SensorValidator;
 
@@ -39,18 +35,30 @@ public abstract class AbstractClient implements CaliperClient {
     private String id;
     private HttpClientOptions options;
     private Statistics statistics;
+    private CaliperSerializer serializer;
 
     /**
      * Constructor
      * @param id
      */
     protected AbstractClient(String id, HttpClientOptions options) {
+        this(id, options, CaliperSerializer.getDefault());
+    }
+
+    /**
+     * Constructor that injects the serializer.
+     * @param id
+     * @param options
+     * @param serializer
+     */
+    protected AbstractClient(String id, HttpClientOptions options, CaliperSerializer serializer) {
         SensorValidator.chkId(id, this.getClass().getSimpleName());
         //SensorValidator.chkOptions(this.getOptions());
 
         this.id = id;
         this.options = options;
         this.statistics = new Statistics();
+        this.serializer = serializer;
     }
 
     /**
@@ -79,6 +87,15 @@ public abstract class AbstractClient implements CaliperClient {
         return this.statistics;
     }
 
+    /**
+     * Get serializer.
+     * @return serializer
+     */
+    @Nonnull
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
     /**
      * Serialize Caliper envelope.
      * @param envelope
@@ -86,17 +103,29 @@ public abstract class AbstractClient implements CaliperClient {
      * @throws JsonProcessingException
      */
     protected String serializeEnvelope(Envelope envelope) throws JsonProcessingException {
-        // Create mapper and serialize the envelope
-        SimpleFilterProvider provider = new SimpleFilterProvider()
-            .setFailOnUnknownId(true);
+        return serializer.serializeToString(envelope);
+    }
 
-        ObjectMapper mapper = new ObjectMapper()
-            .setDateFormat(new ISO8601DateFormat())
-            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
-            .setFilterProvider(provider)
-            .registerModules(new JodaModule(), new JxnCoercibleSimpleModule());
+    /**
+     * Select the compression applied to a serialized envelope.  Payloads below the configured
+     * threshold are sent as is, since compressing them costs more CPU than it saves on the wire.
+     * @param payload
+     * @return compression
+     */
+    protected Compression compressionFor(byte[] payload) {
+        return compressionFor(payload.length);
+    }
 
-        return mapper.writeValueAsString(envelope);
+    /**
+     * Select the compression applied to a serialized envelope of the given size.
+     * @param length
+     * @return compression
+     */
+    protected Compression compressionFor(long length) {
+        if (options == null || length < options.getCompressionThreshold()) {
+            return Compression.NONE;
+        }
+        return options.getCompression();
     }
 
     /**
@@ -0,0 +1,47 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A client that can transmit envelopes without blocking the caller.
+ */
+public interface AsyncCaliperClient extends CaliperClient {
+
+    /**
+     * Send an envelope to target endpoint(s) without blocking.  The future completes with the
+     * outcome once a response is received; it completes exceptionally if no response is received.
+     * @param envelope
+     * @return future result
+     */
+    CompletableFuture<SendResult> sendAsync(Envelope envelope);
+
+    /**
+     * Send an envelope that has already been serialized without blocking.
+     * @param envelope
+     * @return future result
+     */
+    default CompletableFuture<SendResult> sendAsync(SerializedEnvelope envelope) {
+        return sendAsync(envelope.getEnvelope());
+    }
+}
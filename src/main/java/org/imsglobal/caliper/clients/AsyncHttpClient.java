@@ -0,0 +1,501 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking HTTP client built on Apache HttpAsyncClient.  Requests are multiplexed over a
+ * small, fixed set of I/O reactor threads, so the number of envelopes in flight is bounded by
+ * maxInFlightRequests rather than by the number of threads.  Envelopes beyond that limit are
+ * queued without occupying a thread.  A circuit breaker is honoured as by HttpClient; retries,
+ * rate limits, congestion control and entity descriptions are not supported and are rejected
+ * by the factory.
+ */
+public class AsyncHttpClient extends AbstractClient implements AsyncCaliperClient, Closeable {
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient httpClient;
+    private final AtomicLong nextEviction = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Semaphore inFlight;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Upper bound on how long a flush sleeps between checks for outstanding POSTs.
+     */
+    private static final long TICK_MILLIS = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncHttpClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param options
+     * @param serializer
+     */
+    private AsyncHttpClient(String id, HttpClientOptions options, CaliperSerializer serializer) {
+        super(id, options, serializer);
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+            .setConnectTimeout(options.getConnTimeout())
+            .setSoTimeout(options.getSocketTimeout())
+            .build();
+
+        try {
+            this.connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Unable to start I/O reactor for " + id, e);
+        }
+        this.connectionManager.setMaxTotal(options.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(options.getMaxConnectionsPerRoute());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(options.getConnTimeout())
+            .setConnectionRequestTimeout(options.getConnectionRequestTimeout())
+            .setSocketTimeout(options.getSocketTimeout())
+            .build();
+
+        this.httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(HttpClient.keepAliveStrategy(options.getKeepAliveTimeout()))
+            .build();
+        this.httpClient.start();
+
+        this.inFlight = new Semaphore(options.getMaxInFlightRequests());
+        this.circuitBreaker = options.getCircuitBreakerThreshold() == 0 ? null
+            : new CircuitBreaker(options.getCircuitBreakerThreshold(), options.getCircuitBreakerOpenMillis(), getStatistics());
+    }
+
+    /**
+     * Post envelope without blocking.  The future completes with the status code, latency and
+     * payload size once the endpoint responds; non-2xx responses complete normally with an
+     * unsuccessful result.  I/O failures, and an open circuit breaker, complete the future
+     * exceptionally.  Once maxInFlightRequests POSTs are in flight the envelope is queued.
+     * @param envelope
+     * @return future result
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        byte[] payload;
+        try {
+            payload = getSerializer().serialize(envelope);
+        } catch (IOException e) {
+            updateStatistics(Boolean.FALSE);
+            CompletableFuture<SendResult> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return sendAsync(payload);
+    }
+
+    /**
+     * Post an envelope that has already been serialized without blocking.  The NIO entity needs
+     * a byte array of its own, so the shared bytes are copied rather than re-serialized.
+     * @param envelope
+     * @return future result
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(SerializedEnvelope envelope) {
+        if (envelope.getSerializer() != getSerializer()) {
+            return sendAsync(envelope.getEnvelope());
+        }
+        return sendAsync(envelope.toByteArray());
+    }
+
+    private CompletableFuture<SendResult> sendAsync(byte[] payload) {
+        final CompletableFuture<SendResult> future = new CompletableFuture<>();
+        final HttpPost post;
+
+        try {
+            post = createPost(payload);
+        } catch (IOException e) {
+            updateStatistics(Boolean.FALSE);
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        pending.incrementAndGet();
+        waiting.add(new Runnable() {
+            @Override
+            public void run() {
+                execute(post, future);
+            }
+        });
+        dispatch();
+        return future;
+    }
+
+    /**
+     * Post envelope without waiting for the outcome or queueing it.  Failures are recorded in
+     * the statistics.
+     * @param envelope
+     * @return false if maxInFlightRequests POSTs are already in flight or queued
+     */
+    @Override
+    public boolean offer(Envelope envelope) {
+        if (!waiting.isEmpty() || !inFlight.tryAcquire()) {
+            return false;
+        }
+
+        HttpPost post;
+        try {
+            post = createPost(getSerializer().serialize(envelope));
+        } catch (IOException e) {
+            inFlight.release();
+            dispatch();
+            updateStatistics(Boolean.FALSE);
+            return true;
+        }
+
+        pending.incrementAndGet();
+        execute(post, new CompletableFuture<SendResult>());
+        dispatch();
+        return true;
+    }
+
+    private HttpPost createPost(byte[] payload) throws IOException {
+        Compression compression = compressionFor(payload);
+        NByteArrayEntity entity = new NByteArrayEntity(
+            compression.compress(payload, this.getOptions().getCompressionLevel()), ContentType.APPLICATION_JSON);
+        entity.setContentEncoding(compression.value());
+
+        HttpPost post = new HttpPost(this.getOptions().getHost());
+        post.setHeader("Authorization", this.getOptions().getApiKey());
+        post.setHeader("Content-Type", this.getOptions().getContentType());
+        post.setEntity(entity);
+        return post;
+    }
+
+    /**
+     * Start queued POSTs while in-flight permits are available.  A permit is released before
+     * this is called, so a POST queued concurrently is started by one thread or the other.
+     */
+    private void dispatch() {
+        while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+            Runnable post = waiting.poll();
+            if (post == null) {
+                inFlight.release();
+            } else {
+                post.run();
+            }
+        }
+    }
+
+    /**
+     * Start a POST for which an in-flight permit is held.  The permit is returned once the POST
+     * completes; the callbacks then start queued POSTs, while a POST that fails before it is
+     * sent leaves that to the caller so that the queue is not drained recursively.
+     * @param post
+     * @param future
+     */
+    private void execute(HttpPost post, final CompletableFuture<SendResult> future) {
+        final long ticket = circuitBreaker == null ? 0 : circuitBreaker.tryAcquire();
+        if (ticket < 0) {
+            complete(future, new CircuitBreakerOpenException("HTTP POST not attempted; circuit breaker open for client " + getId()));
+            return;
+        }
+
+        evictIdleConnections();
+
+        final long contentLength = post.getEntity().getContentLength();
+        final long start = System.nanoTime();
+        try {
+            httpClient.execute(post, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    int statusCode = response.getStatusLine().getStatusCode();
+                    if (circuitBreaker != null) {
+                        if (getOptions().getRetryPolicy().isRetryable(statusCode)) {
+                            circuitBreaker.onFailure(ticket);
+                        } else {
+                            circuitBreaker.onSuccess(ticket);
+                        }
+                    }
+
+                    SendResult result = SendResult.http(statusCode,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), contentLength);
+                    release();
+                    updateStatistics(result.isSuccessful());
+                    future.complete(result);
+                    dispatch();
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    if (circuitBreaker != null) {
+                        circuitBreaker.onFailure(ticket);
+                    }
+                    complete(future, e);
+                    dispatch();
+                }
+
+                @Override
+                public void cancelled() {
+                    if (circuitBreaker != null) {
+                        circuitBreaker.onFailure(ticket);
+                    }
+                    release();
+                    updateStatistics(Boolean.FALSE);
+                    future.cancel(false);
+                    dispatch();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(ticket);
+            }
+            complete(future, e);
+        }
+    }
+
+    private void complete(CompletableFuture<SendResult> future, Exception e) {
+        release();
+        updateStatistics(Boolean.FALSE);
+        future.completeExceptionally(e);
+    }
+
+    private void release() {
+        pending.decrementAndGet();
+        inFlight.release();
+    }
+
+    /**
+     * Post envelope and wait for the outcome.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        checkStatus(deliver(envelope));
+    }
+
+    /**
+     * Post an envelope that has already been serialized and wait for the outcome.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        checkStatus(deliver(envelope));
+    }
+
+    /**
+     * Post envelope, wait for the outcome and report it.  A failure without a response is
+     * reported as an unsuccessful result carrying the error.
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(Envelope envelope) {
+        long start = System.nanoTime();
+        try {
+            return await(sendAsync(envelope), start);
+        } catch (RuntimeException e) {
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Post an envelope that has already been serialized, wait for the outcome and report it.
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(SerializedEnvelope envelope) {
+        long start = System.nanoTime();
+        try {
+            return await(sendAsync(envelope), start);
+        } catch (RuntimeException e) {
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private SendResult await(CompletableFuture<SendResult> future, long start) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted waiting for HTTP POST to complete", e);
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (ExecutionException e) {
+            log.error("HTTP POST failed", e.getCause());
+            return SendResult.failure(e.getCause(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (CancellationException e) {
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Report an envelope the endpoint rejected by throwing.  Failures without a response have
+     * already been logged.
+     * @param result
+     */
+    private static void checkStatus(SendResult result) {
+        if (!result.isSuccessful() && result.getError() == null) {
+            throw new RuntimeException("WARN: HTTP POST failed; status code=" + result.getStatusCode());
+        }
+    }
+
+    /**
+     * Close expired and idle pooled connections, at most once per idle timeout period.  The
+     * check piggybacks on sends, so no eviction thread is required.
+     */
+    private void evictIdleConnections() {
+        long now = System.nanoTime();
+        long due = nextEviction.get();
+        if (now - due >= 0 && nextEviction.compareAndSet(due,
+                now + TimeUnit.MILLISECONDS.toNanos(getOptions().getIdleConnectionTimeout()))) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(getOptions().getIdleConnectionTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Get the connection pool.
+     * @return connection manager
+     */
+    PoolingNHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Get the circuit breaker guarding the endpoint.
+     * @return circuit breaker, or null if the breaker is off
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the number of POSTs queued or awaiting a response.
+     * @return pending requests
+     */
+    public int getPendingRequests() {
+        return pending.get();
+    }
+
+    /**
+     * Wait for outstanding POSTs to complete.
+     * @param timeout
+     * @param unit
+     * @return POSTs still outstanding when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0 && deadline - System.nanoTime() > 0) {
+            TimeUnit.MILLISECONDS.sleep(TICK_MILLIS);
+        }
+        return FlushResult.remaining(pending.get(), 0);
+    }
+
+    /**
+     * Wait for outstanding POSTs to complete, then stop the I/O reactor.  POSTs still
+     * outstanding at the timeout are cancelled.
+     * @param timeout
+     * @param unit
+     * @return POSTs still outstanding when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        FlushResult result = flush(timeout, unit);
+        try {
+            close();
+        } catch (IOException e) {
+            log.warn("Unable to stop I/O reactor for client " + getId(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Stop the I/O reactor and release the connection pool.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Factory method for instantiating an AsyncHttpClient.
+     * @param id
+     * @param options
+     * @return AsyncHttpClient
+     */
+    public static AsyncHttpClient create(String id, HttpClientOptions options) {
+        return create(id, options, CaliperSerializer.getDefault());
+    }
+
+    /**
+     * Factory method for instantiating an AsyncHttpClient that formats envelopes with the given
+     * serializer, for example one that de-duplicates entities.
+     * @param id
+     * @param options
+     * @param serializer
+     * @return AsyncHttpClient
+     * @throws IllegalArgumentException if the options ask for retries, rate limits, congestion
+     * control or entity descriptions, which only HttpClient supports
+     */
+    public static AsyncHttpClient create(String id, HttpClientOptions options, CaliperSerializer serializer) {
+        if (options.getRetryPolicy().getMaxAttempts() > 1) {
+            throw new IllegalArgumentException("AsyncHttpClient does not retry POSTs; use HttpClient for a retry policy");
+        }
+        if (options.getRateLimitPolicy() != null) {
+            throw new IllegalArgumentException("AsyncHttpClient does not rate limit POSTs; use HttpClient for a rate limit policy");
+        }
+        if (options.getCongestionPolicy() != null) {
+            throw new IllegalArgumentException("AsyncHttpClient does not control congestion; use HttpClient for a congestion policy");
+        }
+        if (options.getDescribePolicy() != null) {
+            throw new IllegalArgumentException("AsyncHttpClient does not cache entity descriptions; use HttpClient for a describe policy");
+        }
+        return new AsyncHttpClient(id, options, serializer);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+/**
+ * What a queueing client does with a sendable that arrives while its queue is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Wait up to the block timeout for room, then drop the sendable.  Non-blocking offers drop
+     * it straight away.
+     */
+    BLOCK,
+
+    /**
+     * Drop the arriving sendable.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Evict the oldest queued sendable to make room for the arriving one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Write the arriving sendable to a disk spool; it is delivered once the queue has drained.
+     */
+    SPILL_TO_DISK
+}
@@ -0,0 +1,764 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.spool.Spool;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decorates another client with a bounded in-memory queue and a background flusher.  Sendables
+ * are taken off incoming envelopes and queued on the caller's thread; the flusher re-packs them
+ * into envelopes of up to maxBatchEvents sendables or maxBatchBytes of serialized data, or
+ * whatever has accumulated once the oldest queued sendable has lingered for lingerMillis, and
+ * hands each envelope to the delegate.  The delegate should not also be registered with the
+ * Sensor.
+ *
+ * When the queue is full the configured BackpressurePolicy applies.  Blocking sends wait no
+ * longer than the block timeout, and offers never wait, so a slow endpoint cannot stall the
+ * caller indefinitely.  Sendables spilled to disk are delivered once the queue has drained, and
+ * are released from the disk only once the delegate reports them delivered; any still on disk
+ * when the client closes are delivered by the next client opened on the same spool directory.
+ *
+ * If the delegate is an HttpClient with a congestion policy, batches are capped at the congestion
+ * controller's batch limit and up to its concurrency limit of batches are delivered at once.
+ * Delivery pauses while the endpoint's Retry-After delay is pending.
+ */
+public class BatchingClient implements CaliperClient {
+    private final String id;
+    private final CaliperClient delegate;
+    private final BatchingClientOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final BlockingQueue<QueuedSendable> queue;
+    private final Spool spool;
+    private final Thread flusher;
+    private final CongestionController congestion;
+    private final ExecutorService deliveries;
+    private final Object deliveryLock = new Object();
+    private int activeDeliveries;
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final AtomicInteger flushing = new AtomicInteger();
+    private volatile boolean closed = false;
+    private volatile boolean stopping = false;
+
+    /**
+     * Upper bound on how long the flusher blocks before re-checking whether it has been closed.
+     */
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long TICK_MILLIS = TimeUnit.NANOSECONDS.toMillis(TICK_NANOS);
+
+    /**
+     * Backoff between attempts to deliver a batch read back from the spool.
+     */
+    private static final RetryPolicy REDELIVERY = RetryPolicy.builder().build();
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param delegate
+     * @param options
+     */
+    private BatchingClient(String id, CaliperClient delegate, BatchingClientOptions options) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+
+        this.id = id;
+        this.delegate = delegate;
+        this.options = options;
+        this.serializer = CaliperSerializer.getDefault();
+        this.statistics = new Statistics();
+        this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        this.spool = options.getBackpressurePolicy() == BackpressurePolicy.SPILL_TO_DISK
+            ? openSpool(options) : null;
+        if (spool != null) {
+            this.statistics.updateSpoolDepth(spool.getDepth());
+        }
+        this.congestion = delegate instanceof HttpClient ? ((HttpClient) delegate).getCongestionController() : null;
+        this.deliveries = congestion == null ? null : Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("caliper-batching-" + id + "-%d")
+            .setDaemon(true)
+            .build());
+        this.flusher = new ThreadFactoryBuilder()
+            .setNameFormat("caliper-batching-" + id)
+            .setDaemon(true)
+            .build()
+            .newThread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        this.flusher.start();
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    public BatchingClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.  Measures count queued sendables; Successful and Failed are updated once
+     * per batch, so their sums are the delivered and undelivered sendables.  Sendables turned away by the backpressure policy are counted
+     * per policy as DroppedBlocked, DroppedNewest, DroppedOldest or DroppedSpill; Spilled and
+     * SpoolDepth track sendables written to disk.
+     * @return statistics
+     */
+    @Nonnull
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the client that batched envelopes are delegated to.
+     * @return delegate
+     */
+    public CaliperClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the number of sendables waiting to be batched.
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Get the number of sendables spilled to disk and not yet delivered.
+     * @return spool depth
+     */
+    public long getSpoolDepth() {
+        return spool == null ? 0 : spool.getDepth();
+    }
+
+    /**
+     * Queue each of the envelope's sendables, applying the backpressure policy to those that do
+     * not fit.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        if (closed) {
+            throw new IllegalStateException(id + " is closed.");
+        }
+
+        for (CaliperSendable sendable: envelope.getData()) {
+            statistics.updateMeasures(1);
+            enqueue(new QueuedSendable(envelope, sendable), true);
+        }
+    }
+
+    /**
+     * Queue each of the envelope's sendables without waiting for room.
+     * @param envelope
+     * @return true if every sendable was accepted
+     */
+    @Override
+    public boolean offer(Envelope envelope) {
+        if (closed) {
+            return false;
+        }
+
+        boolean accepted = true;
+        for (CaliperSendable sendable: envelope.getData()) {
+            statistics.updateMeasures(1);
+            accepted &= enqueue(new QueuedSendable(envelope, sendable), false);
+        }
+        return accepted;
+    }
+
+    /**
+     * Queue a sendable, applying the backpressure policy if the queue is full.
+     * @param queued
+     * @param block whether the BLOCK policy may wait for room
+     * @return true if the sendable was accepted
+     */
+    private boolean enqueue(QueuedSendable queued, boolean block) {
+        unflushed.incrementAndGet();
+        if (queue.offer(queued)) {
+            return true;
+        }
+
+        switch (options.getBackpressurePolicy()) {
+            case BLOCK:
+                if (block) {
+                    try {
+                        if (queue.offer(queued, options.getBlockTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                            return true;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                statistics.updateDroppedBlocked(1);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(queued)) {
+                    if (queue.poll() != null) {
+                        unflushed.decrementAndGet();
+                        statistics.updateDroppedOldest(1);
+                    }
+                }
+                return true;
+            case SPILL_TO_DISK:
+                if (spill(queued)) {
+                    unflushed.decrementAndGet();
+                    return true;
+                }
+                statistics.updateDroppedSpill(1);
+                break;
+            default:
+                statistics.updateDroppedNewest(1);
+                break;
+        }
+
+        unflushed.decrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Queue full; dropped sendable for client " + id);
+        }
+        return false;
+    }
+
+    /**
+     * Append a sendable to the spool, along with the envelope properties needed to re-pack it.
+     * @param queued
+     * @return true if spilled
+     */
+    private boolean spill(QueuedSendable queued) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeUTF(Strings.nullToEmpty(queued.sensorId));
+            out.writeUTF(Strings.nullToEmpty(queued.dataVersion));
+            serializer.serialize(queued.sendable, out);
+
+            spool.append(buffer.toByteArray());
+            statistics.updateSpilled(1);
+            statistics.updateSpoolDepth(spool.getDepth());
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to spill sendable for client " + id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Take the next spilled sendable, if any.
+     * @return queued sendable or null
+     * @throws InterruptedException
+     */
+    private QueuedSendable unspill() throws InterruptedException {
+        if (spool == null) {
+            return null;
+        }
+
+        Spool.Entry entry = spool.poll(0, TimeUnit.MILLISECONDS);
+        if (entry == null) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.getPayload()));
+            String sensorId = Strings.emptyToNull(in.readUTF());
+            String dataVersion = Strings.emptyToNull(in.readUTF());
+            byte[] json = ByteStreams.toByteArray(in);
+            return new QueuedSendable(sensorId, dataVersion, new SerializedSendable(json), entry);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt spilled sendable for client " + id, e);
+        }
+    }
+
+    private static Spool openSpool(BatchingClientOptions options) {
+        try {
+            return Spool.open(options.getSpoolOptions());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open spool " + options.getSpoolOptions().getDirectory(), e);
+        }
+    }
+
+    /**
+     * Deliver the partial batch being filled without waiting out the linger period, and wait
+     * until every sendable queued in memory or spilled to disk has been delivered or the timeout
+     * elapses.
+     * @param timeout
+     * @param unit
+     * @return sendables still queued, or still on disk, when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        flushing.incrementAndGet();
+        try {
+            while ((unflushed.get() > 0 || getSpoolDepth() > 0) && flusher.isAlive()
+                    && deadline - System.nanoTime() > 0) {
+                TimeUnit.MILLISECONDS.sleep(Math.min(TICK_MILLIS,
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+            }
+        } finally {
+            flushing.decrementAndGet();
+        }
+        return FlushResult.remaining(unflushed.get(), getSpoolDepth());
+    }
+
+    /**
+     * Stop accepting sendables, flush within the timeout and stop the flusher once its current
+     * batch is done.  With the SPILL_TO_DISK policy, sendables still queued in memory at the
+     * timeout are spilled so that the next client on the spool directory delivers them;
+     * otherwise they are reported as undelivered.  Spilling happens after the timeout and takes
+     * one disk append per sendable.
+     * @param timeout
+     * @param unit
+     * @return sendables left undelivered or on disk
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        flush(timeout, unit);
+
+        closed = true;
+        stopping = true;
+        flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+
+        QueuedSendable queued;
+        while ((queued = queue.poll()) != null) {
+            handOver(queued);
+        }
+
+        if (deliveries != null) {
+            deliveries.shutdown();
+            deliveries.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        FlushResult result = FlushResult.remaining(unflushed.get(), getSpoolDepth());
+        if (flusher.isAlive() || (deliveries != null && !deliveries.isTerminated())) {
+            log.warn("Deliveries still running after close of client " + id + "; " + result);
+        } else {
+            closeSpool();
+        }
+        return result;
+    }
+
+    /**
+     * Stop accepting sendables, flush everything still queued to the delegate and stop the
+     * flusher.  Spilled sendables stay on disk.
+     * @throws InterruptedException
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        flusher.join();
+
+        if (deliveries != null) {
+            deliveries.shutdown();
+            deliveries.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        closeSpool();
+    }
+
+    private void closeSpool() {
+        if (spool != null) {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                log.error("Unable to close spool for client " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Spill a sendable left in memory at close, if there is a spool to spill to.  Sendables
+     * read back from the spool are still on disk and need nothing.
+     * @param queued
+     */
+    private void handOver(QueuedSendable queued) {
+        if (queued.spoolEntry == null && spool != null && spill(queued)) {
+            unflushed.decrementAndGet();
+        }
+    }
+
+    /**
+     * Flusher loop.  Runs until the client is closed and the queue is empty.
+     */
+    private void drain() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(options.getLingerMillis());
+        QueuedSendable carry = null;
+
+        while (true) {
+            if (stopping) {
+                if (carry != null) {
+                    handOver(carry);
+                }
+                return;
+            }
+
+            QueuedSendable first = carry;
+            carry = null;
+
+            try {
+                if (first == null) {
+                    first = poll(System.nanoTime() + lingerNanos, false);
+                }
+                if (first == null) {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                List<CaliperSendable> batch = new ArrayList<>();
+                List<Spool.Entry> spooled = new ArrayList<>();
+                if (!measure(first, spooled)) {
+                    continue;
+                }
+                long bytes = first.size;
+                batch.add(first.sendable);
+                first.spooledTo(spooled);
+                long deadline = first.enqueuedAt + lingerNanos;
+
+                int maxBatchEvents = congestion == null ? options.getMaxBatchEvents()
+                    : Math.min(options.getMaxBatchEvents(), congestion.getBatchLimit());
+
+                while (batch.size() < maxBatchEvents && bytes < options.getMaxBatchBytes()) {
+                    QueuedSendable next = poll(deadline, true);
+                    if (next == null) {
+                        break;
+                    }
+
+                    if (!measure(next, spooled)) {
+                        continue;
+                    }
+                    if (!first.isBatchableWith(next) || bytes + next.size > options.getMaxBatchBytes()) {
+                        carry = next;
+                        break;
+                    }
+
+                    batch.add(next.sendable);
+                    next.spooledTo(spooled);
+                    bytes += next.size;
+                }
+
+                if (!spooled.isEmpty()) {
+                    redeliver(first, batch, spooled);
+                } else if (deliveries != null) {
+                    deliverConcurrently(first, batch);
+                } else {
+                    record(deliver(first, batch), batch.size());
+                    unflushed.addAndGet(-batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Poll the queue until the deadline passes, waking periodically so that a close request
+     * cuts the wait short.  Spilled sendables are taken once the queue is empty.  Once closed,
+     * only sendables that are already queued in memory are returned.  While a flush is waiting,
+     * a batch being filled stops lingering as soon as nothing more is ready.
+     * @param deadline in System.nanoTime() terms
+     * @param lingering whether the poll is filling a batch
+     * @return queued sendable or null
+     * @throws InterruptedException
+     */
+    private QueuedSendable poll(long deadline, boolean lingering) throws InterruptedException {
+        while (true) {
+            QueuedSendable next = queue.poll();
+            if (next != null || closed) {
+                return next;
+            }
+
+            next = unspill();
+            if (next != null) {
+                return next;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || (lingering && flushing.get() > 0)) {
+                return null;
+            }
+
+            next = queue.poll(Math.min(remaining, TICK_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Wrap the batch in an envelope and delegate transmission.
+     * @param first
+     * @param batch
+     * @return outcome reported by the delegate
+     */
+    private SendResult deliver(QueuedSendable first, List<CaliperSendable> batch) {
+        Envelope envelope = new Envelope(first.sensorId, DateTime.now(), first.dataVersion, batch);
+
+        SendResult result = delegate.deliver(envelope);
+        if (!result.isSuccessful()) {
+            log.error("Batch of " + batch.size() + " sendables failed for client " + id + ": " + result,
+                result.getError());
+        }
+        return result;
+    }
+
+    /**
+     * Count the sendables of a batch as delivered or undelivered, as one update of the batch
+     * size.
+     * @param result
+     * @param sendables
+     */
+    private void record(SendResult result, int sendables) {
+        if (result.isSuccessful()) {
+            statistics.updateSuccessful(sendables);
+        } else {
+            statistics.updateFailed(sendables);
+        }
+    }
+
+    /**
+     * Deliver a batch read back from the spool, backing off and trying again until the delegate
+     * reports success, and only then release it from the spool.  The spool acknowledges in
+     * order, so later spilled sendables wait behind the batch rather than being acknowledged
+     * past it.  If the client closes first the batch stays on disk for the next client opened
+     * on the spool directory.  Failed attempts are logged but not counted as Failed.
+     * @param first
+     * @param batch
+     * @param spooled
+     * @throws InterruptedException
+     */
+    private void redeliver(QueuedSendable first, List<CaliperSendable> batch, List<Spool.Entry> spooled)
+            throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            SendResult result = deliver(first, batch);
+            if (result.isSuccessful()) {
+                record(result, batch.size());
+                acknowledge(spooled);
+                return;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REDELIVERY.backoffMillis(attempt));
+            while (deadline - System.nanoTime() > 0) {
+                if (closed) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(TICK_NANOS, deadline - System.nanoTime()));
+            }
+            if (closed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deliver the batch on a delivery thread once the congestion controller allows another
+     * request and no Retry-After delay is pending.  Batches read back from the spool are
+     * delivered on the flusher so that they are acknowledged in order.
+     * @param first
+     * @param batch
+     * @throws InterruptedException
+     */
+    private void deliverConcurrently(final QueuedSendable first, final List<CaliperSendable> batch)
+            throws InterruptedException {
+        synchronized (deliveryLock) {
+            while (activeDeliveries >= congestion.getConcurrencyLimit() || congestion.getPauseMillis() > 0) {
+                deliveryLock.wait(TICK_MILLIS);
+            }
+            activeDeliveries++;
+        }
+
+        deliveries.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    record(deliver(first, batch), batch.size());
+                } finally {
+                    unflushed.addAndGet(-batch.size());
+                    synchronized (deliveryLock) {
+                        activeDeliveries--;
+                        deliveryLock.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Release delivered sendables from the spool.
+     * @param spooled
+     */
+    private void acknowledge(List<Spool.Entry> spooled) {
+        for (Spool.Entry entry : spooled) {
+            spool.acknowledge(entry);
+        }
+        if (!spooled.isEmpty()) {
+            statistics.updateSpoolDepth(spool.getDepth());
+        }
+    }
+
+    /**
+     * Compute the serialized size of a queued sendable.  A sendable that cannot be serialized can
+     * never be delivered, so it is counted as Failed and released: from the queue, or from the
+     * spool along with the spilled sendables of the batch being filled, which precede it.
+     * @param queued
+     * @param spooled spool entries of the batch being filled
+     * @return false if the sendable was failed
+     */
+    private boolean measure(QueuedSendable queued, List<Spool.Entry> spooled) {
+        try {
+            size(queued);
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to serialize sendable for client " + id + "; dropping it", e);
+            statistics.updateFailed(1);
+            if (queued.spoolEntry == null) {
+                unflushed.decrementAndGet();
+            } else if (spooled.isEmpty()) {
+                acknowledge(Collections.singletonList(queued.spoolEntry));
+            } else {
+                spooled.add(queued.spoolEntry);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Serialized size of a queued sendable, computed once on the flusher thread.  If the delegate
+     * serializes with the same serializer, the sendable is replaced by its serialized form so
+     * that the bytes are written into the batch rather than serialized a second time; otherwise
+     * the bytes are only counted.
+     * @param queued
+     * @return bytes
+     * @throws IOException if the sendable cannot be serialized
+     */
+    private long size(QueuedSendable queued) throws IOException {
+        if (queued.size < 0) {
+            if (queued.sendable instanceof SerializedSendable) {
+                queued.size = ((SerializedSendable) queued.sendable).size() + 1;
+            } else if (delegate.getSerializer() == serializer) {
+                SerializedSendable serialized = new SerializedSendable(serializer.serialize(queued.sendable));
+                queued.sendable = serialized;
+                queued.size = serialized.size() + 1;
+            } else {
+                CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+                serializer.serialize(queued.sendable, counter);
+                queued.size = counter.getCount() + 1;
+            }
+        }
+        return queued.size;
+    }
+
+    /**
+     * Queue entry retaining the envelope properties needed to re-pack the sendable.
+     */
+    private static class QueuedSendable {
+        private final String sensorId;
+        private final String dataVersion;
+        private CaliperSendable sendable;
+        private final long enqueuedAt;
+        private final Spool.Entry spoolEntry;
+        private long size = -1;
+
+        private QueuedSendable(Envelope envelope, CaliperSendable sendable) {
+            this(envelope.getSensorId(), envelope.getDataVersion(), sendable, null);
+        }
+
+        private QueuedSendable(String sensorId, String dataVersion, CaliperSendable sendable, Spool.Entry spoolEntry) {
+            this.sensorId = sensorId;
+            this.dataVersion = dataVersion;
+            this.sendable = sendable;
+            this.enqueuedAt = System.nanoTime();
+            this.spoolEntry = spoolEntry;
+        }
+
+        /**
+         * Sendables read back from the spool are only batched with each other, so that a batch
+         * is either acknowledged as a whole or left on disk as a whole.
+         * @param other
+         * @return true if both can share an envelope
+         */
+        private boolean isBatchableWith(QueuedSendable other) {
+            return Objects.equals(sensorId, other.sensorId) && Objects.equals(dataVersion, other.dataVersion)
+                && (spoolEntry == null) == (other.spoolEntry == null);
+        }
+
+        private void spooledTo(List<Spool.Entry> spooled) {
+            if (spoolEntry != null) {
+                spooled.add(spoolEntry);
+            }
+        }
+    }
+
+    /**
+     * Factory method for instantiating a BatchingClient.
+     * @param id
+     * @param delegate
+     * @param options
+     * @return BatchingClient
+     */
+    public static BatchingClient create(String id, CaliperClient delegate, BatchingClientOptions options) {
+        return new BatchingClient(id, delegate, options);
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.spool.SpoolOptions;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Batching client options.  A batch is flushed as soon as any one of the limits is reached.  The
+ * backpressure policy determines what happens to sendables that arrive while the queue is full;
+ * spilling to disk requires spool options.
+ */
+public class BatchingClientOptions implements CaliperClientOptions {
+    private final int maxBatchEvents;
+    private final long maxBatchBytes;
+    private final long lingerMillis;
+    private final int queueCapacity;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long blockTimeoutMillis;
+    private final SpoolOptions spoolOptions;
+
+    /**
+     * Default batching settings.
+     */
+    public static final int MAX_BATCH_EVENTS = 100;
+    public static final long MAX_BATCH_BYTES = 1024 * 1024;
+    public static final long LINGER_MILLIS = 1000;
+    public static final int QUEUE_CAPACITY = 10000;
+    public static final BackpressurePolicy BACKPRESSURE_POLICY = BackpressurePolicy.DROP_NEWEST;
+    public static final long BLOCK_TIMEOUT_MILLIS = 100;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private BatchingClientOptions(OptionsBuilder builder) {
+        SensorValidator.chkPositive(builder.maxBatchEvents, "maxBatchEvents");
+        SensorValidator.chkPositive(builder.maxBatchBytes, "maxBatchBytes");
+        SensorValidator.chkPositive(builder.lingerMillis, "lingerMillis");
+        SensorValidator.chkPositive(builder.queueCapacity, "queueCapacity");
+        SensorValidator.chkPositive(builder.blockTimeoutMillis, "blockTimeoutMillis");
+        checkArgument(builder.backpressurePolicy != null, "backpressurePolicy must be specified");
+        checkArgument(builder.backpressurePolicy != BackpressurePolicy.SPILL_TO_DISK || builder.spoolOptions != null,
+            "spoolOptions must be specified to spill to disk");
+
+        this.maxBatchEvents = builder.maxBatchEvents;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.lingerMillis = builder.lingerMillis;
+        this.queueCapacity = builder.queueCapacity;
+        this.backpressurePolicy = builder.backpressurePolicy;
+        this.blockTimeoutMillis = builder.blockTimeoutMillis;
+        this.spoolOptions = builder.spoolOptions;
+    }
+
+    /**
+     * Get the maximum number of sendables per envelope.
+     * @return max batch events
+     */
+    public int getMaxBatchEvents() {
+        return maxBatchEvents;
+    }
+
+    /**
+     * Get the maximum serialized size of the data in an envelope.
+     * @return max batch bytes
+     */
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Get the maximum time a queued sendable waits for its batch to fill.
+     * @return linger in milliseconds
+     */
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    /**
+     * Get the capacity of the in-memory queue.
+     * @return queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get the policy applied when the queue is full.
+     * @return backpressure policy
+     */
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    /**
+     * Get the longest a blocking send waits for room in the queue.
+     * @return block timeout in milliseconds
+     */
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    /**
+     * Get the options of the spool that overflow is spilled to.
+     * @return spool options, or null if the client does not spill
+     */
+    public SpoolOptions getSpoolOptions() {
+        return spoolOptions;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private int maxBatchEvents = MAX_BATCH_EVENTS;
+        private long maxBatchBytes = MAX_BATCH_BYTES;
+        private long lingerMillis = LINGER_MILLIS;
+        private int queueCapacity = QUEUE_CAPACITY;
+        private BackpressurePolicy backpressurePolicy = BACKPRESSURE_POLICY;
+        private long blockTimeoutMillis = BLOCK_TIMEOUT_MILLIS;
+        private SpoolOptions spoolOptions;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param maxBatchEvents
+         * @return builder
+         */
+        public OptionsBuilder maxBatchEvents(final int maxBatchEvents) {
+            this.maxBatchEvents = maxBatchEvents;
+            return this;
+        }
+
+        /**
+         * @param maxBatchBytes
+         * @return builder
+         */
+        public OptionsBuilder maxBatchBytes(final long maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * @param lingerMillis
+         * @return builder
+         */
+        public OptionsBuilder lingerMillis(final long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity
+         * @return builder
+         */
+        public OptionsBuilder queueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param backpressurePolicy
+         * @return builder
+         */
+        public OptionsBuilder backpressurePolicy(final BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = backpressurePolicy;
+            return this;
+        }
+
+        /**
+         * @param blockTimeoutMillis
+         * @return builder
+         */
+        public OptionsBuilder blockTimeoutMillis(final long blockTimeoutMillis) {
+            this.blockTimeoutMillis = blockTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param spoolOptions
+         * @return builder
+         */
+        public OptionsBuilder spoolOptions(final SpoolOptions spoolOptions) {
+            this.spoolOptions = spoolOptions;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public BatchingClientOptions build() {
+            return new BatchingClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
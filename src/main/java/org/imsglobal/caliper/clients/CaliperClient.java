@@ -19,8 +19,12 @@
 package org.imsglobal.caliper.clients;
 
 import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
 import org.imsglobal.caliper.statistics.Statistics;
 
+import java.util.concurrent.TimeUnit;
+
 public interface CaliperClient {
 
     /**
@@ -46,4 +50,92 @@ public interface CaliperClient {
      * @param envelope
      */
     void send(Envelope envelope);
+
+    /**
+     * Get the serializer the client formats envelopes with.  When several clients share a
+     * serializer, the Sensor serializes each envelope once and hands the bytes to all of them
+     * through send(SerializedEnvelope).
+     * @return serializer, or null if the client does not accept pre-serialized envelopes
+     */
+    default CaliperSerializer getSerializer() {
+        return null;
+    }
+
+    /**
+     * Send an envelope that has already been serialized.  Clients that do not use the
+     * envelope's serializer send the envelope itself.
+     * @param envelope
+     */
+    default void send(SerializedEnvelope envelope) {
+        send(envelope.getEnvelope());
+    }
+
+    /**
+     * Send an envelope and report the outcome.  Clients that can tell whether the envelope
+     * reached its target report failures they would otherwise only log or count; by default the
+     * envelope counts as delivered once send returns, and as failed if send throws.
+     * @param envelope
+     * @return result
+     */
+    default SendResult deliver(Envelope envelope) {
+        long start = System.nanoTime();
+        try {
+            send(envelope);
+            return SendResult.delivered(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 0);
+        } catch (RuntimeException e) {
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Send an envelope that has already been serialized and report the outcome, as for
+     * deliver(Envelope).
+     * @param envelope
+     * @return result
+     */
+    default SendResult deliver(SerializedEnvelope envelope) {
+        long start = System.nanoTime();
+        try {
+            send(envelope);
+            return SendResult.delivered(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 0);
+        } catch (RuntimeException e) {
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Hand an envelope to the client, reporting whether it was accepted.  Clients that queue
+     * envelopes never block the caller; clients without a queue send on the calling thread.
+     * @param envelope
+     * @return true if the envelope was accepted
+     */
+    default boolean offer(Envelope envelope) {
+        send(envelope);
+        return true;
+    }
+
+    /**
+     * Wait until every envelope the client has accepted has been delivered, or the timeout
+     * elapses.  Clients that send on the caller's thread hold nothing back and return at once.
+     * @param timeout
+     * @param unit
+     * @return what was still held when the flush returned
+     * @throws InterruptedException
+     */
+    default FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        return FlushResult.COMPLETE;
+    }
+
+    /**
+     * Flush within the timeout, then release the client's threads, files and connections.
+     * Whatever the client still held when the timeout elapsed is reported rather than waited
+     * for; clients with a spool leave it on disk for the next client.
+     * @param timeout
+     * @param unit
+     * @return what was left undelivered
+     * @throws InterruptedException
+     */
+    default FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        return flush(timeout, unit);
+    }
 }
@@ -0,0 +1,158 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.statistics.Statistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client circuit breaker.  After failureThreshold consecutive failures the circuit opens and
+ * requests fail fast without reaching the endpoint.  Once openMillis have passed the circuit is
+ * half-open: a single probe request is let through, and its outcome either closes the circuit or
+ * opens it again.  Outcomes of requests that were let through before the circuit opened are
+ * ignored while it is open or half-open, so that a late success cannot close the circuit in
+ * place of the probe.  State changes, openings and rejected requests are recorded in the
+ * client's statistics.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit states.  The CircuitState statistic records the ordinal of the current state.
+     */
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Ticker ticker;
+    private final Statistics statistics;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long nextTicket;
+    private long probeTicket = -1;
+
+    /**
+     * Constructor
+     * @param failureThreshold
+     * @param openMillis
+     * @param statistics
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, Statistics statistics) {
+        this(failureThreshold, openMillis, statistics, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor that injects the time source.
+     * @param failureThreshold
+     * @param openMillis
+     * @param statistics
+     * @param ticker
+     */
+    CircuitBreaker(int failureThreshold, long openMillis, Statistics statistics, Ticker ticker) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.statistics = statistics;
+        this.ticker = ticker;
+        this.statistics.updateCircuitState(state.ordinal());
+    }
+
+    /**
+     * Get the current state.  An open circuit whose open period has elapsed is reported as
+     * half-open.
+     * @return state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Ask permission to send a request.  Every permitted request must be followed by a call to
+     * onSuccess or onFailure with its ticket.
+     * @return ticket identifying the request, or -1 if it must fail fast
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN && ticker.read() - openedAt >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+
+        if (state == State.CLOSED) {
+            return nextTicket++;
+        }
+        if (state == State.HALF_OPEN && probeTicket < 0) {
+            probeTicket = nextTicket++;
+            return probeTicket;
+        }
+
+        statistics.updateCircuitRejected(1);
+        return -1;
+    }
+
+    /**
+     * Record that the endpoint responded normally.  Only the probe closes a circuit that is not
+     * closed.
+     * @param ticket
+     */
+    public synchronized void onSuccess(long ticket) {
+        if (state == State.CLOSED) {
+            consecutiveFailures = 0;
+        } else if (ticket == probeTicket) {
+            probeTicket = -1;
+            consecutiveFailures = 0;
+            transition(State.CLOSED);
+        }
+    }
+
+    /**
+     * Record that the endpoint failed or is unavailable.  Only the probe re-opens a circuit
+     * that is not closed.
+     * @param ticket
+     */
+    public synchronized void onFailure(long ticket) {
+        if (state == State.CLOSED) {
+            if (++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        } else if (ticket == probeTicket) {
+            probeTicket = -1;
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = ticker.read();
+        statistics.updateCircuitOpened(1);
+        transition(State.OPEN);
+    }
+
+    private void transition(State next) {
+        state = next;
+        statistics.updateCircuitState(next.ordinal());
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.statistics.Statistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-client AIMD controller for the number of concurrent requests and the number of events per
+ * batch.  Requests ask for a slot with acquire and report their outcome with onResponse or
+ * onFailure.  Limits start at the policy floors, grow while the endpoint responds within the
+ * target latency, and are cut multiplicatively when it signals congestion.  The current limits
+ * and each observed latency are recorded in the client's statistics as ConcurrencyLimit,
+ * BatchLimit and Latency.
+ */
+public class CongestionController {
+    private final CongestionPolicy policy;
+    private final int maxConcurrency;
+    private final Statistics statistics;
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    // Guarded by lock
+    private double concurrencyLimit;
+    private double batchLimit;
+    private int inFlight;
+    private long issued;
+    private long lastCut = -1;
+    private boolean paused;
+    private long pausedUntil;
+
+    /**
+     * Constructor
+     * @param policy
+     * @param maxConcurrency
+     * @param statistics
+     */
+    CongestionController(CongestionPolicy policy, int maxConcurrency, Statistics statistics) {
+        this(policy, maxConcurrency, statistics, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor that injects the time source.
+     * @param policy
+     * @param maxConcurrency
+     * @param statistics
+     * @param ticker
+     */
+    CongestionController(CongestionPolicy policy, int maxConcurrency, Statistics statistics, Ticker ticker) {
+        this.policy = policy;
+        this.maxConcurrency = Math.max(maxConcurrency, policy.getMinConcurrency());
+        this.statistics = statistics;
+        this.ticker = ticker;
+        this.concurrencyLimit = policy.getMinConcurrency();
+        this.batchLimit = policy.getMinBatchEvents();
+        this.statistics.updateConcurrencyLimit(getConcurrencyLimit());
+        this.statistics.updateBatchLimit(getBatchLimit());
+    }
+
+    /**
+     * Get the policy.
+     * @return policy
+     */
+    public CongestionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the number of requests that may currently be in flight.
+     * @return concurrency limit
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of events a batch may currently hold.
+     * @return batch limit
+     */
+    public int getBatchLimit() {
+        lock.lock();
+        try {
+            return (int) batchLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of requests holding a slot.
+     * @return in-flight requests
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get how long requests are held back at the endpoint's request.
+     * @return remaining Retry-After delay in milliseconds, or 0
+     */
+    public long getPauseMillis() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(pauseNanos());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a request slot.  A slot is free when fewer than the concurrency limit are in flight
+     * and no Retry-After delay is pending.  Every granted slot must be returned through
+     * onResponse or onFailure.
+     * @param timeout
+     * @param unit
+     * @return ticket identifying the request, or -1 if no slot became free in time
+     * @throws InterruptedException
+     */
+    public long acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+
+        lock.lock();
+        try {
+            while (true) {
+                long pause = pauseNanos();
+                if (pause <= 0 && inFlight < (int) concurrencyLimit) {
+                    inFlight++;
+                    return issued++;
+                }
+                if (remaining <= 0) {
+                    return -1;
+                }
+
+                long wait = pause > 0 ? Math.min(pause, remaining) : remaining;
+                remaining -= wait - available.awaitNanos(wait);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the endpoint's response and return the slot.  A congestion status cuts both limits,
+     * unless they were already cut after this request was issued; any other successful response
+     * within the target latency grows them.
+     * @param ticket returned by acquire
+     * @param statusCode
+     * @param latencyMillis
+     * @param retryAfterMillis delay requested by the endpoint, or 0
+     */
+    public void onResponse(long ticket, int statusCode, long latencyMillis, long retryAfterMillis) {
+        lock.lock();
+        try {
+            inFlight--;
+            statistics.updateLatency(latencyMillis);
+
+            int concurrency = (int) concurrencyLimit;
+            int batch = (int) batchLimit;
+
+            if (policy.isCongestion(statusCode)) {
+                if (ticket > lastCut) {
+                    concurrencyLimit = Math.max(policy.getMinConcurrency(), concurrencyLimit * policy.getDecreaseFactor());
+                    batchLimit = Math.max(policy.getMinBatchEvents(), batchLimit * policy.getDecreaseFactor());
+                    lastCut = issued - 1;
+                }
+                if (retryAfterMillis > 0) {
+                    pause(retryAfterMillis);
+                }
+            } else if (statusCode >= 200 && statusCode < 300 && latencyMillis <= policy.getTargetLatencyMillis()) {
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+                batchLimit = Math.min(policy.getMaxBatchEvents(), batchLimit + policy.getBatchIncrease());
+            }
+
+            if ((int) concurrencyLimit != concurrency) {
+                statistics.updateConcurrencyLimit((int) concurrencyLimit);
+            }
+            if ((int) batchLimit != batch) {
+                statistics.updateBatchLimit((int) batchLimit);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the slot of a request that failed without a response.  Limits are unchanged.
+     * @param ticket returned by acquire
+     */
+    public void onFailure(long ticket) {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pause(long millis) {
+        long until = ticker.read() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (!paused || until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+        paused = true;
+    }
+
+    private long pauseNanos() {
+        if (!paused) {
+            return 0;
+        }
+        long pause = pausedUntil - ticker.read();
+        if (pause <= 0) {
+            paused = false;
+        }
+        return pause;
+    }
+}
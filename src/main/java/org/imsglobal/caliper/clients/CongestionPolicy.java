@@ -0,0 +1,241 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.collect.ImmutableSet;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Additive-increase, multiplicative-decrease (AIMD) settings for adapting batch size and request
+ * concurrency to the endpoint.  While responses arrive within the target latency, the concurrency
+ * limit grows by one per round trip and the batch limit by batchIncrease per response.  A
+ * congestion status code cuts both limits by decreaseFactor, at most once per round trip, and a
+ * Retry-After header on that response holds back further requests until it has passed.
+ */
+public class CongestionPolicy {
+    private final long targetLatencyMillis;
+    private final double decreaseFactor;
+    private final int minConcurrency;
+    private final int minBatchEvents;
+    private final int maxBatchEvents;
+    private final int batchIncrease;
+    private final Set<Integer> congestionStatusCodes;
+
+    /**
+     * Default congestion settings.
+     */
+    public static final long TARGET_LATENCY_MILLIS = 1000;
+    public static final double DECREASE_FACTOR = 0.5;
+    public static final int MIN_CONCURRENCY = 1;
+    public static final int MIN_BATCH_EVENTS = 1;
+    public static final int MAX_BATCH_EVENTS = BatchingClientOptions.MAX_BATCH_EVENTS;
+    public static final int BATCH_INCREASE = 1;
+    public static final Set<Integer> CONGESTION_STATUS_CODES = ImmutableSet.of(429, 503);
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private CongestionPolicy(PolicyBuilder builder) {
+        SensorValidator.chkPositive(builder.targetLatencyMillis, "targetLatencyMillis");
+        checkArgument(builder.decreaseFactor > 0.0 && builder.decreaseFactor < 1.0,
+            "decreaseFactor must be between 0 and 1 but was %s", builder.decreaseFactor);
+        SensorValidator.chkPositive(builder.minConcurrency, "minConcurrency");
+        SensorValidator.chkPositive(builder.minBatchEvents, "minBatchEvents");
+        SensorValidator.chkRange(builder.maxBatchEvents, builder.minBatchEvents, Integer.MAX_VALUE, "maxBatchEvents");
+        SensorValidator.chkPositive(builder.batchIncrease, "batchIncrease");
+        checkArgument(builder.congestionStatusCodes != null, "congestionStatusCodes must be specified");
+
+        this.targetLatencyMillis = builder.targetLatencyMillis;
+        this.decreaseFactor = builder.decreaseFactor;
+        this.minConcurrency = builder.minConcurrency;
+        this.minBatchEvents = builder.minBatchEvents;
+        this.maxBatchEvents = builder.maxBatchEvents;
+        this.batchIncrease = builder.batchIncrease;
+        this.congestionStatusCodes = builder.congestionStatusCodes;
+    }
+
+    /**
+     * Get the latency under which limits are allowed to grow.
+     * @return target latency in milliseconds
+     */
+    public long getTargetLatencyMillis() {
+        return targetLatencyMillis;
+    }
+
+    /**
+     * Get the factor limits are multiplied by on congestion.
+     * @return decrease factor, between 0 and 1
+     */
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * Get the floor for the concurrency limit.  The ceiling is the client's maxInFlightRequests.
+     * @return min concurrency
+     */
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    /**
+     * Get the floor for the batch limit.
+     * @return min batch events
+     */
+    public int getMinBatchEvents() {
+        return minBatchEvents;
+    }
+
+    /**
+     * Get the ceiling for the batch limit.
+     * @return max batch events
+     */
+    public int getMaxBatchEvents() {
+        return maxBatchEvents;
+    }
+
+    /**
+     * Get the number of events the batch limit grows by per response within the target latency.
+     * @return batch increase
+     */
+    public int getBatchIncrease() {
+        return batchIncrease;
+    }
+
+    /**
+     * Get the HTTP status codes that signal congestion.
+     * @return status codes
+     */
+    public Set<Integer> getCongestionStatusCodes() {
+        return congestionStatusCodes;
+    }
+
+    /**
+     * Determine whether a response with the given status code signals congestion.
+     * @param statusCode
+     * @return true if congested
+     */
+    public boolean isCongestion(int statusCode) {
+        return congestionStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting policy properties.
+     */
+    public static class PolicyBuilder {
+        private long targetLatencyMillis = TARGET_LATENCY_MILLIS;
+        private double decreaseFactor = DECREASE_FACTOR;
+        private int minConcurrency = MIN_CONCURRENCY;
+        private int minBatchEvents = MIN_BATCH_EVENTS;
+        private int maxBatchEvents = MAX_BATCH_EVENTS;
+        private int batchIncrease = BATCH_INCREASE;
+        private Set<Integer> congestionStatusCodes = CONGESTION_STATUS_CODES;
+
+        /**
+         * Constructor
+         */
+        public PolicyBuilder() {
+
+        }
+
+        /**
+         * @param targetLatencyMillis
+         * @return builder
+         */
+        public PolicyBuilder targetLatencyMillis(final long targetLatencyMillis) {
+            this.targetLatencyMillis = targetLatencyMillis;
+            return this;
+        }
+
+        /**
+         * @param decreaseFactor
+         * @return builder
+         */
+        public PolicyBuilder decreaseFactor(final double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+            return this;
+        }
+
+        /**
+         * @param minConcurrency
+         * @return builder
+         */
+        public PolicyBuilder minConcurrency(final int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+            return this;
+        }
+
+        /**
+         * @param minBatchEvents
+         * @return builder
+         */
+        public PolicyBuilder minBatchEvents(final int minBatchEvents) {
+            this.minBatchEvents = minBatchEvents;
+            return this;
+        }
+
+        /**
+         * @param maxBatchEvents
+         * @return builder
+         */
+        public PolicyBuilder maxBatchEvents(final int maxBatchEvents) {
+            this.maxBatchEvents = maxBatchEvents;
+            return this;
+        }
+
+        /**
+         * @param batchIncrease
+         * @return builder
+         */
+        public PolicyBuilder batchIncrease(final int batchIncrease) {
+            this.batchIncrease = batchIncrease;
+            return this;
+        }
+
+        /**
+         * @param congestionStatusCodes
+         * @return builder
+         */
+        public PolicyBuilder congestionStatusCodes(final Integer... congestionStatusCodes) {
+            this.congestionStatusCodes = ImmutableSet.copyOf(congestionStatusCodes);
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of CongestionPolicy.
+         */
+        public CongestionPolicy build() {
+            return new CongestionPolicy(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+}
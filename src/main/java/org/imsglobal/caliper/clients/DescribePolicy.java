@@ -0,0 +1,117 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+/**
+ * Policy for describing entities once across envelopes.  A client with a describe policy
+ * remembers up to maxEntities entity ids, each with a hash of the content it sent in full.  A
+ * later reference with the same content is sent as the bare id until ttlMillis have passed since
+ * the content was described; an entity whose content has changed, or whose description has
+ * expired or been evicted, is described in full again.
+ */
+public class DescribePolicy {
+    private final long maxEntities;
+    private final long ttlMillis;
+
+    /**
+     * Default describe settings.
+     */
+    public static final long MAX_ENTITIES = 10000;
+    public static final long TTL_MILLIS = 3600000;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private DescribePolicy(PolicyBuilder builder) {
+        SensorValidator.chkPositive(builder.maxEntities, "maxEntities");
+        SensorValidator.chkPositive(builder.ttlMillis, "ttlMillis");
+
+        this.maxEntities = builder.maxEntities;
+        this.ttlMillis = builder.ttlMillis;
+    }
+
+    /**
+     * Get the number of entity descriptions remembered, least recently used first to go.
+     * @return max entities
+     */
+    public long getMaxEntities() {
+        return maxEntities;
+    }
+
+    /**
+     * Get how long after an entity is described in full it is sent as its id.
+     * @return time to live in milliseconds
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting policy properties.
+     */
+    public static class PolicyBuilder {
+        private long maxEntities = MAX_ENTITIES;
+        private long ttlMillis = TTL_MILLIS;
+
+        /**
+         * Constructor
+         */
+        public PolicyBuilder() {
+
+        }
+
+        /**
+         * @param maxEntities
+         * @return builder
+         */
+        public PolicyBuilder maxEntities(final long maxEntities) {
+            this.maxEntities = maxEntities;
+            return this;
+        }
+
+        /**
+         * @param ttlMillis
+         * @return builder
+         */
+        public PolicyBuilder ttlMillis(final long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of DescribePolicy.
+         */
+        public DescribePolicy build() {
+            return new DescribePolicy(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request entity that serializes the envelope directly into the connection's output stream, so
+ * the JSON is never held on the heap in full; only the generator and compressor buffers are.
+ * The length is unknown up front, so the entity is sent with chunked transfer encoding.  The
+ * envelope is re-serialized on every write, which keeps the entity repeatable.
+ */
+final class EnvelopeEntity extends AbstractHttpEntity {
+    private final Envelope envelope;
+    private final CaliperSerializer serializer;
+    private final Compression compression;
+    private final int compressionLevel;
+
+    /**
+     * Constructor
+     * @param envelope
+     * @param serializer
+     * @param compression
+     * @param compressionLevel
+     */
+    EnvelopeEntity(Envelope envelope, CaliperSerializer serializer, Compression compression, int compressionLevel) {
+        this.envelope = envelope;
+        this.serializer = serializer;
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setContentEncoding(compression.value());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Serialize the envelope into memory, encoded as writeTo would send it, for callers that read
+     * the entity rather than write it.  Such callers give up the streaming.
+     * @return content
+     * @throws IOException
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        // Closing the compressor finishes the compressed body; the connection closes the target
+        OutputStream target = compression.wrap(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }, compressionLevel);
+
+        try {
+            serializer.serialize(envelope, target);
+        } finally {
+            target.close();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
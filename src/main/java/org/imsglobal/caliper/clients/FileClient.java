@@ -0,0 +1,507 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.events.CaliperEvent;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Client that appends events to local files as newline-delimited JSON, one event or entity per
+ * line, for pickup by a log shipper.  Each envelope is serialized on the caller's thread and
+ * written to the open segment with a single FileChannel write; envelopes are never split across
+ * segments.  Segments are rotated by size and age.  Closed segments are forced to disk, gzipped
+ * if the options ask for it and recorded in the index, one line per segment with its event count,
+ * size and the first and last eventTime written to it, all on a background thread so that the
+ * caller never waits on compression.
+ *
+ * Segment numbering continues from the highest segment found in the directory, so a restarted
+ * client never appends to a segment written by a previous one.
+ */
+public class FileClient implements CaliperClient, Closeable {
+    private final String id;
+    private final FileClientOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final Pattern segmentName;
+    private final File index;
+    private final ScheduledExecutorService housekeeper;
+
+    // Guarded by this
+    private FileChannel channel;
+    private File segment;
+    private long sequence;
+    private long segmentBytes;
+    private long segmentEvents;
+    private long openedAt;
+    private DateTime firstEventTime;
+    private DateTime lastEventTime;
+    private boolean closed = false;
+
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    static final String COMPRESSED_SUFFIX = ".gz";
+    static final String INDEX_SUFFIX = "-index.ndjson";
+
+    /**
+     * Upper bound on how long an idle segment outlives its rotate interval.
+     */
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * Upper bound on how long close waits for closed segments to be compressed and indexed.
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 30000;
+
+    private static final Logger log = LoggerFactory.getLogger(FileClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param options
+     * @param serializer
+     * @throws IOException
+     */
+    private FileClient(String id, FileClientOptions options, CaliperSerializer serializer) throws IOException {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+
+        this.id = id;
+        this.options = options;
+        this.serializer = serializer;
+        this.statistics = new Statistics();
+        this.segmentName = Pattern.compile(Pattern.quote(options.getPrefix()) + "-(\\d+)"
+            + Pattern.quote(SEGMENT_SUFFIX) + "(" + Pattern.quote(COMPRESSED_SUFFIX) + ")?");
+        this.index = new File(options.getDirectory(), options.getPrefix() + INDEX_SUFFIX);
+
+        Files.createDirectories(options.getDirectory().toPath());
+        this.sequence = lastSequence();
+
+        long tick = Math.min(TICK_MILLIS, options.getRotateIntervalMillis());
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("caliper-file-" + id)
+            .setDaemon(true)
+            .build());
+        this.housekeeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rotateIfExpired();
+            }
+        }, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    public FileClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.  Measures count envelopes; Successful counts envelopes written and Failed
+     * counts envelopes that could not be written.  Rotations counts closed segments.
+     * @return statistics
+     */
+    @Nonnull
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the index file listing closed segments.
+     * @return index file
+     */
+    public File getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the segment currently open for writing.
+     * @return segment file, or null if no segment is open
+     */
+    public synchronized File getSegment() {
+        return segment;
+    }
+
+    /**
+     * Append each event and entity in the envelope to the open segment as a line of JSON.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        statistics.updateMeasures(1);
+
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        DateTime first = null;
+        DateTime last = null;
+        long events = 0;
+
+        try {
+            for (CaliperSendable sendable : envelope.getData()) {
+                serializer.serialize(sendable, lines);
+                lines.write('\n');
+
+                if (sendable instanceof CaliperEvent) {
+                    DateTime eventTime = ((CaliperEvent) sendable).getEventTime();
+                    if (eventTime != null) {
+                        first = first == null ? eventTime : first;
+                        last = eventTime;
+                    }
+                    events++;
+                }
+            }
+
+            write(lines.toByteArray(), events, first, last);
+            statistics.updateSuccessful(1);
+        } catch (IOException e) {
+            statistics.updateFailed(1);
+            log.error("Unable to write envelope for client " + id, e);
+        }
+    }
+
+    /**
+     * Force the open segment to disk.  Envelopes are written on the caller's thread, so nothing
+     * else is held back.
+     * @param timeout
+     * @param unit
+     * @return result
+     */
+    @Override
+    public synchronized FlushResult flush(long timeout, TimeUnit unit) {
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                log.error("Unable to force segment " + segment + " for client " + id, e);
+            }
+        }
+        return FlushResult.COMPLETE;
+    }
+
+    /**
+     * Close the open segment and wait for closed segments to be compressed and indexed.
+     * @param timeout
+     * @param unit
+     * @return result
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) {
+        try {
+            close();
+        } catch (IOException e) {
+            log.error("Unable to close segment for client " + id, e);
+        }
+        return FlushResult.COMPLETE;
+    }
+
+    /**
+     * Close the open segment and wait for closed segments to be compressed and indexed.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (channel != null) {
+                    rotate();
+                }
+            }
+        } finally {
+            housekeeper.shutdown();
+            try {
+                if (!housekeeper.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    log.warn("Timed out waiting for closed segments of client " + id);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Write the lines of one envelope, rotating first if the segment is full or has expired.
+     * @param lines
+     * @param events
+     * @param first
+     * @param last
+     * @throws IOException
+     */
+    private synchronized void write(byte[] lines, long events, DateTime first, DateTime last) throws IOException {
+        if (closed) {
+            throw new IllegalStateException(id + " is closed.");
+        }
+
+        if (channel != null && (segmentBytes + lines.length > options.getMaxSegmentBytes() || isExpired())) {
+            rotate();
+        }
+        if (channel == null) {
+            open();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            recover();
+            throw e;
+        }
+
+        segmentBytes += lines.length;
+        segmentEvents += events;
+        if (first != null) {
+            firstEventTime = firstEventTime == null ? first : firstEventTime;
+            lastEventTime = last;
+        }
+    }
+
+    /**
+     * Open the next segment.
+     * @throws IOException
+     */
+    private void open() throws IOException {
+        File next = new File(options.getDirectory(),
+            String.format("%s-%06d%s", options.getPrefix(), sequence + 1, SEGMENT_SUFFIX));
+        channel = FileChannel.open(next.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        sequence++;
+        segment = next;
+        segmentBytes = 0;
+        segmentEvents = 0;
+        openedAt = System.nanoTime();
+        firstEventTime = null;
+        lastEventTime = null;
+    }
+
+    /**
+     * Force and close the open segment, and hand it to the housekeeper for compression and
+     * indexing.
+     * @throws IOException
+     */
+    private void rotate() throws IOException {
+        final FileChannel closing = channel;
+        final ClosedSegment summary = new ClosedSegment(segment, segmentEvents, segmentBytes, firstEventTime, lastEventTime);
+        channel = null;
+        segment = null;
+
+        try {
+            closing.force(false);
+        } finally {
+            closing.close();
+        }
+
+        statistics.updateRotations(1);
+        housekeeper.execute(new Runnable() {
+            @Override
+            public void run() {
+                finish(summary);
+            }
+        });
+    }
+
+    /**
+     * Undo a write that failed partway by truncating the segment back to the end of the last
+     * envelope written in full, so that the next envelope continues the segment on a line
+     * boundary.  If the segment cannot be truncated it is dropped: it is left on disk as is,
+     * without being compressed or indexed, and the next envelope opens a new one.
+     */
+    private void recover() {
+        try {
+            channel.truncate(segmentBytes);
+            channel.position(segmentBytes);
+            return;
+        } catch (IOException e) {
+            log.warn("Unable to truncate segment " + segment + " for client " + id + "; dropping it", e);
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close segment " + segment + " for client " + id, e);
+        }
+        channel = null;
+        segment = null;
+    }
+
+    /**
+     * Housekeeper task that rotates a segment that has been open for longer than the rotate
+     * interval, so that idle segments are still handed over on time.
+     */
+    private synchronized void rotateIfExpired() {
+        if (!closed && channel != null && isExpired()) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                log.error("Unable to rotate segment for client " + id, e);
+            }
+        }
+    }
+
+    private boolean isExpired() {
+        return System.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(options.getRotateIntervalMillis());
+    }
+
+    /**
+     * Housekeeper task that compresses a closed segment if required and appends it to the index.
+     * @param summary
+     */
+    private void finish(ClosedSegment summary) {
+        try {
+            File file = options.isCompress() ? compress(summary.file) : summary.file;
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("segment", file.getName());
+            entry.put("events", summary.events);
+            entry.put("bytes", summary.bytes);
+            entry.put("firstEventTime", summary.firstEventTime != null ? summary.firstEventTime.toString() : null);
+            entry.put("lastEventTime", summary.lastEventTime != null ? summary.lastEventTime.toString() : null);
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            serializer.serialize(entry, line);
+            line.write('\n');
+            Files.write(index.toPath(), line.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Unable to finish segment " + summary.file + " for client " + id, e);
+        }
+    }
+
+    /**
+     * Gzip a closed segment.  The compressed file is written under a temporary name and renamed
+     * into place before the original is deleted, so a crash never leaves a truncated .gz behind.
+     * @param file
+     * @return compressed file
+     * @throws IOException
+     */
+    private static File compress(File file) throws IOException {
+        File target = new File(file.getPath() + COMPRESSED_SUFFIX);
+        File partial = new File(target.getPath() + ".tmp");
+
+        try (InputStream in = Files.newInputStream(file.toPath());
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial.toPath()))) {
+            ByteStreams.copy(in, out);
+        }
+        Files.move(partial.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file.toPath());
+
+        return target;
+    }
+
+    /**
+     * Find the highest segment number in the directory.
+     * @return sequence, or 0 if the directory holds no segments
+     */
+    private long lastSequence() {
+        long last = 0;
+        String[] names = options.getDirectory().list();
+        if (names != null) {
+            for (String name : names) {
+                Matcher matcher = segmentName.matcher(name);
+                if (matcher.matches()) {
+                    last = Math.max(last, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Summary of a closed segment, captured under the client lock.
+     */
+    private static class ClosedSegment {
+        private final File file;
+        private final long events;
+        private final long bytes;
+        private final DateTime firstEventTime;
+        private final DateTime lastEventTime;
+
+        private ClosedSegment(File file, long events, long bytes, DateTime firstEventTime, DateTime lastEventTime) {
+            this.file = file;
+            this.events = events;
+            this.bytes = bytes;
+            this.firstEventTime = firstEventTime;
+            this.lastEventTime = lastEventTime;
+        }
+    }
+
+    /**
+     * Factory method for instantiating a FileClient.
+     * @param id
+     * @param options
+     * @return FileClient
+     * @throws IOException
+     */
+    public static FileClient create(String id, FileClientOptions options) throws IOException {
+        return create(id, options, CaliperSerializer.getDefault());
+    }
+
+    /**
+     * Factory method for instantiating a FileClient with a custom serializer.
+     * @param id
+     * @param options
+     * @param serializer
+     * @return FileClient
+     * @throws IOException
+     */
+    public static FileClient create(String id, FileClientOptions options, CaliperSerializer serializer) throws IOException {
+        return new FileClient(id, options, serializer);
+    }
+}
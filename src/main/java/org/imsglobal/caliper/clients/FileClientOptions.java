@@ -0,0 +1,185 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.io.File;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * File client options.  Segments are named prefix-NNNNNN.ndjson and are rotated once they reach
+ * maxSegmentBytes or have been open for rotateIntervalMillis, whichever comes first.  Closed
+ * segments are gzipped when compress is enabled, and each closed segment is recorded in the
+ * prefix-index.ndjson file.
+ */
+public class FileClientOptions implements CaliperClientOptions {
+    private final File directory;
+    private final String prefix;
+    private final long maxSegmentBytes;
+    private final long rotateIntervalMillis;
+    private final boolean compress;
+
+    /**
+     * Default file settings.
+     */
+    public static final String PREFIX = "caliper";
+    public static final long MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+    public static final long ROTATE_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private FileClientOptions(OptionsBuilder builder) {
+        checkArgument(builder.directory != null, "File directory must be specified.");
+        checkArgument(builder.prefix != null && builder.prefix.matches("[A-Za-z0-9._-]+"),
+            "prefix must be a non-empty file name but was %s", builder.prefix);
+        SensorValidator.chkPositive(builder.maxSegmentBytes, "maxSegmentBytes");
+        SensorValidator.chkPositive(builder.rotateIntervalMillis, "rotateIntervalMillis");
+
+        this.directory = builder.directory;
+        this.prefix = builder.prefix;
+        this.maxSegmentBytes = builder.maxSegmentBytes;
+        this.rotateIntervalMillis = builder.rotateIntervalMillis;
+        this.compress = builder.compress;
+    }
+
+    /**
+     * Get the directory holding the segment files.
+     * @return directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the prefix of the segment and index file names.
+     * @return prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Get the size at which a segment is rotated.  An envelope is never split across segments,
+     * so a segment may exceed this by up to one envelope.
+     * @return max segment bytes
+     */
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    /**
+     * Get the maximum time a segment stays open for writing.
+     * @return rotate interval in milliseconds
+     */
+    public long getRotateIntervalMillis() {
+        return rotateIntervalMillis;
+    }
+
+    /**
+     * Determine whether closed segments are gzipped.
+     * @return true if closed segments are compressed
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private File directory;
+        private String prefix = PREFIX;
+        private long maxSegmentBytes = MAX_SEGMENT_BYTES;
+        private long rotateIntervalMillis = ROTATE_INTERVAL_MILLIS;
+        private boolean compress = false;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param directory
+         * @return builder
+         */
+        public OptionsBuilder directory(final File directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param prefix
+         * @return builder
+         */
+        public OptionsBuilder prefix(final String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * @param maxSegmentBytes
+         * @return builder
+         */
+        public OptionsBuilder maxSegmentBytes(final long maxSegmentBytes) {
+            this.maxSegmentBytes = maxSegmentBytes;
+            return this;
+        }
+
+        /**
+         * @param rotateIntervalMillis
+         * @return builder
+         */
+        public OptionsBuilder rotateIntervalMillis(final long rotateIntervalMillis) {
+            this.rotateIntervalMillis = rotateIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @param compress
+         * @return builder
+         */
+        public OptionsBuilder compress(final boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public FileClientOptions build() {
+            return new FileClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
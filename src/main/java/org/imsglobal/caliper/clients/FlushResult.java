@@ -0,0 +1,105 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+/**
+ * Immutable report of what a client still held when a flush or close deadline passed.
+ * Undelivered items exist only in memory and are lost if the process exits; spooled items are
+ * on disk and are delivered by the next client opened on the same spool directory.  Clients
+ * that queue sendables count sendables, other clients count envelopes.
+ */
+public class FlushResult {
+    private final long undelivered;
+    private final long spooled;
+
+    /**
+     * Result of a flush that left nothing behind.
+     */
+    public static final FlushResult COMPLETE = new FlushResult(0, 0);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param undelivered
+     * @param spooled
+     */
+    private FlushResult(long undelivered, long spooled) {
+        this.undelivered = undelivered;
+        this.spooled = spooled;
+    }
+
+    /**
+     * Get the number of items held only in memory.
+     * @return undelivered
+     */
+    public long getUndelivered() {
+        return undelivered;
+    }
+
+    /**
+     * Get the number of items left on disk for a later client.
+     * @return spooled
+     */
+    public long getSpooled() {
+        return spooled;
+    }
+
+    /**
+     * Whether everything was delivered.
+     * @return true if nothing is left
+     */
+    public boolean isComplete() {
+        return undelivered == 0 && spooled == 0;
+    }
+
+    /**
+     * Whether everything not yet delivered is safely on disk.
+     * @return true if nothing is held only in memory
+     */
+    public boolean isDurable() {
+        return undelivered == 0;
+    }
+
+    /**
+     * Combine with the result of another flush sharing the same deadline.
+     * @param other
+     * @return sum of both results
+     */
+    public FlushResult plus(FlushResult other) {
+        return remaining(undelivered + other.undelivered, spooled + other.spooled);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Undelivered : %d], [Spooled : %d]", undelivered, spooled);
+    }
+
+    /**
+     * Result of a flush that left items behind.
+     * @param undelivered
+     * @param spooled
+     * @return result
+     */
+    public static FlushResult remaining(long undelivered, long spooled) {
+        if (undelivered == 0 && spooled == 0) {
+            return COMPLETE;
+        }
+        return new FlushResult(undelivered, spooled);
+    }
+}
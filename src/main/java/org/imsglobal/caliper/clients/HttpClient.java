@@ -18,26 +18,62 @@
 
 package org.imsglobal.caliper.clients;
 
-import org.apache.http.client.ClientProtocolException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.DescribeCache;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Provisions the Sensor with an HttpClient that binds to one or more Requestors.
+ * Provisions the Sensor with an HttpClient that binds to one or more Requestors.  Each instance
+ * owns a connection pool sized, timed out and kept alive according to its HttpClientOptions.
  */
-public class HttpClient extends AbstractClient {
-    private static CloseableHttpClient httpClient;
-    private static CloseableHttpResponse response = null;
+public class HttpClient extends AbstractClient implements Closeable {
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Semaphore inFlight;
+    private final CircuitBreaker circuitBreaker;
+    private final CongestionController congestionController;
+    private final RateLimiter rateLimiter;
+    private final DescribeCache describeCache;
+    private final CaliperSerializer serializer;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Upper bound on how long a flush sleeps between checks for outstanding POSTs.
+     */
+    private static final long TICK_MILLIS = 10;
 
     private static final Logger log = LoggerFactory.getLogger(HttpClient.class);
 
@@ -45,95 +81,631 @@ public class HttpClient extends AbstractClient {
      * Constructor.  The args options provides the host details to the HttpClient.  Scope is private
      * to force use of the static factory method for instantiating an HttpClient.
      * @param id
+     * @param options
+     * @param serializer
      */
-    private HttpClient(String id, HttpClientOptions options) {
-        super(id, options);
-        initialize();
+    private HttpClient(String id, HttpClientOptions options, CaliperSerializer serializer) {
+        super(id, options, serializer);
+
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(options.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(options.getMaxConnectionsPerRoute());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(options.getConnTimeout())
+            .setConnectionRequestTimeout(options.getConnectionRequestTimeout())
+            .setSocketTimeout(options.getSocketTimeout())
+            .build();
+
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy(options.getKeepAliveTimeout()))
+            .evictExpiredConnections()
+            .evictIdleConnections(options.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+            .build();
+
+        this.inFlight = new Semaphore(options.getMaxInFlightRequests());
+        this.circuitBreaker = options.getCircuitBreakerThreshold() == 0 ? null
+            : new CircuitBreaker(options.getCircuitBreakerThreshold(), options.getCircuitBreakerOpenMillis(), getStatistics());
+        this.congestionController = options.getCongestionPolicy() == null ? null
+            : new CongestionController(options.getCongestionPolicy(), options.getMaxInFlightRequests(), getStatistics());
+        this.rateLimiter = options.getRateLimitPolicy() == null ? null
+            : new RateLimiter(options.getRateLimitPolicy(), getStatistics());
+        this.describeCache = options.getDescribePolicy() == null ? null
+            : new DescribeCache(options.getDescribePolicy().getMaxEntities(),
+                options.getDescribePolicy().getTtlMillis(), getStatistics());
+        this.serializer = describeCache == null ? serializer : serializer.withDescribeCache(describeCache);
     }
 
     /**
-     * Init method
+     * Init method.
+     * @deprecated connection pools are created per client instance; this method has no effect.
      */
-    public static synchronized void initialize() {
-        if (httpClient == null) {
-            httpClient = HttpClients.createDefault();
-        }
+    @Deprecated
+    public static void initialize() {
+
+    }
+
+    /**
+     * Keep connections alive for as long as the endpoint allows, capped at the configured timeout.
+     * @param keepAliveTimeout
+     * @return keep-alive strategy
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(final long keepAliveTimeout) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return (duration > 0 && duration < keepAliveTimeout) ? duration : keepAliveTimeout;
+            }
+        };
     }
 
     /**
-     * Check initialized instance.
+     * Get the connection pool.
+     * @return connection manager
      */
-    private static void checkInitialized() {
-        if (httpClient == null) {
-            throw new IllegalStateException("HttpClient is not initialized.");
+    PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Get the number of POSTs currently in flight.
+     * @return in-flight requests
+     */
+    public int getInFlightRequests() {
+        if (congestionController != null) {
+            return congestionController.getInFlight();
         }
+        return getOptions().getMaxInFlightRequests() - inFlight.availablePermits();
+    }
+
+    /**
+     * Get the number of envelopes being sent, including those waiting for a permit, for the
+     * rate limit or to be retried.
+     * @return pending envelopes
+     */
+    public int getPendingRequests() {
+        return pending.get();
+    }
+
+    /**
+     * Get the circuit breaker guarding the endpoint.
+     * @return circuit breaker, or null if the breaker is off
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 
     /**
-     * Post envelope.
+     * Get the controller adapting request concurrency and batch size to the endpoint.
+     * @return congestion controller, or null if congestion control is disabled
+     */
+    public CongestionController getCongestionController() {
+        return congestionController;
+    }
+
+    /**
+     * Get the token buckets pacing POSTs to the endpoint.
+     * @return rate limiter, or null if requests are not rate limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Get the entities this client has recently described in full.
+     * @return describe cache, or null if the client has no describe policy
+     */
+    public DescribeCache getDescribeCache() {
+        return describeCache;
+    }
+
+    /**
+     * Get the serializer.  With a describe policy it is this client's own, and consults the
+     * client's describe cache.
+     * @return serializer
+     */
+    @Override
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Get the serializer this client was created with, without the describe cache.  Envelopes
+     * stored before they are posted are serialized with it, so that they describe every entity
+     * in full however long they wait.
+     * @return serializer
+     */
+    CaliperSerializer getStorageSerializer() {
+        return super.getSerializer();
+    }
+
+    /**
+     * Post envelope.  All request and response state is local to the call, so send may be invoked
+     * concurrently; at most maxInFlightRequests POSTs are executed at once.  I/O errors and
+     * retryable status codes are retried according to the retry policy, unless the circuit
+     * breaker is open, in which case the envelope fails fast.  An envelope the endpoint rejects
+     * is reported by throwing; other failures are logged.  Use deliver to learn the outcome.
      * @param envelope
-     * @return status
      */
     @Override
     public void send(Envelope envelope) {
-        boolean status = Boolean.FALSE;
+        checkStatus(deliver(envelope));
+    }
 
+    /**
+     * Post an envelope that has already been serialized, sending the shared bytes as they are
+     * unless they are large enough to compress.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        checkStatus(deliver(envelope));
+    }
+
+    /**
+     * Post envelope as for send and report the outcome.  Envelopes that could not be serialized,
+     * were refused by the open circuit breaker or failed with an I/O error are reported as
+     * unsuccessful results carrying the error; status codes other than 200 through 202 as
+     * unsuccessful results carrying the status code.
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(Envelope envelope) {
+        long start = System.nanoTime();
+        DescribeCache.Descriptions descriptions = describeCache == null ? null : describeCache.newDescriptions();
+        HttpEntity entity;
+        try {
+            entity = createEntity(envelope, descriptions);
+        } catch (IOException ioe) {
+            updateStatistics(Boolean.FALSE);
+            log.error("HTTP POST failed", ioe);
+            return SendResult.failure(ioe, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        SendResult result = deliver(entity, envelope.getData().size(), start);
+        if (descriptions != null && result.isSuccessful()) {
+            descriptions.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Post an envelope that has already been serialized and report the outcome, as for
+     * deliver(Envelope).
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(SerializedEnvelope envelope) {
+        if (envelope.getSerializer() != getSerializer()) {
+            return deliver(envelope.getEnvelope());
+        }
+
+        long start = System.nanoTime();
+        HttpEntity entity;
+        try {
+            entity = createEntity(envelope);
+        } catch (IOException ioe) {
+            updateStatistics(Boolean.FALSE);
+            log.error("HTTP POST failed", ioe);
+            return SendResult.failure(ioe, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return deliver(entity, envelope.getEnvelope().getData().size(), start);
+    }
+
+    private SendResult deliver(HttpEntity entity, int events, long start) {
+        pending.incrementAndGet();
         try {
             if (log.isDebugEnabled()) {
                 log.debug("Entering send()...");
             }
 
-            // Check if HttpClient is initialized.
-            checkInitialized();
+            // Execute POST
+            int statusCode = executeWithRetry(createPost(entity), events);
+            SendResult result = SendResult.http(statusCode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                Math.max(entity.getContentLength(), 0));
 
-            // Serialize the envelope
-            String json = this.serializeEnvelope(envelope);
+            // Update statistics
+            updateStatistics(result.isSuccessful());
 
-            // Prep the post
-            HttpPost post = new HttpPost(super.getOptions().getHost());
-            post.setHeader("Authorization", this.getOptions().getApiKey());
-            post.setHeader("Content-Type", this.getOptions().getContentType());
-            post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+            if (log.isDebugEnabled()) {
+                log.debug("Exiting send()...");
+            }
+            return result;
+        } catch (CircuitBreakerOpenException cboe) {
+            updateStatistics(Boolean.FALSE);
+            log.warn(cboe.getMessage());
+            return SendResult.failure(cboe, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException ioe) {
+            updateStatistics(Boolean.FALSE);
+            log.error("HTTP POST failed", ioe);
+            return SendResult.failure(ioe, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
 
-            // Execute POST
-            response = httpClient.execute(post);
+    /**
+     * Report an envelope the endpoint rejected by throwing.  Failures without a response have
+     * already been logged.
+     * @param result
+     */
+    private static void checkStatus(SendResult result) {
+        if (!result.isSuccessful() && result.getError() == null) {
+            throw new RuntimeException("WARN: HTTP POST failed; status code=" + result.getStatusCode());
+        }
+    }
 
-            // HTTP Response code
-            int statusCode = response.getStatusLine().getStatusCode();
-            if (statusCode < 200 || statusCode > 202) {
-                response.close();
+    /**
+     * Create the request body.  Streamed envelopes are serialized while the request is written;
+     * otherwise the envelope is serialized up front, compressing it if it is large enough to benefit.
+     * @param envelope
+     * @param descriptions collecting the entities the envelope describes, or null without a
+     *                     describe cache
+     * @return entity
+     * @throws IOException
+     */
+    private HttpEntity createEntity(Envelope envelope, DescribeCache.Descriptions descriptions) throws IOException {
+        if (descriptions != null) {
+            return createEntity(getSerializer().serialize(envelope, descriptions));
+        }
 
-                // Update statistics
-                updateStatistics(Boolean.FALSE);
+        HttpClientOptions options = this.getOptions();
+        if (options.isStreaming() && (rateLimiter == null || !rateLimiter.getPolicy().isByteLimited())) {
+            return new EnvelopeEntity(envelope, getSerializer(), options.getCompression(), options.getCompressionLevel());
+        }
+        return createEntity(getSerializer().serialize(envelope));
+    }
+
+    /**
+     * Create the request body for an envelope serialized once for several clients.  The shared
+     * bytes are sent, or compressed, without copying them.
+     * @param envelope
+     * @return entity
+     * @throws IOException
+     */
+    private HttpEntity createEntity(SerializedEnvelope envelope) throws IOException {
+        Compression compression = compressionFor(envelope.size());
+        HttpEntity entity = envelope.asEntity();
+        if (compression == Compression.NONE) {
+            return entity;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, envelope.size() / 4));
+        try (OutputStream out = compression.wrap(buffer, this.getOptions().getCompressionLevel())) {
+            entity.writeTo(out);
+        }
+        ByteArrayEntity compressed = new ByteArrayEntity(buffer.toByteArray(), ContentType.APPLICATION_JSON);
+        compressed.setContentEncoding(compression.value());
+        return compressed;
+    }
 
-                throw new RuntimeException("WARN: HTTP POST failed; status code=" + statusCode);
-            } else {
+    /**
+     * Create the request body for a serialized envelope.
+     * @param payload
+     * @return entity
+     * @throws IOException
+     */
+    private HttpEntity createEntity(byte[] payload) throws IOException {
+        Compression compression = compressionFor(payload);
+        ByteArrayEntity entity = new ByteArrayEntity(
+            compression.compress(payload, this.getOptions().getCompressionLevel()), ContentType.APPLICATION_JSON);
+        entity.setContentEncoding(compression.value());
+        return entity;
+    }
+
+    private HttpPost createPost(HttpEntity entity) {
+        HttpPost post = new HttpPost(this.getOptions().getHost());
+        post.setHeader("Authorization", this.getOptions().getApiKey());
+        post.setHeader("Content-Type", this.getOptions().getContentType());
+        post.setEntity(entity);
+        return post;
+    }
+
+    /**
+     * Post an envelope that has already been serialized, without updating statistics.  Used by
+     * clients that store envelopes before forwarding them.
+     * @param payload
+     * @param events number of events and entities in the envelope, for rate limiting
+     * @return result
+     * @throws IOException
+     */
+    SendResult post(byte[] payload, int events) throws IOException {
+        HttpEntity entity = createEntity(payload);
+        long start = System.nanoTime();
+        int statusCode;
+        pending.incrementAndGet();
+        try {
+            HttpPost post = createPost(entity);
+            statusCode = execute(post, admit(post, events));
+        } finally {
+            pending.decrementAndGet();
+        }
+
+        return SendResult.http(statusCode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), entity.getContentLength());
+    }
+
+    /**
+     * Check whether the endpoint is reachable and not failing, with a GET to the host that
+     * bypasses the circuit breaker and in-flight limits.  Any response below 500 counts as healthy.
+     * @return true if healthy
+     */
+    boolean probe() {
+        HttpGet get = new HttpGet(this.getOptions().getHost());
+        get.setHeader("Authorization", this.getOptions().getApiKey());
+
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode() < 500;
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Health probe of " + this.getOptions().getHost() + " failed", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Execute the POST, retrying I/O errors and retryable status codes with backoff.  A POST the
+     * circuit breaker refuses is not retried, nor is one that timed out or was interrupted waiting
+     * for the rate limits or an in-flight permit: those are local limits, not endpoint failures.
+     * @param post
+     * @param events
+     * @return HTTP status code of the last attempt
+     * @throws IOException
+     */
+    private int executeWithRetry(HttpPost post, int events) throws IOException {
+        RetryPolicy policy = getOptions().getRetryPolicy();
+
+        for (int attempt = 1; ; attempt++) {
+            long permit = admit(post, events);
+            try {
+                int statusCode = execute(post, permit);
+                if (!policy.isRetryable(statusCode) || attempt >= policy.getMaxAttempts()) {
+                    return statusCode;
+                }
+                log.warn("HTTP POST attempt " + attempt + " failed; status code=" + statusCode);
+            } catch (CircuitBreakerOpenException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= policy.getMaxAttempts()) {
+                    throw e;
+                }
+                log.warn("HTTP POST attempt " + attempt + " failed", e);
+            }
+
+            getStatistics().updateRetries(1);
+            pause(policy.backoffMillis(attempt));
+        }
+    }
+
+    /**
+     * Wait until the rate limits allow the POST and an in-flight permit is available.  This
+     * happens before the circuit breaker is asked, so that local saturation is never counted
+     * against the endpoint.
+     * @param post
+     * @param events
+     * @return in-flight permit, to be passed to execute
+     * @throws IOException
+     */
+    private long admit(HttpPost post, int events) throws IOException {
+        limitRate(events, Math.max(post.getEntity().getContentLength(), 0));
+        return acquirePermit();
+    }
+
+    /**
+     * Wait between attempts.
+     * @param millis
+     * @throws InterruptedIOException
+     */
+    private static void pause(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry HTTP POST");
+        }
+    }
+
+    /**
+     * Execute an admitted POST if the circuit breaker allows it, report the outcome to the
+     * breaker and return the in-flight permit.  Status codes the retry policy considers
+     * retryable count as endpoint failures.  The response entity is always consumed so that the
+     * connection returns to the pool.
+     * @param post
+     * @param permit returned by admit
+     * @return HTTP status code
+     * @throws IOException
+     */
+    private int execute(HttpPost post, long permit) throws IOException {
+        long start = System.nanoTime();
+        int statusCode = SendResult.NO_STATUS;
+        long retryAfterMillis = 0;
+
+        try {
+            long ticket = circuitBreaker == null ? 0 : circuitBreaker.tryAcquire();
+            if (ticket < 0) {
+                throw new CircuitBreakerOpenException("HTTP POST not attempted; circuit breaker open for client " + getId());
+            }
+
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
                 if (log.isDebugEnabled()) {
                     log.debug(response.getStatusLine().toString());
                     log.debug(EntityUtils.toString(response.getEntity()));
+                } else {
+                    EntityUtils.consume(response.getEntity());
                 }
-                response.close();
 
-                // Update statistics
-                updateStatistics(Boolean.TRUE);
+                statusCode = response.getStatusLine().getStatusCode();
+                retryAfterMillis = retryAfterMillis(response);
+            } catch (IOException | RuntimeException e) {
+                if (circuitBreaker != null) {
+                    circuitBreaker.onFailure(ticket);
+                }
+                throw e;
+            }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("Exiting send()...");
+            if (circuitBreaker != null) {
+                if (getOptions().getRetryPolicy().isRetryable(statusCode)) {
+                    circuitBreaker.onFailure(ticket);
+                } else {
+                    circuitBreaker.onSuccess(ticket);
                 }
             }
-        } catch (ClientProtocolException cpe) {
-            cpe.printStackTrace();
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+            return statusCode;
+        } finally {
+            releasePermit(permit, statusCode, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), retryAfterMillis);
+        }
+    }
+
+    /**
+     * Wait until the rate limits allow a request of the given size.  No in-flight permit is held
+     * while waiting.
+     * @param events
+     * @param bytes
+     * @throws InterruptedIOException
+     */
+    private void limitRate(int events, long bytes) throws InterruptedIOException {
+        if (rateLimiter == null) {
+            return;
+        }
+        try {
+            rateLimiter.acquire(events, bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the rate limit");
+        }
+    }
+
+    /**
+     * Wait for an in-flight permit, for no longer than the connection request timeout.  With
+     * congestion control the permit comes from the congestion controller.
+     * @return congestion controller ticket, or 0
+     * @throws IOException
+     */
+    private long acquirePermit() throws IOException {
+        long timeout = getOptions().getConnectionRequestTimeout();
+        try {
+            if (congestionController != null) {
+                long ticket = congestionController.acquire(timeout, TimeUnit.MILLISECONDS);
+                if (ticket < 0) {
+                    throw new ConnectionPoolTimeoutException("Timeout waiting for a congestion window slot");
+                }
+                return ticket;
+            }
+            if (!inFlight.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new ConnectionPoolTimeoutException("Timeout waiting for an in-flight request permit");
+            }
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for an in-flight request permit");
         }
     }
 
+    /**
+     * Return the in-flight permit, reporting the outcome to the congestion controller.
+     * @param ticket
+     * @param statusCode status code, or NO_STATUS if the request failed without a response
+     * @param latencyMillis
+     * @param retryAfterMillis
+     */
+    private void releasePermit(long ticket, int statusCode, long latencyMillis, long retryAfterMillis) {
+        if (congestionController == null) {
+            inFlight.release();
+        } else if (statusCode == SendResult.NO_STATUS) {
+            congestionController.onFailure(ticket);
+        } else {
+            congestionController.onResponse(ticket, statusCode, latencyMillis, retryAfterMillis);
+        }
+    }
+
+    /**
+     * Read the Retry-After header, given either in seconds or as an HTTP date.
+     * @param response
+     * @return delay in milliseconds, or 0 if absent or unparseable
+     */
+    static long retryAfterMillis(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return 0;
+        }
+
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Wait for envelopes being sent on other threads to reach an outcome.
+     * @param timeout
+     * @param unit
+     * @return envelopes still being sent when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0 && deadline - System.nanoTime() > 0) {
+            TimeUnit.MILLISECONDS.sleep(TICK_MILLIS);
+        }
+        return FlushResult.remaining(pending.get(), 0);
+    }
+
+    /**
+     * Wait for envelopes being sent to reach an outcome, then release the connection pool.
+     * POSTs still running at the timeout are aborted.
+     * @param timeout
+     * @param unit
+     * @return envelopes still being sent when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        FlushResult result = flush(timeout, unit);
+        try {
+            close();
+        } catch (IOException e) {
+            log.warn("Unable to close connection pool for client " + getId(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Release the connection pool and its eviction thread.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
     /**
      * Factory method for instantiating an HttpClient.
      * @param id
      * @return HttpClient
      */
     public static HttpClient create(String id, HttpClientOptions options) {
-        return new HttpClient(id, options);
+        return create(id, options, CaliperSerializer.getDefault());
+    }
+
+    /**
+     * Factory method for instantiating an HttpClient that formats envelopes with the given
+     * serializer, for example one that de-duplicates entities.
+     * @param id
+     * @param options
+     * @param serializer
+     * @return HttpClient
+     */
+    public static HttpClient create(String id, HttpClientOptions options, CaliperSerializer serializer) {
+        return new HttpClient(id, options, serializer);
     }
 }
\ No newline at end of file
@@ -18,25 +18,70 @@
 
 package org.imsglobal.caliper.clients;
 
+import org.imsglobal.caliper.config.Compression;
 import org.imsglobal.caliper.config.Timeout;
 import org.imsglobal.caliper.validators.SensorValidator;
 
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Caliper client options.  Review default constants and update placeholder entries (e.g., HTTP_HOST).
  */
 public class HttpClientOptions implements CaliperClientOptions {
     private final String apiKey;
+    private final int circuitBreakerThreshold;
+    private final long circuitBreakerOpenMillis;
+    private final Compression compression;
+    private final int compressionLevel;
+    private final int compressionThreshold;
+    private final CongestionPolicy congestionPolicy;
+    private final RateLimitPolicy rateLimitPolicy;
+    private final DescribePolicy describePolicy;
     private final int connectionTimeout;
+    private final int connectionRequestTimeout;
     private final String contentType;
     private final String host;
+    private final int idleConnectionTimeout;
+    private final int keepAliveTimeout;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int maxInFlightRequests;
+    private final RetryPolicy retryPolicy;
     private final int socketTimeout;
+    private final boolean streaming;
 
     /**
      * Default timeout settings.
      */
     public static final int CONNECTION_TIMEOUT = Timeout.CONNECTION_TIMEOUT.value();
+    public static final int CONNECTION_REQUEST_TIMEOUT = Timeout.CONNECTION_REQUESTOR_TIMEOUT.value();
+    public static final int IDLE_CONNECTION_TIMEOUT = Timeout.IDLE_CONNECTION_TIMEOUT.value();
+    public static final int KEEP_ALIVE_TIMEOUT = Timeout.KEEP_ALIVE_TIMEOUT.value();
     public static final int SOCKET_TIMEOUT = Timeout.SOCKET_TIMEOUT.value();
 
+    /**
+     * Default connection pool settings.
+     */
+    public static final int MAX_CONNECTIONS = 20;
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int MAX_IN_FLIGHT_REQUESTS = 20;
+
+    /**
+     * Default circuit breaker settings.  The breaker is off unless a threshold is given.
+     */
+    public static final int CIRCUIT_BREAKER_THRESHOLD = 0;
+    public static final long CIRCUIT_BREAKER_OPEN_MILLIS = 30000;
+
+    /**
+     * Default request compression settings.  Compression is off unless enabled; once enabled,
+     * envelopes smaller than the threshold (in bytes) are still sent uncompressed.
+     */
+    public static final Compression COMPRESSION = Compression.NONE;
+    public static final int COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
     /**
      * HTTP Request Header field values.  Update faux Host value.
      */
@@ -51,11 +96,40 @@ public class HttpClientOptions implements CaliperClientOptions {
 
         SensorValidator.chkApiKey(builder.apiKey);
 
+        checkArgument(builder.compression != null, "compression must be specified");
+        checkArgument(builder.retryPolicy != null, "retryPolicy must be specified");
+        SensorValidator.chkRange(builder.circuitBreakerThreshold, 0, Integer.MAX_VALUE, "circuitBreakerThreshold");
+        SensorValidator.chkPositive(builder.circuitBreakerOpenMillis, "circuitBreakerOpenMillis");
+        SensorValidator.chkRange(builder.compressionLevel, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION, "compressionLevel");
+        SensorValidator.chkRange(builder.compressionThreshold, 0, Integer.MAX_VALUE, "compressionThreshold");
+
+        SensorValidator.chkPositive(builder.idleConnectionTimeout, "idleConnectionTimeout");
+        SensorValidator.chkPositive(builder.keepAliveTimeout, "keepAliveTimeout");
+        SensorValidator.chkPositive(builder.maxConnections, "maxConnections");
+        SensorValidator.chkPositive(builder.maxConnectionsPerRoute, "maxConnectionsPerRoute");
+        SensorValidator.chkPositive(builder.maxInFlightRequests, "maxInFlightRequests");
+
         this.apiKey = builder.apiKey;
+        this.circuitBreakerThreshold = builder.circuitBreakerThreshold;
+        this.circuitBreakerOpenMillis = builder.circuitBreakerOpenMillis;
+        this.compression = builder.compression;
+        this.compressionLevel = builder.compressionLevel;
+        this.compressionThreshold = builder.compressionThreshold;
+        this.congestionPolicy = builder.congestionPolicy;
+        this.rateLimitPolicy = builder.rateLimitPolicy;
+        this.describePolicy = builder.describePolicy;
         this.connectionTimeout = SensorValidator.chkIntValue(builder.connectionTimeout, CONNECTION_TIMEOUT);
+        this.connectionRequestTimeout = SensorValidator.chkIntValue(builder.connectionRequestTimeout, CONNECTION_REQUEST_TIMEOUT);
         this.contentType = SensorValidator.chkStrValue(builder.contentType, HTTP_CONTENT_TYPE);
         this.host = SensorValidator.chkStrValue(builder.host, HTTP_HOST);
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.keepAliveTimeout = builder.keepAliveTimeout;
+        this.maxConnections = builder.maxConnections;
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.maxInFlightRequests = builder.maxInFlightRequests;
+        this.retryPolicy = builder.retryPolicy;
         this.socketTimeout = SensorValidator.chkIntValue(builder.socketTimeout, SOCKET_TIMEOUT);
+        this.streaming = builder.streaming;
     }
 
     /**
@@ -66,6 +140,75 @@ public class HttpClientOptions implements CaliperClientOptions {
         return apiKey;
     }
 
+    /**
+     * Get the number of consecutive failures that opens the circuit breaker.
+     * @return circuit breaker threshold, or 0 if the breaker is off
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Get the time an open circuit breaker fails fast before letting a probe request through.
+     * @return circuit breaker open period in milliseconds
+     */
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    /**
+     * Get the request body compression scheme.
+     * @return compression
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the deflate level used when compressing request bodies.
+     * @return compression level
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the serialized envelope size, in bytes, from which request bodies are compressed.
+     * @return compression threshold
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Get the policy for adapting batch size and request concurrency to the endpoint.  When
+     * present, at most the policy's current concurrency limit of requests, up to
+     * maxInFlightRequests, are in flight at once.
+     * @return congestion policy, or null if congestion control is disabled
+     */
+    public CongestionPolicy getCongestionPolicy() {
+        return congestionPolicy;
+    }
+
+    /**
+     * Get the rate limits for POSTs to the endpoint.  When present, each POST, including each
+     * retry, waits until the client is within its event and byte rates.
+     * @return rate limit policy, or null if requests are not rate limited
+     */
+    public RateLimitPolicy getRateLimitPolicy() {
+        return rateLimitPolicy;
+    }
+
+    /**
+     * Get the policy for describing entities once across envelopes.  When present, entities the
+     * client has recently sent in full are sent as their id, and envelopes are serialized up
+     * front so that a retry repeats the same descriptions.
+     * @return describe policy, or null if every envelope describes its entities in full
+     */
+    public DescribePolicy getDescribePolicy() {
+        return describePolicy;
+    }
+
     /**
      * Get the Connection timeout.
      * @return connection timeout
@@ -74,6 +217,14 @@ public class HttpClientOptions implements CaliperClientOptions {
         return connectionTimeout;
     }
 
+    /**
+     * Get the timeout for leasing a connection from the pool.
+     * @return connection request timeout
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
     /**
      * Get the HTTP Content-Type value.
      * @return HTTP Content-Type value
@@ -90,6 +241,56 @@ public class HttpClientOptions implements CaliperClientOptions {
         return host;
     }
 
+    /**
+     * Get the time after which idle pooled connections are evicted.
+     * @return idle connection timeout
+     */
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Get the maximum time a connection is kept alive; applied when the endpoint does not
+     * send a shorter Keep-Alive timeout.
+     * @return keep-alive timeout
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * Get the maximum number of pooled connections.
+     * @return max connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Get the maximum number of pooled connections per route.
+     * @return max connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the maximum number of concurrent POSTs per client.
+     * @return max in-flight requests
+     */
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    /**
+     * Get the policy for retrying failed POSTs.  By default POSTs are not retried: an endpoint
+     * that stored an envelope but failed to answer would receive its events twice.
+     * @return retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     /**
      * Get the Socket timeout.
      * @return the Socket timeout
@@ -98,15 +299,42 @@ public class HttpClientOptions implements CaliperClientOptions {
         return socketTimeout;
     }
 
+    /**
+     * Determine whether envelopes are serialized straight into the request body.  Streamed
+     * requests use chunked transfer encoding; because their size is not known in advance, the
+     * compression threshold does not apply and the configured compression is always used.  A
+     * byte rate limit needs the size up front, so it turns streaming off, as does a describe policy.
+     * @return true if request bodies are streamed
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     /**
      * Builder class provides a fluid interface for setting options properties.
      */
     public static class OptionsBuilder {
         private String apiKey;
+        private int circuitBreakerThreshold = CIRCUIT_BREAKER_THRESHOLD;
+        private long circuitBreakerOpenMillis = CIRCUIT_BREAKER_OPEN_MILLIS;
+        private Compression compression = COMPRESSION;
+        private int compressionLevel = COMPRESSION_LEVEL;
+        private int compressionThreshold = COMPRESSION_THRESHOLD;
+        private CongestionPolicy congestionPolicy;
+        private RateLimitPolicy rateLimitPolicy;
+        private DescribePolicy describePolicy;
         private int connectionTimeout = 0;
+        private int connectionRequestTimeout = 0;
         private String contentType;
         private String host;
+        private int idleConnectionTimeout = IDLE_CONNECTION_TIMEOUT;
+        private int keepAliveTimeout = KEEP_ALIVE_TIMEOUT;
+        private int maxConnections = MAX_CONNECTIONS;
+        private int maxConnectionsPerRoute = MAX_CONNECTIONS_PER_ROUTE;
+        private int maxInFlightRequests = MAX_IN_FLIGHT_REQUESTS;
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
         private int socketTimeout = 0;
+        private boolean streaming = false;
 
         /**
          * Constructor
@@ -124,6 +352,78 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param circuitBreakerThreshold
+         * @return builder
+         */
+        public OptionsBuilder circuitBreakerThreshold(final int circuitBreakerThreshold) {
+            this.circuitBreakerThreshold = circuitBreakerThreshold;
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerOpenMillis
+         * @return builder
+         */
+        public OptionsBuilder circuitBreakerOpenMillis(final long circuitBreakerOpenMillis) {
+            this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+            return this;
+        }
+
+        /**
+         * @param compression
+         * @return builder
+         */
+        public OptionsBuilder compression(final Compression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * @param compressionLevel
+         * @return builder
+         */
+        public OptionsBuilder compressionLevel(final int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * @param compressionThreshold
+         * @return builder
+         */
+        public OptionsBuilder compressionThreshold(final int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /**
+         * @param congestionPolicy
+         * @return builder
+         */
+        public OptionsBuilder congestionPolicy(final CongestionPolicy congestionPolicy) {
+            this.congestionPolicy = congestionPolicy;
+            return this;
+        }
+
+        /**
+         * @param rateLimitPolicy
+         * @return builder
+         */
+        public OptionsBuilder rateLimitPolicy(final RateLimitPolicy rateLimitPolicy) {
+            this.rateLimitPolicy = rateLimitPolicy;
+            return this;
+        }
+
+        /**
+         * @param describePolicy
+         * @return builder
+         */
+        public OptionsBuilder describePolicy(final DescribePolicy describePolicy) {
+            this.describePolicy = describePolicy;
+            return this;
+        }
+
         /**
          * @param connectionTimeout
          * @return builder
@@ -133,6 +433,15 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param connectionRequestTimeout
+         * @return builder
+         */
+        public OptionsBuilder connectionRequestTimeout(final int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
         /**
          * @param contentType
          * @return builder
@@ -151,6 +460,60 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param idleConnectionTimeout
+         * @return builder
+         */
+        public OptionsBuilder idleConnectionTimeout(final int idleConnectionTimeout) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+            return this;
+        }
+
+        /**
+         * @param keepAliveTimeout
+         * @return builder
+         */
+        public OptionsBuilder keepAliveTimeout(final int keepAliveTimeout) {
+            this.keepAliveTimeout = keepAliveTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxConnections
+         * @return builder
+         */
+        public OptionsBuilder maxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerRoute
+         * @return builder
+         */
+        public OptionsBuilder maxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param maxInFlightRequests
+         * @return builder
+         */
+        public OptionsBuilder maxInFlightRequests(final int maxInFlightRequests) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy
+         * @return builder
+         */
+        public OptionsBuilder retryPolicy(final RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         /**
          * @param socketTimeout
          * @return builder
@@ -160,6 +523,15 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param streaming
+         * @return builder
+         */
+        public OptionsBuilder streaming(final boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+
         /**
          * Client invokes build method in order to create an immutable object.
          * @return a new instance of Options.
@@ -0,0 +1,419 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Spreads envelopes across several HttpClients, one per endpoint, according to the configured
+ * LoadBalancingStrategy.  Each envelope is serialized once.  If an endpoint fails with an I/O
+ * error or a status code its retry policy considers retryable, the envelope fails over to the next
+ * healthy endpoint, each endpoint being tried at most once.  An endpoint that fails
+ * ejectionThreshold times in a row is ejected and receives no envelopes until a health probe
+ * finds it answering again.  The endpoint clients should not also be registered with the Sensor.
+ */
+public class LoadBalancingClient implements CaliperClient, Closeable {
+    private final String id;
+    private final List<Endpoint> endpoints;
+    private final LoadBalancingClientOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService prober;
+    private volatile boolean closed = false;
+
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancingClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param clients
+     * @param options
+     */
+    private LoadBalancingClient(String id, List<HttpClient> clients, LoadBalancingClientOptions options) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+        checkArgument(clients != null && !clients.isEmpty(), "at least one endpoint client must be specified");
+
+        this.id = id;
+        this.options = options;
+        this.serializer = CaliperSerializer.getDefault();
+        this.statistics = new Statistics();
+
+        ImmutableList.Builder<Endpoint> builder = ImmutableList.builder();
+        for (HttpClient client : clients) {
+            builder.add(new Endpoint(client));
+        }
+        this.endpoints = builder.build();
+        this.statistics.updateHealthyEndpoints(endpoints.size());
+
+        this.prober = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("caliper-probe-" + id)
+            .setDaemon(true)
+            .build());
+        this.prober.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, options.getProbeIntervalMillis(), options.getProbeIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    public LoadBalancingClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.  Successful and Failed count envelopes; Failover counts attempts on a second
+     * or later endpoint, Ejection counts endpoints ejected and HealthyEndpoints tracks how many
+     * are currently admitted.
+     * @return statistics
+     */
+    @Nonnull
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the serializer envelopes are formatted with.
+     * @return serializer
+     */
+    @Override
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Get the endpoint clients, in the order given.
+     * @return endpoint clients
+     */
+    public List<HttpClient> getEndpoints() {
+        List<HttpClient> clients = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            clients.add(endpoint.client);
+        }
+        return clients;
+    }
+
+    /**
+     * Get the endpoint clients that are currently admitted.
+     * @return healthy endpoint clients
+     */
+    public List<HttpClient> getHealthyEndpoints() {
+        List<HttpClient> clients = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.ejected) {
+                clients.add(endpoint.client);
+            }
+        }
+        return clients;
+    }
+
+    /**
+     * Post envelope to a healthy endpoint, failing over to the others if it is unavailable.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        checkStatus(deliver(envelope));
+    }
+
+    /**
+     * Post an envelope that has already been serialized, failing over as for send(Envelope).
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        checkStatus(deliver(envelope));
+    }
+
+    /**
+     * Post envelope as for send and report the outcome.  Envelopes that could not be serialized
+     * or that no healthy endpoint accepted, including when every endpoint is ejected, are
+     * reported as unsuccessful results carrying the error; envelopes an endpoint rejected outright
+     * as unsuccessful results carrying its status code.
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(Envelope envelope) {
+        return deliver(envelope, null);
+    }
+
+    /**
+     * Post an envelope that has already been serialized and report the outcome, as for
+     * deliver(Envelope).
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(SerializedEnvelope envelope) {
+        return deliver(envelope.getEnvelope(), envelope.getSerializer() == serializer ? envelope : null);
+    }
+
+    private SendResult deliver(Envelope envelope, SerializedEnvelope serialized) {
+        if (closed) {
+            throw new IllegalStateException(id + " is closed.");
+        }
+
+        long start = System.nanoTime();
+        statistics.updateMeasures(1);
+        byte[] payload;
+        try {
+            payload = serialized != null ? serialized.toByteArray() : serializer.serialize(envelope);
+        } catch (JsonProcessingException e) {
+            statistics.updateFailed(1);
+            log.error("Unable to serialize envelope for client " + id, e);
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        List<Endpoint> tried = new ArrayList<>(endpoints.size());
+        SendResult last = null;
+        Endpoint endpoint;
+        while ((endpoint = select(tried)) != null) {
+            if (!tried.isEmpty()) {
+                statistics.updateFailovers(1);
+            }
+            tried.add(endpoint);
+
+            SendResult result = endpoint.post(payload, envelope.getData().size());
+            if (result.isSuccessful()) {
+                endpoint.onSuccess();
+                statistics.updateSuccessful(1);
+                return result;
+            }
+
+            if (result.getError() == null && !endpoint.isRetryable(result.getStatusCode())) {
+                // The endpoint is healthy but rejected the envelope; another replica would too
+                endpoint.onSuccess();
+                statistics.updateFailed(1);
+                return result;
+            }
+
+            endpoint.onFailure();
+            last = result;
+            log.warn("HTTP POST to " + endpoint.getHost() + " failed for client " + id
+                + (result.getError() == null ? "; status code=" + result.getStatusCode() : ": " + result.getError()));
+        }
+
+        statistics.updateFailed(1);
+        log.warn("Envelope not delivered; no healthy endpoint left for client " + id);
+        IOException error = new IOException("No healthy endpoint accepted the envelope for client " + id);
+        if (last != null && last.getError() != null) {
+            error.initCause(last.getError());
+        }
+        return SendResult.failure(error, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void checkStatus(SendResult result) {
+        if (!result.isSuccessful() && result.getError() == null) {
+            throw new RuntimeException("WARN: HTTP POST failed; status code=" + result.getStatusCode());
+        }
+    }
+
+    /**
+     * Pick the next admitted endpoint that has not been tried for this envelope.
+     * @param tried
+     * @return endpoint or null
+     */
+    private Endpoint select(List<Endpoint> tried) {
+        int size = endpoints.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        Endpoint best = null;
+
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = endpoints.get((start + i) % size);
+            if (endpoint.ejected || tried.contains(endpoint)) {
+                continue;
+            }
+            if (options.getStrategy() == LoadBalancingStrategy.ROUND_ROBIN) {
+                return endpoint;
+            }
+            if (best == null || endpoint.outstanding.get() < best.outstanding.get()) {
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Probe ejected endpoints and readmit those that answer.
+     */
+    private void probe() {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.ejected && endpoint.client.probe()) {
+                endpoint.readmit();
+            }
+        }
+    }
+
+    private void updateHealthyEndpoints() {
+        int healthy = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.ejected) {
+                healthy++;
+            }
+        }
+        statistics.updateHealthyEndpoints(healthy);
+    }
+
+    /**
+     * Wait for envelopes being sent to any endpoint to reach an outcome.
+     * @param timeout
+     * @param unit
+     * @return envelopes still being sent when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        FlushResult result = FlushResult.COMPLETE;
+        for (Endpoint endpoint : endpoints) {
+            result = result.plus(endpoint.client.flush(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        }
+        return result;
+    }
+
+    /**
+     * Flush within the timeout, then stop probing.  The endpoint clients are left open.
+     * @param timeout
+     * @param unit
+     * @return envelopes still being sent when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        FlushResult result = flush(timeout, unit);
+        closed = true;
+        prober.shutdownNow();
+        return result;
+    }
+
+    /**
+     * Stop probing.  The endpoint clients are left open.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        prober.shutdownNow();
+    }
+
+    /**
+     * Factory method for instantiating a LoadBalancingClient.
+     * @param id
+     * @param clients one HttpClient per endpoint
+     * @param options
+     * @return LoadBalancingClient
+     */
+    public static LoadBalancingClient create(String id, List<HttpClient> clients, LoadBalancingClientOptions options) {
+        return new LoadBalancingClient(id, clients, options);
+    }
+
+    /**
+     * Health and load of one endpoint.
+     */
+    private class Endpoint {
+        private final HttpClient client;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        // Guarded by this
+        private int consecutiveFailures;
+        private volatile boolean ejected;
+
+        private Endpoint(HttpClient client) {
+            this.client = client;
+        }
+
+        private String getHost() {
+            return client.getOptions().getHost();
+        }
+
+        private boolean isRetryable(int statusCode) {
+            return client.getOptions().getRetryPolicy().isRetryable(statusCode);
+        }
+
+        private SendResult post(byte[] payload, int events) {
+            long start = System.nanoTime();
+            outstanding.incrementAndGet();
+            try {
+                return client.post(payload, events);
+            } catch (IOException e) {
+                return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        }
+
+        private synchronized void onSuccess() {
+            consecutiveFailures = 0;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (!ejected && consecutiveFailures >= options.getEjectionThreshold()) {
+                ejected = true;
+                statistics.updateEjections(1);
+                updateHealthyEndpoints();
+                log.warn("Ejected endpoint " + getHost() + " from client " + id);
+            }
+        }
+
+        private synchronized void readmit() {
+            consecutiveFailures = 0;
+            ejected = false;
+            updateHealthyEndpoints();
+            log.info("Readmitted endpoint " + getHost() + " to client " + id);
+        }
+    }
+}
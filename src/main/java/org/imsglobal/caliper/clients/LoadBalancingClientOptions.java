@@ -0,0 +1,137 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Load balancing client options.  An endpoint is ejected after ejectionThreshold consecutive
+ * failures and probed every probeIntervalMillis until it answers, when it is readmitted.
+ */
+public class LoadBalancingClientOptions implements CaliperClientOptions {
+    private final LoadBalancingStrategy strategy;
+    private final int ejectionThreshold;
+    private final long probeIntervalMillis;
+
+    /**
+     * Default load balancing settings.
+     */
+    public static final LoadBalancingStrategy STRATEGY = LoadBalancingStrategy.ROUND_ROBIN;
+    public static final int EJECTION_THRESHOLD = 3;
+    public static final long PROBE_INTERVAL_MILLIS = 5000;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private LoadBalancingClientOptions(OptionsBuilder builder) {
+        checkArgument(builder.strategy != null, "strategy must be specified");
+        SensorValidator.chkPositive(builder.ejectionThreshold, "ejectionThreshold");
+        SensorValidator.chkPositive(builder.probeIntervalMillis, "probeIntervalMillis");
+
+        this.strategy = builder.strategy;
+        this.ejectionThreshold = builder.ejectionThreshold;
+        this.probeIntervalMillis = builder.probeIntervalMillis;
+    }
+
+    /**
+     * Get the strategy for picking an endpoint.
+     * @return strategy
+     */
+    public LoadBalancingStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the number of consecutive failures after which an endpoint is ejected.
+     * @return ejection threshold
+     */
+    public int getEjectionThreshold() {
+        return ejectionThreshold;
+    }
+
+    /**
+     * Get the interval between health probes of ejected endpoints.
+     * @return probe interval in milliseconds
+     */
+    public long getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting client options.
+     */
+    public static class OptionsBuilder {
+        private LoadBalancingStrategy strategy = STRATEGY;
+        private int ejectionThreshold = EJECTION_THRESHOLD;
+        private long probeIntervalMillis = PROBE_INTERVAL_MILLIS;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param strategy
+         * @return builder
+         */
+        public OptionsBuilder strategy(final LoadBalancingStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param ejectionThreshold
+         * @return builder
+         */
+        public OptionsBuilder ejectionThreshold(final int ejectionThreshold) {
+            this.ejectionThreshold = ejectionThreshold;
+            return this;
+        }
+
+        /**
+         * @param probeIntervalMillis
+         * @return builder
+         */
+        public OptionsBuilder probeIntervalMillis(final long probeIntervalMillis) {
+            this.probeIntervalMillis = probeIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of LoadBalancingClientOptions.
+         */
+        public LoadBalancingClientOptions build() {
+            return new LoadBalancingClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory client that serializes envelopes and keeps the bytes in a bounded ring instead of
+ * sending them anywhere.  It measures the cost of the sensor pipeline up to the wire, for
+ * benchmarks and capacity planning, and lets tests inspect exactly what would have been sent.
+ * Capturing is lock-free; envelopes that were already serialized for sharing are kept without
+ * being copied.
+ */
+public class LoopbackClient implements CaliperClient {
+    private final String id;
+    private final LoopbackClientOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final AtomicReferenceArray<ByteBuffer> ring;
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong bytesCaptured = new AtomicLong();
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param options
+     * @param serializer
+     */
+    private LoopbackClient(String id, LoopbackClientOptions options, CaliperSerializer serializer) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+
+        this.id = id;
+        this.options = options;
+        this.serializer = serializer;
+        this.statistics = new Statistics();
+        this.ring = new AtomicReferenceArray<>(options.getCapacity());
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    public LoopbackClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.
+     * @return statistics
+     */
+    @Nonnull
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get serializer.
+     * @return serializer
+     */
+    @Override
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Serialize the envelope and capture the bytes.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        statistics.updateMeasures(1);
+        try {
+            capture(ByteBuffer.wrap(serializer.serialize(envelope)).asReadOnlyBuffer());
+            statistics.updateSuccessful(1);
+        } catch (IOException e) {
+            statistics.updateFailed(1);
+            log.error("Unable to serialize envelope for client " + id, e);
+        }
+    }
+
+    /**
+     * Capture the bytes of an envelope that has already been serialized.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        if (envelope.getSerializer() != serializer) {
+            send(envelope.getEnvelope());
+            return;
+        }
+
+        statistics.updateMeasures(1);
+        capture(envelope.asByteBuffer());
+        statistics.updateSuccessful(1);
+    }
+
+    private void capture(ByteBuffer bytes) {
+        long sequence = captured.getAndIncrement();
+        ring.set((int) (sequence % ring.length()), bytes);
+        bytesCaptured.addAndGet(bytes.remaining());
+    }
+
+    /**
+     * Get the number of envelopes captured since the client was created, including those that
+     * have since been overwritten.
+     * @return count
+     */
+    public long getCapturedCount() {
+        return captured.get();
+    }
+
+    /**
+     * Get the total size of the envelopes captured since the client was created.
+     * @return bytes
+     */
+    public long getBytesCaptured() {
+        return bytesCaptured.get();
+    }
+
+    /**
+     * Get the envelopes still held in the ring, oldest first.  While sends are in progress the
+     * result may include envelopes captured during the call.
+     * @return read-only buffers of serialized envelopes
+     */
+    public List<ByteBuffer> getCaptured() {
+        long end = captured.get();
+        long start = Math.max(0, end - ring.length());
+
+        List<ByteBuffer> result = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            ByteBuffer bytes = ring.get((int) (sequence % ring.length()));
+            if (bytes != null) {
+                result.add(bytes.duplicate());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Factory method for instantiating a LoopbackClient.
+     * @param id
+     * @param options
+     * @return LoopbackClient
+     */
+    public static LoopbackClient create(String id, LoopbackClientOptions options) {
+        return create(id, options, CaliperSerializer.getDefault());
+    }
+
+    /**
+     * Factory method for instantiating a LoopbackClient with a custom serializer.
+     * @param id
+     * @param options
+     * @param serializer
+     * @return LoopbackClient
+     */
+    public static LoopbackClient create(String id, LoopbackClientOptions options, CaliperSerializer serializer) {
+        return new LoopbackClient(id, options, serializer);
+    }
+}
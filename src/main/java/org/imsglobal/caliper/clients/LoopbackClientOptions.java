@@ -0,0 +1,92 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+/**
+ * Loopback client options.
+ */
+public class LoopbackClientOptions implements CaliperClientOptions {
+    private final int capacity;
+
+    /**
+     * Default loopback settings.
+     */
+    public static final int CAPACITY = 1024;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private LoopbackClientOptions(OptionsBuilder builder) {
+        SensorValidator.chkPositive(builder.capacity, "capacity");
+
+        this.capacity = builder.capacity;
+    }
+
+    /**
+     * Get the number of serialized envelopes kept.  Once the ring is full each envelope
+     * replaces the oldest one.
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private int capacity = CAPACITY;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param capacity
+         * @return builder
+         */
+        public OptionsBuilder capacity(final int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public LoopbackClientOptions build() {
+            return new LoopbackClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
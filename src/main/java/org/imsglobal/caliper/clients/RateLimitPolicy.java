@@ -0,0 +1,162 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Token-bucket rate limits for POSTs to the endpoint, in events per second and request bytes per
+ * second.  Either limit may be left at zero to disable it.  Each bucket holds up to its burst of
+ * tokens, so that after an idle period that many events or bytes may be sent at once; by default
+ * the burst is one second's worth.
+ */
+public class RateLimitPolicy {
+    private final double eventsPerSecond;
+    private final double bytesPerSecond;
+    private final double eventBurst;
+    private final double byteBurst;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private RateLimitPolicy(PolicyBuilder builder) {
+        checkArgument(builder.eventsPerSecond >= 0, "eventsPerSecond must not be negative but was %s", builder.eventsPerSecond);
+        checkArgument(builder.bytesPerSecond >= 0, "bytesPerSecond must not be negative but was %s", builder.bytesPerSecond);
+        checkArgument(builder.eventsPerSecond > 0 || builder.bytesPerSecond > 0,
+            "eventsPerSecond or bytesPerSecond must be specified");
+        checkArgument(builder.eventBurst >= 0, "eventBurst must not be negative but was %s", builder.eventBurst);
+        checkArgument(builder.byteBurst >= 0, "byteBurst must not be negative but was %s", builder.byteBurst);
+
+        this.eventsPerSecond = builder.eventsPerSecond;
+        this.bytesPerSecond = builder.bytesPerSecond;
+        this.eventBurst = builder.eventBurst > 0 ? builder.eventBurst : builder.eventsPerSecond;
+        this.byteBurst = builder.byteBurst > 0 ? builder.byteBurst : builder.bytesPerSecond;
+    }
+
+    /**
+     * Get the sustained event rate.
+     * @return events per second, or 0 if events are not limited
+     */
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    /**
+     * Get the sustained request byte rate.
+     * @return bytes per second, or 0 if bytes are not limited
+     */
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Get the number of events that may be sent at once after an idle period.
+     * @return event burst
+     */
+    public double getEventBurst() {
+        return eventBurst;
+    }
+
+    /**
+     * Get the number of request bytes that may be sent at once after an idle period.
+     * @return byte burst
+     */
+    public double getByteBurst() {
+        return byteBurst;
+    }
+
+    /**
+     * Determine whether request bytes are limited.
+     * @return true if bytes are limited
+     */
+    public boolean isByteLimited() {
+        return bytesPerSecond > 0;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting policy properties.
+     */
+    public static class PolicyBuilder {
+        private double eventsPerSecond;
+        private double bytesPerSecond;
+        private double eventBurst;
+        private double byteBurst;
+
+        /**
+         * Constructor
+         */
+        public PolicyBuilder() {
+
+        }
+
+        /**
+         * @param eventsPerSecond
+         * @return builder
+         */
+        public PolicyBuilder eventsPerSecond(final double eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param bytesPerSecond
+         * @return builder
+         */
+        public PolicyBuilder bytesPerSecond(final double bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param eventBurst
+         * @return builder
+         */
+        public PolicyBuilder eventBurst(final double eventBurst) {
+            this.eventBurst = eventBurst;
+            return this;
+        }
+
+        /**
+         * @param byteBurst
+         * @return builder
+         */
+        public PolicyBuilder byteBurst(final double byteBurst) {
+            this.byteBurst = byteBurst;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of RateLimitPolicy.
+         */
+        public RateLimitPolicy build() {
+            return new RateLimitPolicy(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+}
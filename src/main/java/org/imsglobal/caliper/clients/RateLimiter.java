@@ -0,0 +1,144 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.statistics.Statistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client token buckets for events and request bytes.  Each POST reserves its events and
+ * bytes before it is sent and waits until the buckets have refilled enough to cover them.  A
+ * reservation may take a bucket below zero, so a request larger than the burst is still sent
+ * once its tokens have accrued, and requests queue behind one another in the order they
+ * reserved.  Each wait is recorded in the client's statistics as RateLimited, in milliseconds.
+ */
+public class RateLimiter {
+    private final RateLimitPolicy policy;
+    private final Statistics statistics;
+    private final Ticker ticker;
+
+    // Guarded by this
+    private double events;
+    private double bytes;
+    private long refilledAt;
+
+    /**
+     * Constructor
+     * @param policy
+     * @param statistics
+     */
+    RateLimiter(RateLimitPolicy policy, Statistics statistics) {
+        this(policy, statistics, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor that injects the time source.
+     * @param policy
+     * @param statistics
+     * @param ticker
+     */
+    RateLimiter(RateLimitPolicy policy, Statistics statistics, Ticker ticker) {
+        this.policy = policy;
+        this.statistics = statistics;
+        this.ticker = ticker;
+        this.events = policy.getEventBurst();
+        this.bytes = policy.getByteBurst();
+        this.refilledAt = ticker.read();
+    }
+
+    /**
+     * Get the policy.
+     * @return policy
+     */
+    public RateLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the event tokens currently available.  Negative while reservations are waiting.
+     * @return event tokens
+     */
+    public synchronized double getAvailableEvents() {
+        refill();
+        return events;
+    }
+
+    /**
+     * Get the byte tokens currently available.  Negative while reservations are waiting.
+     * @return byte tokens
+     */
+    public synchronized double getAvailableBytes() {
+        refill();
+        return bytes;
+    }
+
+    /**
+     * Reserve tokens for a request and wait until they have accrued.
+     * @param events
+     * @param bytes
+     * @throws InterruptedException
+     */
+    public void acquire(int events, long bytes) throws InterruptedException {
+        long waitNanos = reserve(events, bytes);
+        if (waitNanos > 0) {
+            statistics.updateRateLimited(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserve tokens for a request without waiting.
+     * @param events
+     * @param bytes
+     * @return time in nanoseconds until the reserved tokens have accrued
+     */
+    synchronized long reserve(int events, long bytes) {
+        refill();
+
+        long waitNanos = 0;
+        if (policy.getEventsPerSecond() > 0) {
+            waitNanos = Math.max(waitNanos, waitNanos(this.events, events, policy.getEventsPerSecond()));
+            this.events -= events;
+        }
+        if (policy.getBytesPerSecond() > 0) {
+            waitNanos = Math.max(waitNanos, waitNanos(this.bytes, bytes, policy.getBytesPerSecond()));
+            this.bytes -= bytes;
+        }
+        return waitNanos;
+    }
+
+    private void refill() {
+        long now = ticker.read();
+        double seconds = (now - refilledAt) / (double) TimeUnit.SECONDS.toNanos(1);
+        refilledAt = now;
+
+        events = Math.min(policy.getEventBurst(), events + seconds * policy.getEventsPerSecond());
+        bytes = Math.min(policy.getByteBurst(), bytes + seconds * policy.getBytesPerSecond());
+    }
+
+    private static long waitNanos(double available, double wanted, double perSecond) {
+        if (available >= wanted) {
+            return 0;
+        }
+        return (long) Math.ceil((wanted - available) / perSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+}
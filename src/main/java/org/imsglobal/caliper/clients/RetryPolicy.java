@@ -0,0 +1,212 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.collect.ImmutableSet;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Retry policy for POSTs that fail with an I/O error or a retryable status code.  The delay
+ * before attempt n + 1 grows exponentially from the backoff base, is capped, and is then reduced
+ * by a random fraction of up to jitter of itself, so that clients that failed together do not
+ * retry together.
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffCapMillis;
+    private final double jitter;
+    private final Set<Integer> retryableStatusCodes;
+
+    /**
+     * Default retry settings.
+     */
+    public static final int MAX_ATTEMPTS = 3;
+    public static final long BACKOFF_BASE_MILLIS = 100;
+    public static final long BACKOFF_CAP_MILLIS = 10000;
+    public static final double JITTER = 0.5;
+    public static final Set<Integer> RETRYABLE_STATUS_CODES = ImmutableSet.of(408, 429, 500, 502, 503, 504);
+
+    /**
+     * Policy that makes a single attempt.
+     */
+    public static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private RetryPolicy(PolicyBuilder builder) {
+        SensorValidator.chkPositive(builder.maxAttempts, "maxAttempts");
+        SensorValidator.chkPositive(builder.backoffBaseMillis, "backoffBaseMillis");
+        SensorValidator.chkRange(builder.backoffCapMillis, builder.backoffBaseMillis, Long.MAX_VALUE, "backoffCapMillis");
+        checkArgument(builder.jitter >= 0.0 && builder.jitter <= 1.0, "jitter must be between 0 and 1 but was %s", builder.jitter);
+        checkArgument(builder.retryableStatusCodes != null, "retryableStatusCodes must be specified");
+
+        this.maxAttempts = builder.maxAttempts;
+        this.backoffBaseMillis = builder.backoffBaseMillis;
+        this.backoffCapMillis = builder.backoffCapMillis;
+        this.jitter = builder.jitter;
+        this.retryableStatusCodes = builder.retryableStatusCodes;
+    }
+
+    /**
+     * Get the maximum number of attempts per envelope, including the first.
+     * @return max attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Get the delay before the first retry, before jitter.
+     * @return backoff base in milliseconds
+     */
+    public long getBackoffBaseMillis() {
+        return backoffBaseMillis;
+    }
+
+    /**
+     * Get the upper bound on the delay between attempts.
+     * @return backoff cap in milliseconds
+     */
+    public long getBackoffCapMillis() {
+        return backoffCapMillis;
+    }
+
+    /**
+     * Get the largest fraction by which a delay is randomly shortened.
+     * @return jitter, between 0 and 1
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Get the HTTP status codes that are worth retrying.
+     * @return status codes
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    /**
+     * Determine whether a response with the given status code should be retried.
+     * @param statusCode
+     * @return true if retryable
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryableStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Compute the delay after a failed attempt.
+     * @param attempt number of the attempt that failed, starting at 1
+     * @return delay in milliseconds
+     */
+    public long backoffMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 62);
+        long delay = backoffBaseMillis > (backoffCapMillis >> shift) ? backoffCapMillis : backoffBaseMillis << shift;
+        return delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting policy properties.
+     */
+    public static class PolicyBuilder {
+        private int maxAttempts = MAX_ATTEMPTS;
+        private long backoffBaseMillis = BACKOFF_BASE_MILLIS;
+        private long backoffCapMillis = BACKOFF_CAP_MILLIS;
+        private double jitter = JITTER;
+        private Set<Integer> retryableStatusCodes = RETRYABLE_STATUS_CODES;
+
+        /**
+         * Constructor
+         */
+        public PolicyBuilder() {
+
+        }
+
+        /**
+         * @param maxAttempts
+         * @return builder
+         */
+        public PolicyBuilder maxAttempts(final int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param backoffBaseMillis
+         * @return builder
+         */
+        public PolicyBuilder backoffBaseMillis(final long backoffBaseMillis) {
+            this.backoffBaseMillis = backoffBaseMillis;
+            return this;
+        }
+
+        /**
+         * @param backoffCapMillis
+         * @return builder
+         */
+        public PolicyBuilder backoffCapMillis(final long backoffCapMillis) {
+            this.backoffCapMillis = backoffCapMillis;
+            return this;
+        }
+
+        /**
+         * @param jitter
+         * @return builder
+         */
+        public PolicyBuilder jitter(final double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param retryableStatusCodes
+         * @return builder
+         */
+        public PolicyBuilder retryableStatusCodes(final Integer... retryableStatusCodes) {
+            this.retryableStatusCodes = ImmutableSet.copyOf(retryableStatusCodes);
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of RetryPolicy.
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+}
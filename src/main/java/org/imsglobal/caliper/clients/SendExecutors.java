@@ -0,0 +1,107 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors for running blocking Client sends, such as HttpClient's, off the caller's thread;
+ * for example as the Sensor's fan-out executor.  A platform-thread executor starts a daemon
+ * thread per concurrent send and keeps it for reuse.  On Java 21 and later a virtual-thread
+ * executor starts a virtual thread per send instead, so that tens of thousands of envelopes can
+ * wait on a slow endpoint at once without sizing a pool; HttpClient's maxInFlightRequests and
+ * maxConnections then bound how many of them reach the endpoint.  Virtual threads come from
+ * VirtualThreads, of which the multi-release JAR carries a Java 21 implementation.
+ */
+public final class SendExecutors {
+
+    /**
+     * Threads of the platform-thread executor that stands in for a virtual-thread executor on
+     * JVMs without virtual threads: as many as HttpClient lets in flight by default.
+     */
+    public static final int FALLBACK_THREADS = HttpClientOptions.MAX_IN_FLIGHT_REQUESTS;
+
+    /**
+     * Constructor.  Scope is private to prevent instantiation.
+     */
+    private SendExecutors() {
+
+    }
+
+    /**
+     * Determine whether the running JVM supports virtual threads.
+     * @return true on Java 21 and later
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Create an executor that runs each send on a pooled daemon platform thread.
+     * @param name thread name prefix
+     * @return executor
+     */
+    public static ExecutorService newPlatformThreadExecutor(String name) {
+        return Executors.newCachedThreadPool(platformThreadFactory(name));
+    }
+
+    /**
+     * Create an executor that runs each send on a virtual thread of its own.  Without virtual
+     * threads the sends run on at most FALLBACK_THREADS daemon platform threads instead, and
+     * queue for them beyond that; idle threads are released.
+     * @param name thread name prefix
+     * @return executor
+     */
+    public static ExecutorService newVirtualThreadExecutor(String name) {
+        ExecutorService virtual = VirtualThreads.newExecutor(name);
+        if (virtual != null) {
+            return virtual;
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(FALLBACK_THREADS, FALLBACK_THREADS,
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), platformThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Create a virtual-thread executor if the JVM supports virtual threads, otherwise a
+     * platform-thread executor.
+     * @param name thread name prefix
+     * @return executor
+     */
+    public static ExecutorService newSendExecutor(String name) {
+        return isVirtualThreadSupported() ? newVirtualThreadExecutor(name) : newPlatformThreadExecutor(name);
+    }
+
+    private static ThreadFactory platformThreadFactory(String name) {
+        return new ThreadFactoryBuilder()
+            .setNameFormat(name + "-%d")
+            .setDaemon(true)
+            .build();
+    }
+}
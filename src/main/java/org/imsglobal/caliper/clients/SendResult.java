@@ -0,0 +1,131 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import javax.annotation.Nullable;
+
+/**
+ * Immutable outcome of transmitting one envelope.
+ */
+public class SendResult {
+    private final boolean successful;
+    private final int statusCode;
+    private final long latencyMillis;
+    private final long bytesSent;
+    private final Throwable error;
+
+    /**
+     * Status code reported by clients that do not speak HTTP.
+     */
+    public static final int NO_STATUS = 0;
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory methods.
+     * @param successful
+     * @param statusCode
+     * @param latencyMillis
+     * @param bytesSent
+     * @param error
+     */
+    private SendResult(boolean successful, int statusCode, long latencyMillis, long bytesSent, Throwable error) {
+        this.successful = successful;
+        this.statusCode = statusCode;
+        this.latencyMillis = latencyMillis;
+        this.bytesSent = bytesSent;
+        this.error = error;
+    }
+
+    /**
+     * Whether the envelope was accepted by its target.
+     * @return successful
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * Get the HTTP status code, or NO_STATUS if none was received.
+     * @return status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the time from dispatch to outcome.
+     * @return latency in milliseconds
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Get the number of payload bytes transmitted.
+     * @return bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Get the cause of a failed transmission.
+     * @return error
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Successful : %s], [Status : %d], [Latency : %d ms], [Bytes : %d]%s",
+            successful, statusCode, latencyMillis, bytesSent, error == null ? "" : ", [Error : " + error + "]");
+    }
+
+    /**
+     * Outcome of an HTTP exchange; 200 through 202 count as successful.
+     * @param statusCode
+     * @param latencyMillis
+     * @param bytesSent
+     * @return result
+     */
+    public static SendResult http(int statusCode, long latencyMillis, long bytesSent) {
+        return new SendResult(statusCode >= 200 && statusCode <= 202, statusCode, latencyMillis, bytesSent, null);
+    }
+
+    /**
+     * Outcome of a successful transmission by a client that does not report a status code.
+     * @param latencyMillis
+     * @param bytesSent
+     * @return result
+     */
+    public static SendResult delivered(long latencyMillis, long bytesSent) {
+        return new SendResult(true, NO_STATUS, latencyMillis, bytesSent, null);
+    }
+
+    /**
+     * Outcome of a transmission that failed without a response.
+     * @param error
+     * @param latencyMillis
+     * @return result
+     */
+    public static SendResult failure(Throwable error, long latencyMillis) {
+        return new SendResult(false, NO_STATUS, latencyMillis, 0, error);
+    }
+}
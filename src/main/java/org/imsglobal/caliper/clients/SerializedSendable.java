@@ -0,0 +1,54 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.imsglobal.caliper.CaliperSendable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sendable that was serialized earlier, for example before being spilled to disk.  Its JSON is
+ * written into the envelope verbatim.
+ */
+final class SerializedSendable implements CaliperSendable {
+    private final byte[] json;
+
+    /**
+     * Constructor
+     * @param json
+     */
+    SerializedSendable(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Get the serialized size.
+     * @return bytes
+     */
+    int size() {
+        return json.length;
+    }
+
+    @JsonValue
+    RawValue toJson() {
+        return new RawValue(new String(json, StandardCharsets.UTF_8));
+    }
+}
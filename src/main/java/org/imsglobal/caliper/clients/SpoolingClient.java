@@ -0,0 +1,408 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.imsglobal.caliper.spool.Spool;
+import org.imsglobal.caliper.spool.SpoolOptions;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store-and-forward decorator for an HttpClient.  Envelopes are serialized and appended to a
+ * durable disk spool on the caller's thread; a background forwarder posts them to the endpoint in
+ * order and acknowledges each one once the endpoint has accepted it.  While the endpoint is down,
+ * envelopes accumulate on disk and the forwarder retries with the delegate's backoff; envelopes left
+ * in the spool when the client is closed, or when the process dies, are forwarded by the next
+ * client opened on the same spool directory.  The delegate should not also be registered with
+ * the Sensor.
+ */
+public class SpoolingClient implements CaliperClient, Closeable {
+    private final String id;
+    private final HttpClient delegate;
+    private final SpoolOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final Spool spool;
+    private final Thread forwarder;
+    private volatile boolean closed = false;
+
+    /**
+     * Upper bound on how long a send waits for its envelope to be forced to disk.
+     */
+    static final long AWAIT_SYNC_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Upper bound on how long the forwarder blocks before re-checking whether it has been closed.
+     */
+    private static final long TICK_MILLIS = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolingClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param id
+     * @param delegate
+     * @param options
+     * @throws IOException
+     */
+    private SpoolingClient(String id, HttpClient delegate, SpoolOptions options) throws IOException {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+
+        this.id = id;
+        this.delegate = delegate;
+        this.options = options;
+        this.serializer = delegate.getStorageSerializer();
+        this.statistics = new Statistics();
+        this.spool = Spool.open(options);
+        this.statistics.updateSpoolDepth(spool.getDepth());
+        this.forwarder = new ThreadFactoryBuilder()
+            .setNameFormat("caliper-spooling-" + id)
+            .setDaemon(true)
+            .build()
+            .newThread(new Runnable() {
+                @Override
+                public void run() {
+                    forward();
+                }
+            });
+        this.forwarder.start();
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    public SpoolOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.  Measures count spooled envelopes; Successful counts envelopes accepted by
+     * the endpoint and Failed counts envelopes that could not be spooled or were rejected with a
+     * non-retryable status.  SpoolDepth tracks the number of envelopes awaiting delivery.
+     * @return statistics
+     */
+    @Nonnull
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the client that spooled envelopes are forwarded to.
+     * @return delegate
+     */
+    public HttpClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the serializer envelopes are spooled with: the delegate's, without its describe cache.
+     * Spooled envelopes may be forwarded after the endpoint has forgotten earlier descriptions,
+     * or by another process, so they describe every entity in full.
+     * @return serializer
+     */
+    @Override
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Get the number of envelopes awaiting delivery.
+     * @return spool depth
+     */
+    public long getSpoolDepth() {
+        return spool.getDepth();
+    }
+
+    /**
+     * Append the envelope to the spool.  If the options ask for it, wait until the envelope has
+     * been forced to disk.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        append(envelope, null);
+    }
+
+    /**
+     * Append an envelope that has already been serialized to the spool.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        append(envelope.getEnvelope(), envelope.getSerializer() == serializer ? envelope : null);
+    }
+
+    /**
+     * Append the envelope to the spool as for send and report the outcome.  The envelope counts
+     * as delivered once it is in the spool, or once it has been forced to disk if the options ask
+     * for it.  Envelopes that could not be serialized or spooled are reported as unsuccessful
+     * results carrying the error, as are envelopes whose sync timed out or was interrupted; those
+     * are spooled nonetheless and may still be forwarded.
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(Envelope envelope) {
+        return append(envelope, null);
+    }
+
+    /**
+     * Append an envelope that has already been serialized to the spool and report the outcome,
+     * as for deliver(Envelope).
+     * @param envelope
+     * @return result
+     */
+    @Override
+    public SendResult deliver(SerializedEnvelope envelope) {
+        return append(envelope.getEnvelope(), envelope.getSerializer() == serializer ? envelope : null);
+    }
+
+    private SendResult append(Envelope envelope, SerializedEnvelope serialized) {
+        if (closed) {
+            throw new IllegalStateException(id + " is closed.");
+        }
+
+        long start = System.nanoTime();
+        statistics.updateMeasures(1);
+        try {
+            byte[] payload = serialized != null ? serialized.toByteArray() : serializer.serialize(envelope);
+            long position = spool.append(payload);
+            statistics.updateSpoolDepth(spool.getDepth());
+
+            if (options.isAwaitSync() && !spool.awaitSync(position, AWAIT_SYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for spool sync for client " + id);
+                return SendResult.failure(new IOException("Timed out waiting for spool sync for client " + id),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return SendResult.delivered(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), payload.length);
+        } catch (IOException e) {
+            statistics.updateFailed(1);
+            log.error("Unable to spool envelope for client " + id, e);
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SendResult.failure(e, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Append the envelope to the spool without waiting for it to be synced to disk.
+     * @param envelope
+     * @return true if the envelope was spooled
+     */
+    @Override
+    public boolean offer(Envelope envelope) {
+        if (closed) {
+            return false;
+        }
+
+        statistics.updateMeasures(1);
+        try {
+            spool.append(serializer.serialize(envelope));
+            statistics.updateSpoolDepth(spool.getDepth());
+            return true;
+        } catch (IOException e) {
+            statistics.updateFailed(1);
+            log.error("Unable to spool envelope for client " + id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Wait until the forwarder has delivered every spooled envelope or the timeout elapses.
+     * @param timeout
+     * @param unit
+     * @return envelopes still on disk when the timeout elapsed
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (spool.getDepth() > 0 && forwarder.isAlive() && deadline - System.nanoTime() > 0) {
+            TimeUnit.MILLISECONDS.sleep(TICK_MILLIS);
+        }
+        return FlushResult.remaining(0, spool.getDepth());
+    }
+
+    /**
+     * Flush within the timeout, then stop the forwarder and close the spool.  Envelopes not yet
+     * delivered remain on disk.
+     * @param timeout
+     * @param unit
+     * @return envelopes left on disk
+     * @throws InterruptedException
+     */
+    @Override
+    public FlushResult close(long timeout, TimeUnit unit) throws InterruptedException {
+        flush(timeout, unit);
+        long depth = spool.getDepth();
+        try {
+            close();
+        } catch (IOException e) {
+            log.error("Unable to close spool for client " + id, e);
+        }
+        return FlushResult.remaining(0, depth);
+    }
+
+    /**
+     * Stop the forwarder and close the spool.  Envelopes not yet delivered remain on disk.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            forwarder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spool.close();
+    }
+
+    /**
+     * Forwarder loop.  Runs until the client is closed.
+     */
+    private void forward() {
+        try {
+            while (!closed) {
+                Spool.Entry entry = spool.poll(TICK_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry != null && deliver(entry)) {
+                    spool.acknowledge(entry);
+                    statistics.updateSpoolDepth(spool.getDepth());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Post a spooled envelope until the endpoint accepts or permanently rejects it.  Attempts are
+     * unlimited; the delegate's retry policy determines which status codes are retried and the
+     * backoff between attempts.
+     * @param entry
+     * @return true if the entry is done with, false if the client closed first
+     * @throws InterruptedException
+     */
+    private boolean deliver(Spool.Entry entry) throws InterruptedException {
+        RetryPolicy policy = delegate.getOptions().getRetryPolicy();
+        int events = delegate.getRateLimiter() != null ? countEvents(entry.getPayload()) : 1;
+
+        for (int attempt = 1; !closed; attempt++) {
+            try {
+                SendResult result = delegate.post(entry.getPayload(), events);
+                if (result.isSuccessful()) {
+                    statistics.updateSuccessful(1);
+                    return true;
+                } else if (!policy.isRetryable(result.getStatusCode())) {
+                    statistics.updateFailed(1);
+                    log.error("Endpoint rejected spooled envelope for client " + id + "; status code=" + result.getStatusCode());
+                    return true;
+                }
+                log.warn("Endpoint unavailable for client " + id + "; status code=" + result.getStatusCode());
+            } catch (CircuitBreakerOpenException e) {
+                log.debug(e.getMessage());
+            } catch (IOException e) {
+                log.warn("HTTP POST failed for client " + id, e);
+            }
+
+            pause(policy.backoffMillis(attempt));
+        }
+
+        return false;
+    }
+
+    /**
+     * Count the events and entities in a spooled envelope, for rate limiting, by scanning its
+     * data array without binding it.
+     * @param payload
+     * @return number of items in the data array, or 1 if the envelope cannot be read
+     */
+    private int countEvents(byte[] payload) {
+        try (JsonParser parser = serializer.getObjectMapper().getFactory().createParser(payload)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY && "data".equals(name)) {
+                        int count = 0;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            parser.skipChildren();
+                            count++;
+                        }
+                        return count;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to count events in spooled envelope for client " + id, e);
+        }
+        return 1;
+    }
+
+    /**
+     * Sleep for the given time, waking early if the client is closed.
+     * @param millis
+     * @throws InterruptedException
+     */
+    private void pause(long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while (!closed && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS)));
+        }
+    }
+
+    /**
+     * Factory method for instantiating a SpoolingClient.  Envelopes left in the spool directory by
+     * a previous client are forwarded first.
+     * @param id
+     * @param delegate
+     * @param options
+     * @return SpoolingClient
+     * @throws IOException
+     */
+    public static SpoolingClient create(String id, HttpClient delegate, SpoolOptions options) throws IOException {
+        return new SpoolingClient(id, delegate, options);
+    }
+}
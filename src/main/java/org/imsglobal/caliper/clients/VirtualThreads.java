@@ -0,0 +1,52 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads for SendExecutors.  This is the Java 8 implementation, which has none;
+ * the multi-release JAR carries a Java 21 implementation under META-INF/versions/21.
+ */
+final class VirtualThreads {
+
+    /**
+     * Constructor.  Scope is private to prevent instantiation.
+     */
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * Determine whether the running JVM supports virtual threads.
+     * @return false
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task.
+     * @param name thread name prefix
+     * @return executor, or null if the JVM does not support virtual threads
+     */
+    static ExecutorService newExecutor(String name) {
+        return null;
+    }
+}
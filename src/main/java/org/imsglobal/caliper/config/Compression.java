@@ -0,0 +1,113 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Request body compression schemes, identified by their HTTP Content-Encoding token.
+ */
+public enum Compression {
+    NONE(null) {
+        @Override
+        public OutputStream wrap(OutputStream out, int level) {
+            return out;
+        }
+    },
+    GZIP("gzip") {
+        @Override
+        public OutputStream wrap(OutputStream out, final int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+    DEFLATE("deflate") {
+        @Override
+        public OutputStream wrap(OutputStream out, int level) {
+            // The Deflater is not owned by the stream, so it must be released on close
+            final Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String value;
+
+    /**
+     * Private constructor
+     * @param value
+     */
+    private Compression(final String value) {
+        this.value = value;
+    }
+
+    /**
+     * @return Content-Encoding token; null if the body is sent as is
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * Wrap the target stream so that bytes written to the returned stream are compressed.
+     * Closing the returned stream finishes the compressed body and closes the target.
+     * @param out
+     * @param level deflate level, 0-9, or -1 for the default
+     * @return compressing stream
+     * @throws IOException
+     */
+    public abstract OutputStream wrap(OutputStream out, int level) throws IOException;
+
+    /**
+     * Compress a payload.
+     * @param payload
+     * @param level deflate level, 0-9, or -1 for the default
+     * @return compressed payload
+     * @throws IOException
+     */
+    public byte[] compress(byte[] payload, int level) throws IOException {
+        if (this == NONE) {
+            return payload;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, payload.length / 4));
+        try (OutputStream out = wrap(buffer, level)) {
+            out.write(payload);
+        }
+        return buffer.toByteArray();
+    }
+}
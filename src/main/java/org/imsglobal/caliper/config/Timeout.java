@@ -23,6 +23,8 @@ import com.fasterxml.jackson.annotation.JsonValue;
 public enum Timeout {
     CONNECTION_REQUESTOR_TIMEOUT(10000),
     CONNECTION_TIMEOUT(10000),
+    IDLE_CONNECTION_TIMEOUT(30000),
+    KEEP_ALIVE_TIMEOUT(30000),
     SOCKET_TIMEOUT(10000);
 
     private final int value;
@@ -0,0 +1,279 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import org.imsglobal.caliper.Envelope;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Reusable, thread-safe serialization engine for Caliper envelopes, events and entities.  The
+ * ObjectMapper is configured once and its ObjectWriter is cached so that Jackson's serializer
+ * cache survives across calls; bean introspection is paid once per type rather than once per
+ * envelope.  Byte output is written to a per-thread buffer that is reset and reused.
+ *
+ * A serializer returned by withEntityDeduplication writes each entity in full only the first time
+ * its id occurs in a serialized value, typically an envelope, and as its bare id thereafter.  The
+ * actor, edApp, group, membership and session that repeat across a batch of events are then
+ * described once.  Later occurrences are coerced to their id whatever they hold, so the first
+ * occurrence of an entity should be its full description.
+ *
+ * A serializer returned by withDescribeCache carries this over from one envelope to the next: an
+ * entity whose content the cache has recorded as recently described is written as its id.  Each
+ * such serializer belongs to the one client that owns the cache.
+ *
+ * A serializer returned by withEntityCache writes hot entities, such as the edApp and course
+ * section, by copying JSON it serialized for the same entity instance earlier.
+ */
+public class CaliperSerializer {
+    private static final CaliperSerializer DEFAULT = new CaliperSerializer();
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final ObjectWriter streamWriter;
+    private final ThreadLocal<ByteArrayBuilder> buffers;
+
+    /**
+     * Constructor
+     */
+    public CaliperSerializer() {
+        this(createObjectMapper());
+    }
+
+    /**
+     * Constructor that injects a preconfigured mapper.  The mapper must not be reconfigured
+     * once handed to the serializer.
+     * @param mapper
+     */
+    public CaliperSerializer(ObjectMapper mapper) {
+        this(mapper, mapper.writer());
+    }
+
+    /**
+     * Constructor that injects the mapper and a writer derived from it.
+     * @param mapper
+     * @param writer
+     */
+    private CaliperSerializer(ObjectMapper mapper, ObjectWriter writer) {
+        this.mapper = mapper;
+        this.writer = writer;
+        this.streamWriter = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.buffers = new ThreadLocal<ByteArrayBuilder>() {
+            @Override
+            protected ByteArrayBuilder initialValue() {
+                return new ByteArrayBuilder();
+            }
+        };
+    }
+
+    /**
+     * Retrieve the shared default serializer.
+     * @return serializer
+     */
+    public static CaliperSerializer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create a Caliper-friendly ObjectMapper that writes entities and events with the serializers
+     * generated at compile time.
+     * @return ObjectMapper
+     */
+    public static ObjectMapper createObjectMapper() {
+        return createObjectMapper(true);
+    }
+
+    /**
+     * Create a Caliper-friendly ObjectMapper.  Generated serializers produce the same JSON as
+     * bean introspection, without reflection and with less warm-up.
+     * @param generatedSerializers false to write entities and events by bean introspection
+     * @return ObjectMapper
+     */
+    public static ObjectMapper createObjectMapper(boolean generatedSerializers) {
+        SimpleFilterProvider provider = new SimpleFilterProvider()
+            .setFailOnUnknownId(true);
+
+        return new ObjectMapper()
+            .setDateFormat(new ISO8601DateFormat())
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .setFilterProvider(provider)
+            .registerModules(new JodaModule(), new JxnCoercibleSimpleModule(generatedSerializers));
+    }
+
+    /**
+     * Create a serializer that shares this serializer's mapper, and so its serializer cache, but
+     * writes each entity in full only once per serialized value and as its id thereafter.
+     * @return serializer
+     */
+    public CaliperSerializer withEntityDeduplication() {
+        return new CaliperSerializer(mapper, writer.withAttribute(JxnCoercibleSerializer.DEDUPLICATE_ENTITIES, Boolean.TRUE));
+    }
+
+    /**
+     * Create a serializer that shares this serializer's mapper but writes an entity as its id when
+     * the describe cache records that the same content was recently described, and in full
+     * otherwise.  Full descriptions are recorded only when serialized with an envelope's
+     * DescribeCache.Descriptions, which are committed to the cache once the envelope is delivered.
+     * @param cache
+     * @return serializer
+     */
+    public CaliperSerializer withDescribeCache(DescribeCache cache) {
+        return new CaliperSerializer(mapper, writer.withAttribute(JxnCoercibleSerializer.DESCRIBE_CACHE, cache));
+    }
+
+    /**
+     * Get the describe cache consulted by this serializer.
+     * @return describe cache, or null if entities are described in every envelope
+     */
+    public DescribeCache getDescribeCache() {
+        return (DescribeCache) writer.getAttributes().getAttribute(JxnCoercibleSerializer.DESCRIBE_CACHE);
+    }
+
+    /**
+     * Create a serializer that shares this serializer's mapper but copies the JSON of entities
+     * the entity cache accepts from the cache, serializing each entity instance once.  The cache
+     * is bypassed while entities are de-duplicated or described once.
+     * @param cache
+     * @return serializer
+     */
+    public CaliperSerializer withEntityCache(EntityCache cache) {
+        return new CaliperSerializer(mapper, writer.withAttribute(JxnCoercibleSerializer.ENTITY_CACHE, cache));
+    }
+
+    /**
+     * Get the entity cache used by this serializer.
+     * @return entity cache, or null if every entity is serialized by reflection
+     */
+    public EntityCache getEntityCache() {
+        return (EntityCache) writer.getAttributes().getAttribute(JxnCoercibleSerializer.ENTITY_CACHE);
+    }
+
+    /**
+     * Determine whether repeated entities are written as their id.
+     * @return true if entities are de-duplicated
+     */
+    public boolean isDeduplicatingEntities() {
+        return Boolean.TRUE.equals(writer.getAttributes().getAttribute(JxnCoercibleSerializer.DEDUPLICATE_ENTITIES));
+    }
+
+    /**
+     * Get the underlying mapper.
+     * @return mapper
+     */
+    public ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    /**
+     * Get the cached writer.
+     * @return writer
+     */
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Serialize value to a JSON string.
+     * @param value
+     * @return String
+     * @throws JsonProcessingException
+     */
+    public String serializeToString(Object value) throws JsonProcessingException {
+        return writer.writeValueAsString(value);
+    }
+
+    /**
+     * Serialize value to UTF-8 encoded JSON bytes using the calling thread's pooled buffer.
+     * @param value
+     * @return bytes
+     * @throws JsonProcessingException
+     */
+    public byte[] serialize(Object value) throws JsonProcessingException {
+        ByteArrayBuilder buffer = buffers.get();
+        buffer.reset();
+        try {
+            writer.writeValue(buffer, value);
+            return buffer.toByteArray();
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Serialize value to UTF-8 encoded JSON bytes, collecting the entities described in full in
+     * the descriptions.  Commit the descriptions once the bytes have been delivered.
+     * @param value
+     * @param descriptions from this serializer's describe cache
+     * @return bytes
+     * @throws JsonProcessingException
+     */
+    public byte[] serialize(Object value, DescribeCache.Descriptions descriptions) throws JsonProcessingException {
+        if (descriptions.getCache() != getDescribeCache()) {
+            throw new IllegalArgumentException("Descriptions belong to another describe cache.");
+        }
+
+        ByteArrayBuilder buffer = buffers.get();
+        buffer.reset();
+        try {
+            writer.withAttribute(JxnCoercibleSerializer.DESCRIPTIONS, descriptions).writeValue(buffer, value);
+            return buffer.toByteArray();
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Serialize an envelope once for sharing across clients that use this serializer.
+     * @param envelope
+     * @return serialized envelope
+     * @throws JsonProcessingException
+     */
+    public SerializedEnvelope serializeEnvelope(Envelope envelope) throws JsonProcessingException {
+        return new SerializedEnvelope(envelope, this, serialize(envelope));
+    }
+
+    /**
+     * Serialize value as UTF-8 encoded JSON to the provided stream.  The stream is not closed.
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    public void serialize(Object value, OutputStream out) throws IOException {
+        streamWriter.writeValue(out, value);
+    }
+}
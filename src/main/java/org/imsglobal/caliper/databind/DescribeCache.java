@@ -0,0 +1,211 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.imsglobal.caliper.statistics.Statistics;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which entities a client has recently described in full, as a bounded, least recently
+ * used set of entity ids paired with a hash of the content described.  An id may be paired with
+ * more than one hash, so that a full description and a sparse reference carrying the same id,
+ * such as an event's group and a membership's organization, do not displace one another.
+ * Entries expire a fixed time after the content was last described; a reference does not extend
+ * them, so that an endpoint that has forgotten an entity is told about it again.
+ *
+ * A serializer with a describe cache writes an entity as its id when the cache holds the same
+ * content for it; see CaliperSerializer.withDescribeCache.  The full descriptions written while
+ * serializing an envelope are collected in the envelope's Descriptions and enter the cache only
+ * once the envelope has been delivered, so that no envelope refers to a description still in
+ * flight or never received.  Each description entering the cache is recorded in the Describes
+ * statistic.
+ */
+public class DescribeCache {
+    private final Cache<String, Boolean> described;
+    private final Statistics statistics;
+    private final AtomicLong references = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param maxEntities
+     * @param ttlMillis
+     * @param statistics
+     */
+    public DescribeCache(long maxEntities, long ttlMillis, Statistics statistics) {
+        this(maxEntities, ttlMillis, statistics, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor that injects the time source.
+     * @param maxEntities
+     * @param ttlMillis
+     * @param statistics
+     * @param ticker
+     */
+    public DescribeCache(long maxEntities, long ttlMillis, Statistics statistics, Ticker ticker) {
+        this.described = CacheBuilder.newBuilder()
+            .maximumSize(maxEntities)
+            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+            .ticker(ticker)
+            .build();
+        this.statistics = statistics;
+    }
+
+    /**
+     * Get the number of entity descriptions currently remembered.
+     * @return size
+     */
+    public long size() {
+        return described.size();
+    }
+
+    /**
+     * Get the number of entities that were written as their id because they had been described.
+     * @return references
+     */
+    public long getReferences() {
+        return references.get();
+    }
+
+    /**
+     * Determine whether the entity has been described with the given content, counting a
+     * reference if it has.
+     * @param id
+     * @param hash content hash
+     * @return true if the entity can be written as its id
+     */
+    public boolean isDescribed(String id, long hash) {
+        if (described.getIfPresent(key(id, hash)) != null) {
+            references.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record that the entity has been written in full and delivered.
+     * @param id
+     * @param hash content hash
+     */
+    public void describe(String id, long hash) {
+        described.put(key(id, hash), Boolean.TRUE);
+        statistics.updateDescribes(1);
+    }
+
+    /**
+     * Start collecting the descriptions written into one envelope.
+     * @return descriptions
+     */
+    public Descriptions newDescriptions() {
+        return new Descriptions();
+    }
+
+    /**
+     * Pair an entity id with a content hash.
+     * @param id
+     * @param hash
+     * @return key
+     */
+    private static String key(String id, long hash) {
+        return Long.toHexString(hash) + ' ' + id;
+    }
+
+    /**
+     * Forget every description, for example after the endpoint has lost its state.
+     */
+    public void invalidateAll() {
+        described.invalidateAll();
+    }
+
+    /**
+     * The full descriptions written into one envelope.  Within the envelope an entity described
+     * once is written as its id thereafter; the descriptions enter the cache on commit, once the
+     * envelope has been delivered, and are dropped if it never is.  Not thread-safe: an instance
+     * belongs to the thread serializing its envelope.
+     */
+    public class Descriptions {
+        private final Set<String> pending = new HashSet<>();
+
+        /**
+         * Constructor.  Scope is private to force use of newDescriptions.
+         */
+        private Descriptions() {
+
+        }
+
+        /**
+         * Get the cache the descriptions are committed to.
+         * @return describe cache
+         */
+        public DescribeCache getCache() {
+            return DescribeCache.this;
+        }
+
+        /**
+         * Determine whether the entity has been described with the given content, either earlier
+         * in this envelope or in a delivered one, counting a reference if it has.
+         * @param id
+         * @param hash content hash
+         * @return true if the entity can be written as its id
+         */
+        public boolean isDescribed(String id, long hash) {
+            if (pending.contains(key(id, hash))) {
+                references.incrementAndGet();
+                return true;
+            }
+            return DescribeCache.this.isDescribed(id, hash);
+        }
+
+        /**
+         * Record that the entity has been written in full into this envelope.
+         * @param id
+         * @param hash content hash
+         */
+        public void describe(String id, long hash) {
+            pending.add(key(id, hash));
+        }
+
+        /**
+         * Get the number of entities described in full in this envelope.
+         * @return size
+         */
+        public int size() {
+            return pending.size();
+        }
+
+        /**
+         * Enter the descriptions into the cache once the envelope has been delivered.
+         */
+        public void commit() {
+            for (String key : pending) {
+                described.put(key, Boolean.TRUE);
+                statistics.updateDescribes(1);
+            }
+            pending.clear();
+        }
+    }
+}
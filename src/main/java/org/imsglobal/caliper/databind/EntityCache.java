@@ -0,0 +1,128 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import org.imsglobal.caliper.entities.CaliperCoercible;
+import org.imsglobal.caliper.entities.agent.CourseOffering;
+import org.imsglobal.caliper.entities.agent.CourseSection;
+import org.imsglobal.caliper.entities.agent.Membership;
+import org.imsglobal.caliper.entities.agent.SoftwareApplication;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the serialized JSON of hot entities, such as the edApp, course section and membership
+ * attached to almost every event, so that they are written with a raw-value copy of their UTF-8
+ * bytes instead of by reflection.  Entities are looked up by identity, and only entities of the
+ * configured types are cached; like the entities built by this library, they must not change
+ * once serialized.  The cache holds at most maxEntities entities, evicting the least recently
+ * used first, and does not keep an entity from being garbage collected.  Hits and misses are
+ * counted.  A serializer uses the cache once it is given it with CaliperSerializer.withEntityCache.
+ */
+public class EntityCache {
+    private final Cache<Object, SerializedString> rendered;
+    private final Set<Class<?>> types;
+
+    /**
+     * Default cache settings.
+     */
+    public static final long MAX_ENTITIES = 1000;
+    public static final Set<Class<?>> HOT_TYPES = ImmutableSet.<Class<?>>of(
+        SoftwareApplication.class, CourseOffering.class, CourseSection.class, Membership.class);
+
+    /**
+     * Constructor that caches the default hot types.
+     * @param maxEntities
+     */
+    public EntityCache(long maxEntities) {
+        this(maxEntities, HOT_TYPES);
+    }
+
+    /**
+     * Constructor
+     * @param maxEntities
+     * @param types entity classes to cache; subclasses are not included
+     */
+    public EntityCache(long maxEntities, Set<Class<?>> types) {
+        this.rendered = CacheBuilder.newBuilder()
+            .maximumSize(maxEntities)
+            .weakKeys()
+            .recordStats()
+            .build();
+        this.types = ImmutableSet.copyOf(types);
+    }
+
+    /**
+     * Get the number of entities whose JSON is cached.
+     * @return size
+     */
+    public long size() {
+        return rendered.size();
+    }
+
+    /**
+     * Get the number of entities written from the cache.
+     * @return hits
+     */
+    public long getHitCount() {
+        return rendered.stats().hitCount();
+    }
+
+    /**
+     * Get the number of entities serialized and added to the cache.
+     * @return misses
+     */
+    public long getMissCount() {
+        return rendered.stats().missCount();
+    }
+
+    /**
+     * Determine whether entities of the value's class are cached.
+     * @param value
+     * @return true if cacheable
+     */
+    boolean accepts(CaliperCoercible value) {
+        return types.contains(value.getClass());
+    }
+
+    /**
+     * Get the entity's serialized JSON, rendering and caching it if absent.
+     * @param value
+     * @param renderer
+     * @return JSON with its UTF-8 encoding computed
+     * @throws ExecutionException if the renderer fails
+     */
+    SerializedString get(CaliperCoercible value, Callable<SerializedString> renderer) throws ExecutionException {
+        return rendered.get(value, renderer);
+    }
+
+    /**
+     * Discard every cached entity.
+     */
+    public void invalidateAll() {
+        rendered.invalidateAll();
+    }
+}
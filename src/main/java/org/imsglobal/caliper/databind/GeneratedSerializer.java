@@ -0,0 +1,170 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Base class of the serializers that SerializerProcessor generates at compile time for every
+ * concrete Caliper entity and event.  A generated serializer reads each property through its
+ * getter and writes it under a pre-encoded field name, in the order and with the inclusion rules
+ * that Jackson's bean serializer applies under CaliperSerializer's mapper settings: null and
+ * empty values are omitted, and so are default primitives annotated NON_DEFAULT.  Strings and
+ * primitives are written directly; any other value is written with the serializer the provider
+ * finds for its runtime class, which is remembered per property as Jackson's own bean properties
+ * do.
+ * @param <T> entity or event type
+ */
+public abstract class GeneratedSerializer<T> extends StdSerializer<T> {
+
+    /**
+     * Constructor
+     * @param type
+     */
+    protected GeneratedSerializer(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public final void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(value);
+        serializeProperties(value, generator, provider);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the properties of value, but not the enclosing braces.
+     * @param value
+     * @param generator
+     * @param provider
+     * @throws IOException
+     */
+    protected abstract void serializeProperties(T value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException;
+
+    /**
+     * A property with its pre-encoded name.  Instances belong to one serializer, and so to one
+     * mapper, since they remember the serializers found for the property's values.
+     */
+    public static final class Property {
+        private final SerializedString name;
+        private PropertySerializerMap serializers = PropertySerializerMap.emptyForProperties();
+
+        /**
+         * Constructor
+         * @param name
+         */
+        public Property(String name) {
+            this.name = new SerializedString(name);
+        }
+
+        /**
+         * Write a string value unless it is null or empty.
+         * @param value
+         * @param generator
+         * @throws IOException
+         */
+        public void writeString(String value, JsonGenerator generator) throws IOException {
+            if (value != null && !value.isEmpty()) {
+                generator.writeFieldName(name);
+                generator.writeString(value);
+            }
+        }
+
+        /**
+         * Write an int value.
+         * @param value
+         * @param generator
+         * @throws IOException
+         */
+        public void writeNumber(int value, JsonGenerator generator) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+
+        /**
+         * Write a long value.
+         * @param value
+         * @param generator
+         * @throws IOException
+         */
+        public void writeNumber(long value, JsonGenerator generator) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+
+        /**
+         * Write a double value.
+         * @param value
+         * @param generator
+         * @throws IOException
+         */
+        public void writeNumber(double value, JsonGenerator generator) throws IOException {
+            generator.writeFieldName(name);
+            JxnDoubleWriter.write(value, generator);
+        }
+
+        /**
+         * Write a boolean value.
+         * @param value
+         * @param generator
+         * @throws IOException
+         */
+        public void writeBoolean(boolean value, JsonGenerator generator) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeBoolean(value);
+        }
+
+        /**
+         * Write any other value with the serializer for its runtime class, unless it is null or
+         * the serializer considers it empty.
+         * @param value
+         * @param generator
+         * @param provider
+         * @throws IOException
+         */
+        public void writeObject(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (value == null) {
+                return;
+            }
+
+            Class<?> type = value.getClass();
+            JsonSerializer<Object> serializer = serializers.serializerFor(type);
+            if (serializer == null) {
+                PropertySerializerMap.SerializerAndMapResult result =
+                    serializers.findAndAddSecondarySerializer(type, provider, null);
+                serializers = result.map;
+                serializer = result.serializer;
+            }
+
+            if (!serializer.isEmpty(provider, value)) {
+                generator.writeFieldName(name);
+                serializer.serialize(value, generator, provider);
+            }
+        }
+    }
+}
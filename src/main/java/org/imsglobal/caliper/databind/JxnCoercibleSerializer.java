@@ -18,17 +18,79 @@
 
 package org.imsglobal.caliper.databind;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.imsglobal.caliper.entities.CaliperCoercible;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Writes a CaliperCoercible as its bare id when it is coerced to its id, and otherwise with its
+ * default serializer.  When the writer carries the DEDUPLICATE_ENTITIES attribute, an entity is
+ * also written as its id if an entity with the same id has already been written in full by the
+ * same call; the ids seen are kept as a per-call attribute, so each envelope starts afresh.
+ *
+ * When the writer carries a DescribeCache under the DESCRIBE_CACHE attribute, the entity is first
+ * written, children included, to a token buffer and hashed.  It is then written as its id if the
+ * cache holds the same hash for it, and otherwise in full.  If the call also carries the
+ * envelope's DescribeCache.Descriptions under the DESCRIPTIONS attribute, full descriptions are
+ * collected there, to be committed to the cache once the envelope is delivered, and entities
+ * described earlier in the same envelope are written as their id.  Without it nothing is recorded.
+ *
+ * Otherwise, when the writer carries an EntityCache under the ENTITY_CACHE attribute, an entity
+ * of a cached type is written by copying its serialized JSON from the cache as a raw value.
+ */
 public class JxnCoercibleSerializer extends JsonSerializer<CaliperCoercible> {
     private JsonSerializer<Object> defaultSerializer;
 
+    /**
+     * Writer attribute that turns on entity de-duplication when set to Boolean.TRUE.
+     */
+    public static final String DEDUPLICATE_ENTITIES = "caliper.deduplicateEntities";
+
+    /**
+     * Writer attribute holding the DescribeCache shared by every envelope a client sends.
+     */
+    public static final String DESCRIBE_CACHE = "caliper.describeCache";
+
+    /**
+     * Writer attribute holding the DescribeCache.Descriptions of the envelope being serialized.
+     */
+    public static final String DESCRIPTIONS = "caliper.descriptions";
+
+    /**
+     * Writer attribute holding the EntityCache of pre-serialized hot entities.
+     */
+    public static final String ENTITY_CACHE = "caliper.entityCache";
+
+    /**
+     * Per-call attribute that is set while an entity is written out for hashing.
+     */
+    private static final String HASHING = "caliper.hashingEntity";
+
+    /**
+     * Per-call attribute holding the ids of the entities written in full so far.
+     */
+    private static final String WRITTEN_IDS = "caliper.writtenEntityIds";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
     /**
      * Constructor
      */
@@ -52,8 +114,135 @@ public class JxnCoercibleSerializer extends JsonSerializer<CaliperCoercible> {
 
         if (value.isCoercedToId()) {
             jgen.writeString(value.getId());
+            return;
+        }
+
+        DescribeCache cache = (DescribeCache) provider.getAttribute(DESCRIBE_CACHE);
+        if (cache == null || value.getId() == null || Boolean.TRUE.equals(provider.getAttribute(HASHING))) {
+            if (cache == null && isWritten(value, provider)) {
+                jgen.writeString(value.getId());
+            } else {
+                writeInFull(value, jgen, provider);
+            }
+            return;
+        }
+
+        long hash = hash(value, jgen, provider);
+        DescribeCache.Descriptions descriptions = (DescribeCache.Descriptions) provider.getAttribute(DESCRIPTIONS);
+        if (descriptions != null ? descriptions.isDescribed(value.getId(), hash) : cache.isDescribed(value.getId(), hash)) {
+            jgen.writeString(value.getId());
         } else {
             defaultSerializer.serialize(value, jgen, provider);
+            if (descriptions != null) {
+                descriptions.describe(value.getId(), hash);
+            }
+        }
+    }
+
+    /**
+     * Write the entity in full, copying its JSON from the entity cache if the writer has one
+     * that accepts it.  The cached JSON describes nested entities in full, so it is not used
+     * while entities are de-duplicated or described once.
+     * @param value
+     * @param jgen
+     * @param provider
+     * @throws IOException
+     */
+    private void writeInFull(final CaliperCoercible value, final JsonGenerator jgen, final SerializerProvider provider)
+        throws IOException {
+        EntityCache entities = (EntityCache) provider.getAttribute(ENTITY_CACHE);
+        if (entities == null || !entities.accepts(value) || provider.getAttribute(DESCRIBE_CACHE) != null
+            || Boolean.TRUE.equals(provider.getAttribute(DEDUPLICATE_ENTITIES))) {
+            defaultSerializer.serialize(value, jgen, provider);
+            return;
+        }
+
+        try {
+            jgen.writeRawValue(entities.get(value, new Callable<SerializedString>() {
+                @Override
+                public SerializedString call() throws IOException {
+                    return render(value, jgen, provider);
+                }
+            }));
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Serialize the entity to JSON with the generator's factory, encoding it to UTF-8 up front so
+     * that every later copy is a plain byte copy.
+     * @param value
+     * @param jgen
+     * @param provider
+     * @return JSON
+     * @throws IOException
+     */
+    private SerializedString render(CaliperCoercible value, JsonGenerator jgen, SerializerProvider provider)
+        throws IOException {
+        ObjectCodec codec = jgen.getCodec();
+        JsonFactory factory = codec != null ? codec.getFactory() : FACTORY;
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            defaultSerializer.serialize(value, generator, provider);
+        }
+
+        SerializedString json = new SerializedString(out.toString());
+        json.asUnquotedUTF8();
+        return json;
+    }
+
+    /**
+     * Hash the entity's full content.  Nested entities are written in full while hashing, so
+     * that the hash does not depend on what the cache holds for them.
+     * @param value
+     * @param jgen
+     * @param provider
+     * @return content hash
+     * @throws IOException
+     */
+    private long hash(CaliperCoercible value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(jgen.getCodec(), false);
+        provider.setAttribute(HASHING, Boolean.TRUE);
+        try {
+            defaultSerializer.serialize(value, buffer, provider);
+        } finally {
+            provider.setAttribute(HASHING, Boolean.FALSE);
+        }
+
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        try (JsonParser parser = buffer.asParser()) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                hasher.putInt(token.ordinal());
+                String text = parser.getText();
+                if (text != null) {
+                    hasher.putUnencodedChars(text);
+                }
+            }
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Determine whether an entity with the value's id has already been written in full by the
+     * current call, recording the id if it has not.  Always false unless de-duplication is on.
+     * @param value
+     * @param provider
+     * @return true if the value should be written as its id
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean isWritten(CaliperCoercible value, SerializerProvider provider) {
+        if (value.getId() == null || !Boolean.TRUE.equals(provider.getAttribute(DEDUPLICATE_ENTITIES))) {
+            return false;
+        }
+
+        Set<String> written = (Set<String>) provider.getAttribute(WRITTEN_IDS);
+        if (written == null) {
+            written = new HashSet<>();
+            provider.setAttribute(WRITTEN_IDS, written);
         }
+        return !written.add(value.getId());
     }
 }
\ No newline at end of file
@@ -21,9 +21,30 @@ package org.imsglobal.caliper.databind;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
 public class JxnCoercibleSimpleModule extends SimpleModule {
+    private final boolean generatedSerializers;
+
+    /**
+     * Constructor
+     */
+    public JxnCoercibleSimpleModule() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param generatedSerializers whether entities and events are written by the serializers
+     *                             generated at compile time rather than by bean introspection
+     */
+    public JxnCoercibleSimpleModule(boolean generatedSerializers) {
+        this.generatedSerializers = generatedSerializers;
+    }
+
     @Override
     public void setupModule(SetupContext context) {
         super.setupModule(context);
+        if (generatedSerializers) {
+            context.addSerializers(new JxnGeneratedSerializers());
+        }
         context.addBeanSerializerModifier(new JxnCoercibleSerializerModifier());
     }
-}
\ No newline at end of file
+}
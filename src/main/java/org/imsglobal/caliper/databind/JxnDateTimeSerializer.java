@@ -0,0 +1,152 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.joda.ser.DateTimeSerializer;
+import org.joda.time.DateTime;
+import org.joda.time.chrono.ISOChronology;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * Writes a DateTime as the same ISO 8601 UTC timestamp as the Joda module's DateTimeSerializer,
+ * for example 2016-11-15T10:15:00.000Z, but computes the fields from the instant's milliseconds
+ * into a per-thread character buffer instead of printing through a Joda formatter to a String.
+ * Anything the fast path does not cover is handed to the Joda serializer: a mapper or writer that
+ * writes dates as timestamps or with zone ids or in a time zone other than UTC, a property with a
+ * @JsonFormat, a chronology other than ISO, and years outside 0000 to 9999.
+ */
+public class JxnDateTimeSerializer extends StdSerializer<DateTime> implements ContextualSerializer {
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int LENGTH = 24;
+
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[LENGTH];
+        }
+    };
+
+    private final DateTimeSerializer delegate;
+
+    /**
+     * Constructor
+     */
+    public JxnDateTimeSerializer() {
+        super(DateTime.class);
+        this.delegate = new DateTimeSerializer();
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+        throws JsonMappingException {
+        JsonSerializer<?> contextual = delegate.createContextual(provider, property);
+        return contextual == delegate ? this : contextual;
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, DateTime value) {
+        return delegate.isEmpty(provider, value);
+    }
+
+    @Override
+    public void serialize(DateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                || provider.isEnabled(SerializationFeature.WRITE_DATES_WITH_ZONE_ID)
+                || !isUtc(provider.getTimeZone())
+                || !(value.getChronology() instanceof ISOChronology)) {
+            delegate.serialize(value, generator, provider);
+            return;
+        }
+
+        char[] buffer = BUFFERS.get();
+        if (format(value.getMillis(), buffer)) {
+            generator.writeString(buffer, 0, LENGTH);
+        } else {
+            delegate.serialize(value, generator, provider);
+        }
+    }
+
+    private static boolean isUtc(TimeZone zone) {
+        return zone != null && "UTC".equals(zone.getID());
+    }
+
+    /**
+     * Format an instant as yyyy-MM-ddTHH:mm:ss.SSSZ in the proleptic Gregorian calendar.
+     * @param millis
+     * @param buffer
+     * @return false if the year does not have four digits
+     */
+    static boolean format(long millis, char[] buffer) {
+        long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+        // Days to civil date, counting eras of 400 years from 0000-03-01
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097L);
+        int dayOfEra = (int) (shifted - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return false;
+        }
+
+        int hour = millisOfDay / 3600000;
+        int minute = millisOfDay / 60000 % 60;
+        int second = millisOfDay / 1000 % 60;
+        int millisOfSecond = millisOfDay % 1000;
+
+        digits((int) year, 4, buffer, 0);
+        buffer[4] = '-';
+        digits(month, 2, buffer, 5);
+        buffer[7] = '-';
+        digits(day, 2, buffer, 8);
+        buffer[10] = 'T';
+        digits(hour, 2, buffer, 11);
+        buffer[13] = ':';
+        digits(minute, 2, buffer, 14);
+        buffer[16] = ':';
+        digits(second, 2, buffer, 17);
+        buffer[19] = '.';
+        digits(millisOfSecond, 3, buffer, 20);
+        buffer[23] = 'Z';
+        return true;
+    }
+
+    private static void digits(int value, int width, char[] buffer, int offset) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
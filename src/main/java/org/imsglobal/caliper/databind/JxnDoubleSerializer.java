@@ -33,16 +33,21 @@ import java.text.DecimalFormat;
  * by annotating the target property's accessor using @JsonSerialize annotation.
  */
 public class JxnDoubleSerializer extends JsonSerializer<Double> {
+    // Pattern syntax: "0" = always displayed; "#" = a digit, leading zeroes omitted; "." = decimal separator
+    private static final ThreadLocal<DecimalFormat> FORMATTERS = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+            return new DecimalFormat("##0.0#");
+        }
+    };
+
     @Override
     public void serialize(Double value, JsonGenerator jgen, SerializerProvider provider)
                                             throws IOException, JsonGenerationException {
         if (Double.isNaN(value / value)) {
             jgen.writeNull();
         } else {
-            // Pattern syntax: "0" = always displayed; "#" = a digit, leading zeroes omitted; "." = decimal separator
-            final String pattern = "##0.0#";
-            final DecimalFormat formatter = new DecimalFormat(pattern);
-            final String output = formatter.format(value);
+            final String output = FORMATTERS.get().format(value);
 
             jgen.writeNumber(output);
         }
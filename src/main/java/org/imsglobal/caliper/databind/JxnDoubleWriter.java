@@ -0,0 +1,124 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+
+import java.io.IOException;
+
+/**
+ * Writes double values, such as scores, directly into a JSON generator's buffer.  Jackson prints
+ * a double through Double.toString, which allocates a String for every value.  Caliper values are
+ * nearly always short decimals like 15.0 or 0.85, so values between 0.001 and 10^7 that are exact
+ * to at most three decimal places are printed here from their digits into a per-thread buffer,
+ * producing the same text as Double.toString.  Every other value is left to the generator.
+ */
+public final class JxnDoubleWriter {
+    private static final int MAX_SCALE = 3;
+    private static final double[] POWERS = {1.0, 10.0, 100.0, 1000.0};
+    private static final long[] LONG_POWERS = {1L, 10L, 100L, 1000L};
+
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[24];
+        }
+    };
+
+    /**
+     * Constructor
+     */
+    private JxnDoubleWriter() {
+
+    }
+
+    /**
+     * Write a double value as a JSON number.
+     * @param value
+     * @param generator
+     * @throws IOException
+     */
+    public static void write(double value, JsonGenerator generator) throws IOException {
+        if (generator instanceof JsonGeneratorImpl
+                && !generator.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)) {
+            char[] buffer = BUFFERS.get();
+            int length = format(value, buffer);
+            if (length > 0) {
+                generator.writeRawValue(buffer, 0, length);
+                return;
+            }
+        }
+        generator.writeNumber(value);
+    }
+
+    /**
+     * Print a double value as Double.toString would, if it is zero or a decimal between 0.001 and
+     * 10^7 with at most three decimal places.
+     * @param value
+     * @param buffer at least 24 characters
+     * @return number of characters written, or 0 if the value is not covered
+     */
+    static int format(double value, char[] buffer) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude == 0.0 || (magnitude >= 1e-3 && magnitude < 1e7))) {
+            return 0;
+        }
+
+        int scale = 0;
+        long digits = Math.round(magnitude);
+        while ((double) digits / POWERS[scale] != magnitude) {
+            if (++scale > MAX_SCALE) {
+                return 0;
+            }
+            digits = Math.round(magnitude * POWERS[scale]);
+        }
+
+        int position = 0;
+        if (Double.doubleToRawLongBits(value) < 0) {
+            buffer[position++] = '-';
+        }
+        position = appendDigits(digits / LONG_POWERS[scale], buffer, position);
+        buffer[position++] = '.';
+        if (scale == 0) {
+            buffer[position++] = '0';
+        } else {
+            long fraction = digits % LONG_POWERS[scale];
+            for (int i = position + scale - 1; i >= position; i--) {
+                buffer[i] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            position += scale;
+        }
+        return position;
+    }
+
+    private static int appendDigits(long value, char[] buffer, int position) {
+        int length = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            length++;
+        }
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + length;
+    }
+}
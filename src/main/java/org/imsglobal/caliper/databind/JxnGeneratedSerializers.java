@@ -0,0 +1,60 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import org.imsglobal.caliper.databind.generated.GeneratedSerializers;
+import org.joda.time.DateTime;
+
+/**
+ * Supplies the serializers generated at compile time for Caliper entities and events, so that
+ * Jackson neither introspects their properties nor builds bean serializers for them.  Bean
+ * serializer modifiers still apply, so coercible entities are wrapped in a JxnCoercibleSerializer
+ * as before.  Generated serializers bake in the property order and inclusion rules of
+ * CaliperSerializer's mapper, so they are only supplied to mappers configured the same way.
+ * DateTime values are written by a JxnDateTimeSerializer, which falls back to the Joda module's
+ * serializer whenever the mapper's date settings differ from CaliperSerializer's.
+ */
+public class JxnGeneratedSerializers extends Serializers.Base {
+
+    @Override
+    public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription desc) {
+        if (type.getRawClass() == DateTime.class) {
+            return new JxnDateTimeSerializer();
+        }
+        if (!isCompatible(config, type.getRawClass())) {
+            return null;
+        }
+        return GeneratedSerializers.create(type.getRawClass());
+    }
+
+    private static boolean isCompatible(SerializationConfig config, Class<?> type) {
+        return config.getDefaultPropertyInclusion().getValueInclusion() == JsonInclude.Include.NON_EMPTY
+            && config.getPropertyNamingStrategy() == null
+            && !config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            && config.findMixInClassFor(type) == null;
+    }
+}
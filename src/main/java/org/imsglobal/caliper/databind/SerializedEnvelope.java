@@ -0,0 +1,107 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.databind;
+
+import org.apache.http.HttpEntity;
+import org.imsglobal.caliper.Envelope;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An envelope together with its JSON, serialized once by a particular serializer so that every
+ * client using that serializer can send the same bytes.  The bytes are never exposed mutably;
+ * readers get read-only views, copies or request entities, so an instance may be shared freely across threads.
+ */
+public final class SerializedEnvelope {
+    private final Envelope envelope;
+    private final CaliperSerializer serializer;
+    private final byte[] json;
+
+    /**
+     * Constructor.  Scope is package-private; instances are created by CaliperSerializer.
+     * @param envelope
+     * @param serializer
+     * @param json
+     */
+    SerializedEnvelope(Envelope envelope, CaliperSerializer serializer, byte[] json) {
+        this.envelope = envelope;
+        this.serializer = serializer;
+        this.json = json;
+    }
+
+    /**
+     * Get the envelope that was serialized.
+     * @return envelope
+     */
+    public Envelope getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Get the serializer that produced the JSON.
+     * @return serializer
+     */
+    public CaliperSerializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Get the size of the JSON.
+     * @return bytes
+     */
+    public int size() {
+        return json.length;
+    }
+
+    /**
+     * Get a read-only view of the JSON.
+     * @return buffer positioned at the start of the JSON
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(json).asReadOnlyBuffer();
+    }
+
+    /**
+     * Open a stream over the JSON.
+     * @return stream
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(json);
+    }
+
+    /**
+     * Get an uncompressed application/json request entity over the JSON.  The entity writes
+     * the shared bytes without copying them.
+     * @return entity
+     */
+    public HttpEntity asEntity() {
+        return new SerializedEnvelopeEntity(json);
+    }
+
+    /**
+     * Copy the JSON.
+     * @return bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(json, json.length);
+    }
+}
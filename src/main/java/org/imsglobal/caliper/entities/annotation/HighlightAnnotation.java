@@ -49,6 +49,14 @@ public class HighlightAnnotation extends Annotation {
         return selection;
     }
 
+    /**
+     * @return the selection text
+     */
+    @Nullable
+    public String getSelectionText() {
+        return selectionText;
+    }
+
     /**
      * Builder class provides a fluid interface for setting object properties.
      * @param <T> builder.
@@ -20,6 +20,7 @@ package org.imsglobal.caliper.entities.resource;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import org.imsglobal.caliper.entities.EntityType;
 import org.joda.time.DateTime;
 
@@ -29,6 +30,7 @@ import javax.annotation.Nullable;
  * This class provides a skeletal implementation of the Assignable interface
  * in order to minimize the effort required to implement the interface.
  */
+@JsonPropertyOrder({"dateToActivate", "dateToShow", "dateToStartOn", "dateToSubmit", "maxAttempts", "maxSubmits", "maxScore"})
 public abstract class AbstractAssignableDigitalResource extends AbstractDigitalResource implements CaliperAssignable {
 
     @JsonIgnore
@@ -21,6 +21,7 @@ package org.imsglobal.caliper.entities.resource;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import org.imsglobal.caliper.entities.AbstractEntity;
 import org.imsglobal.caliper.entities.EntityType;
 import org.imsglobal.caliper.entities.CaliperGeneratable;
@@ -35,6 +36,7 @@ import javax.annotation.Nullable;
  * Representation of an Attempt. Attempts are generated as part of or
  * are the object of an interaction represented by an AssignableEvent.
  */
+@JsonPropertyOrder({"startedAtTime", "endedAtTime", "duration"})
 public class Attempt extends AbstractEntity implements CaliperGeneratable {
 
     @JsonProperty("assignable")
@@ -35,6 +35,13 @@ public class Frame extends DigitalResource {
         this.index = builder.index;
     }
 
+    /**
+     * @return the index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * Builder class provides a fluid interface for setting object properties.
      * @param <T> builder.
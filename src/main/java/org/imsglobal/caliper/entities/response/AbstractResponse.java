@@ -20,6 +20,7 @@ package org.imsglobal.caliper.entities.response;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import org.imsglobal.caliper.entities.AbstractEntity;
 import org.imsglobal.caliper.entities.EntityType;
 import org.imsglobal.caliper.entities.TimePeriod;
@@ -34,6 +35,7 @@ import javax.annotation.Nullable;
  * This class provides a skeletal implementation of the Response interface
  * in order to minimize the effort required to implement the interface.
  */
+@JsonPropertyOrder({"startedAtTime", "endedAtTime", "duration"})
 public class AbstractResponse extends AbstractEntity implements CaliperResponse {
 
     @JsonProperty("attempt")
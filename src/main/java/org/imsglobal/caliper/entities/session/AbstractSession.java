@@ -20,6 +20,7 @@ package org.imsglobal.caliper.entities.session;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import org.imsglobal.caliper.entities.AbstractEntity;
 import org.imsglobal.caliper.entities.EntityType;
 import org.imsglobal.caliper.entities.TimePeriod;
@@ -33,6 +34,7 @@ import javax.annotation.Nullable;
  * This class provides a skeletal implementation of the Session interface
  * in order to minimize the effort required to implement the interface.
  */
+@JsonPropertyOrder({"startedAtTime", "endedAtTime", "duration"})
 public abstract class AbstractSession extends AbstractEntity implements CaliperSession {
 
     @JsonProperty("user")
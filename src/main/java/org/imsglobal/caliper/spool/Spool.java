@@ -0,0 +1,523 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Durable, append-only log of opaque records, stored in a directory of memory-mapped segment
+ * files.  Producers append from any thread; a single consumer polls records in append order and
+ * acknowledges them once they have been delivered.  Segments whose records have all been
+ * acknowledged are deleted.  The acknowledged position is kept in a checkpoint file, so that on
+ * reopening the spool the consumer resumes with the first unacknowledged record.  Delivery is
+ * at-least-once: a record that was delivered but not yet acknowledged is replayed.
+ *
+ * Writes to a mapped segment survive a crash of the JVM as soon as they are made.  A background
+ * syncer forces them to disk at the configured interval (group commit), so that one fsync covers
+ * every record appended since the previous one.
+ */
+public class Spool implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "lock";
+
+    private final SpoolOptions options;
+    private final File directory;
+    private final RandomAccessFile lockFile;
+    private final FileLock fileLock;
+    private final MappedByteBuffer checkpoint;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition syncRequested = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final Object syncMonitor = new Object();
+
+    // Guarded by lock
+    private final NavigableMap<Long, SpoolSegment> segments = new TreeMap<>();
+    private final List<SpoolSegment> unsynced = new ArrayList<>();
+    private SpoolSegment head;
+    private long appendedPosition;
+    private long syncedPosition;
+    private int syncWaiters;
+
+    // Consumer state; only touched by the consuming thread
+    private SpoolSegment readSegment;
+    private int readOffset;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final Thread syncer;
+    private volatile boolean closed = false;
+
+    private static final Logger log = LoggerFactory.getLogger(Spool.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param options
+     * @throws IOException
+     */
+    private Spool(SpoolOptions options) throws IOException {
+        this.options = options;
+        this.directory = options.getDirectory();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create spool directory " + directory);
+        }
+
+        this.lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        this.fileLock = tryLock(lockFile);
+        if (fileLock == null) {
+            lockFile.close();
+            throw new IOException("Spool directory " + directory + " is in use by another spool");
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(new File(directory, CHECKPOINT_FILE), "rw")) {
+            this.checkpoint = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 8);
+        }
+
+        recover();
+
+        this.syncer = new ThreadFactoryBuilder()
+            .setNameFormat("caliper-spool-sync-" + directory.getName())
+            .setDaemon(true)
+            .build()
+            .newThread(new Runnable() {
+                @Override
+                public void run() {
+                    syncLoop();
+                }
+            });
+        this.syncer.start();
+    }
+
+    private static FileLock tryLock(RandomAccessFile file) throws IOException {
+        try {
+            return file.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Map the existing segments, drop those that were fully acknowledged and position the
+     * consumer on the first unacknowledged record.
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        long acknowledged = checkpoint.getLong(0);
+        long ackSegment = segmentOf(acknowledged);
+        int ackOffset = offsetOf(acknowledged);
+
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+
+        long lastId = ackSegment;
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            lastId = Math.max(lastId, id);
+            if (id < ackSegment) {
+                delete(file);
+            } else {
+                segments.put(id, SpoolSegment.open(file, id));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(lastId + 1, createSegment(lastId + 1, options.getSegmentBytes()));
+        }
+
+        for (SpoolSegment segment : segments.headMap(segments.lastKey()).values()) {
+            segment.seal();
+        }
+        head = segments.lastEntry().getValue();
+        appendedPosition = position(head.getId(), head.getLimit());
+        syncedPosition = appendedPosition;
+
+        readSegment = segments.firstEntry().getValue();
+        readOffset = readSegment.getId() == ackSegment ? Math.min(ackOffset, readSegment.getLimit()) : 0;
+
+        long records = readSegment.count(readOffset);
+        for (SpoolSegment segment : segments.tailMap(readSegment.getId(), false).values()) {
+            records += segment.count(0);
+        }
+        depth.set(records);
+
+        if (records > 0) {
+            log.info("Recovered " + records + " unacknowledged records from spool " + directory);
+        }
+    }
+
+    /**
+     * Append a record.  The record is visible to the consumer on return and is forced to disk by
+     * the next group commit.
+     * @param payload
+     * @return position just past the record, for use with awaitSync
+     * @throws IOException
+     */
+    public long append(byte[] payload) throws IOException {
+        checkArgument(payload.length > 0, "Spool records must not be empty");
+        int crc = SpoolSegment.checksum(payload);
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Spool " + directory + " is closed");
+            }
+
+            int needed = SpoolSegment.HEADER_BYTES + payload.length;
+            if (head.remaining() < needed) {
+                roll(needed);
+            }
+
+            head.append(payload, crc);
+            appendedPosition = position(head.getId(), head.getLimit());
+            depth.incrementAndGet();
+            appended.signal();
+
+            return appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Seal the head segment and start a new one.  Caller must hold the lock.
+     * @param needed bytes required by the record being appended
+     * @throws IOException
+     */
+    private void roll(int needed) throws IOException {
+        long id = head.getId() + 1;
+        SpoolSegment next = createSegment(id, Math.max(options.getSegmentBytes(), needed));
+
+        head.seal();
+        unsynced.add(head);
+        segments.put(id, next);
+        head = next;
+    }
+
+    private SpoolSegment createSegment(long id, int size) throws IOException {
+        return SpoolSegment.create(new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)), id, size);
+    }
+
+    /**
+     * Wait until every record up to the position has been forced to disk.
+     * @param position returned by append
+     * @param timeout
+     * @param unit
+     * @return true if synced, false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitSync(long position, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            syncWaiters++;
+            try {
+                syncRequested.signal();
+                while (syncedPosition < position) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = synced.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                syncWaiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Force every appended record and the checkpoint to disk.
+     */
+    public void sync() {
+        synchronized (syncMonitor) {
+            long target;
+            List<SpoolSegment> toForce;
+
+            lock.lock();
+            try {
+                target = appendedPosition;
+                toForce = new ArrayList<>(unsynced);
+                toForce.add(head);
+                unsynced.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            for (SpoolSegment segment : toForce) {
+                segment.force();
+            }
+            checkpoint.force();
+            syncs.incrementAndGet();
+
+            lock.lock();
+            try {
+                syncedPosition = Math.max(syncedPosition, target);
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Syncer loop.  Commits at the configured interval, or straight away once a producer is
+     * waiting and the previous commit has finished, so that concurrent waiters share one fsync.
+     */
+    private void syncLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getSyncIntervalMillis());
+
+        while (!closed) {
+            lock.lock();
+            try {
+                long nanos = intervalNanos;
+                while (!closed && nanos > 0 && !(syncWaiters > 0 && appendedPosition > syncedPosition)) {
+                    nanos = syncRequested.awaitNanos(nanos);
+                }
+                if (appendedPosition == syncedPosition && unsynced.isEmpty()) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                log.error("Spool sync failed for " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Take the next unconsumed record, waiting up to the timeout for one to be appended.  Must
+     * only be called from a single consuming thread.
+     * @param timeout
+     * @param unit
+     * @return entry or null
+     * @throws InterruptedException
+     */
+    public Entry poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        SpoolSegment segment;
+        int offset;
+
+        lock.lockInterruptibly();
+        try {
+            while (readOffset >= readSegment.getLimit()) {
+                if (readSegment.isSealed()) {
+                    readSegment = segments.higherEntry(readSegment.getId()).getValue();
+                    readOffset = 0;
+                } else if (closed || nanos <= 0) {
+                    return null;
+                } else {
+                    nanos = appended.awaitNanos(nanos);
+                }
+            }
+            segment = readSegment;
+            offset = readOffset;
+        } finally {
+            lock.unlock();
+        }
+
+        byte[] payload = segment.read(offset);
+        if (payload == null) {
+            throw new IllegalStateException("Corrupt record at offset " + offset + " of " + segment.getFile());
+        }
+        readOffset = offset + SpoolSegment.HEADER_BYTES + payload.length;
+
+        return new Entry(segment.getId(), readOffset, payload);
+    }
+
+    /**
+     * Acknowledge a polled record and every record before it.  Segments that hold only
+     * acknowledged records are deleted.
+     * @param entry
+     */
+    public void acknowledge(Entry entry) {
+        checkpoint.putLong(0, position(entry.segmentId, entry.end));
+        depth.decrementAndGet();
+
+        lock.lock();
+        try {
+            while (segments.size() > 1) {
+                Map.Entry<Long, SpoolSegment> first = segments.firstEntry();
+                SpoolSegment segment = first.getValue();
+                boolean consumed = segment.getId() < entry.segmentId
+                    || (segment.getId() == entry.segmentId && segment.isSealed() && entry.end >= segment.getLimit());
+                if (!consumed) {
+                    break;
+                }
+                segments.remove(first.getKey());
+                unsynced.remove(segment);
+                delete(segment.getFile());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            log.warn("Unable to delete spool segment " + file);
+        }
+    }
+
+    /**
+     * Get the number of records appended but not yet acknowledged.
+     * @return depth
+     */
+    public long getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Get the number of group commits performed.
+     * @return syncs
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * Get the number of segment files.
+     * @return segments
+     */
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the syncer, force everything to disk and release the directory.  Unacknowledged
+     * records are replayed when the spool is next opened.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            syncRequested.signalAll();
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        sync();
+        fileLock.release();
+        lockFile.close();
+    }
+
+    private static long position(long segmentId, int offset) {
+        return (segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * A polled record.
+     */
+    public static final class Entry {
+        private final long segmentId;
+        private final int end;
+        private final byte[] payload;
+
+        private Entry(long segmentId, int end, byte[] payload) {
+            this.segmentId = segmentId;
+            this.end = end;
+            this.payload = payload;
+        }
+
+        /**
+         * Get the record payload.
+         * @return payload
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * Factory method for opening a spool, replaying any records left unacknowledged by a
+     * previous instance.
+     * @param options
+     * @return Spool
+     * @throws IOException
+     */
+    public static Spool open(SpoolOptions options) throws IOException {
+        return new Spool(options);
+    }
+}
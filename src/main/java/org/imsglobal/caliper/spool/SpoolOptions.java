@@ -0,0 +1,162 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.io.File;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Spool options.  Appended records reach the page cache immediately and are forced to disk by a
+ * background syncer at most syncIntervalMillis later; one fsync covers every record appended
+ * since the previous one.  With awaitSync enabled, each send also waits for the fsync covering
+ * its record.
+ */
+public class SpoolOptions implements CaliperClientOptions {
+    private final File directory;
+    private final int segmentBytes;
+    private final long syncIntervalMillis;
+    private final boolean awaitSync;
+
+    /**
+     * Default spool settings.
+     */
+    public static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    public static final long SYNC_INTERVAL_MILLIS = 10;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private SpoolOptions(OptionsBuilder builder) {
+        checkArgument(builder.directory != null, "Spool directory must be specified.");
+        SensorValidator.chkPositive(builder.segmentBytes, "segmentBytes");
+        SensorValidator.chkPositive(builder.syncIntervalMillis, "syncIntervalMillis");
+
+        this.directory = builder.directory;
+        this.segmentBytes = builder.segmentBytes;
+        this.syncIntervalMillis = builder.syncIntervalMillis;
+        this.awaitSync = builder.awaitSync;
+    }
+
+    /**
+     * Get the directory holding the segment files.
+     * @return directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the size of each memory-mapped segment file.  A record larger than this gets a
+     * segment of its own.
+     * @return segment bytes
+     */
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Get the maximum time between a record being appended and being forced to disk.
+     * @return sync interval in milliseconds
+     */
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    /**
+     * Determine whether sends wait for their record to be forced to disk.
+     * @return true if sends await the group commit
+     */
+    public boolean isAwaitSync() {
+        return awaitSync;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private File directory;
+        private int segmentBytes = SEGMENT_BYTES;
+        private long syncIntervalMillis = SYNC_INTERVAL_MILLIS;
+        private boolean awaitSync = false;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param directory
+         * @return builder
+         */
+        public OptionsBuilder directory(final File directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param segmentBytes
+         * @return builder
+         */
+        public OptionsBuilder segmentBytes(final int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * @param syncIntervalMillis
+         * @return builder
+         */
+        public OptionsBuilder syncIntervalMillis(final long syncIntervalMillis) {
+            this.syncIntervalMillis = syncIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @param awaitSync
+         * @return builder
+         */
+        public OptionsBuilder awaitSync(final boolean awaitSync) {
+            this.awaitSync = awaitSync;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public SpoolOptions build() {
+            return new SpoolOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped segment file.  Records are laid out back to back as a four byte length, a
+ * four byte CRC32 of the payload and the payload itself.  The file is pre-allocated, so the
+ * zero-filled remainder marks the end of the log; a torn or corrupt record is detected by its
+ * checksum and treated as the end as well.
+ *
+ * The limit is the offset just past the last complete record.  It is only advanced by the
+ * Spool while holding its lock.
+ *
+ * Buffers are duplicated and positioned through their ByteBuffer and Buffer supertypes, so that
+ * the calls bind to methods that exist on Java 8 rather than to the covariant overrides that
+ * later JDKs add to ByteBuffer and MappedByteBuffer.
+ */
+final class SpoolSegment {
+    static final int HEADER_BYTES = 8;
+
+    private final long id;
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer writer;
+    private volatile int limit;
+    private volatile boolean sealed;
+
+    /**
+     * Constructor
+     * @param id
+     * @param file
+     * @param buffer
+     */
+    private SpoolSegment(long id, File file, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+        this.writer = ((ByteBuffer) buffer).duplicate();
+    }
+
+    long getId() {
+        return id;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * Get the number of bytes left for records.
+     * @return remaining bytes
+     */
+    int remaining() {
+        return buffer.capacity() - limit;
+    }
+
+    /**
+     * Append a record at the limit.  The caller must have checked the remaining space.
+     * @param payload
+     * @param crc
+     */
+    void append(byte[] payload, int crc) {
+        ((Buffer) writer).position(limit);
+        writer.putInt(payload.length);
+        writer.putInt(crc);
+        writer.put(payload);
+        limit = writer.position();
+    }
+
+    /**
+     * Read the payload of the record at an offset.
+     * @param offset
+     * @return payload, or null if no valid record starts at the offset
+     */
+    byte[] read(int offset) {
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - HEADER_BYTES) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        ByteBuffer reader = ((ByteBuffer) buffer).duplicate();
+        ((Buffer) reader).position(offset + HEADER_BYTES);
+        reader.get(payload);
+
+        return checksum(payload) == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    /**
+     * Count the records between an offset and the limit.
+     * @param offset
+     * @return records
+     */
+    int count(int offset) {
+        int records = 0;
+        while (offset < limit) {
+            offset += HEADER_BYTES + buffer.getInt(offset);
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Mark the segment as complete; no further records are appended.
+     */
+    void seal() {
+        sealed = true;
+    }
+
+    /**
+     * Force the mapped pages to disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Create and map a new, zero-filled segment file.
+     * @param file
+     * @param id
+     * @param size
+     * @return segment
+     * @throws IOException
+     */
+    static SpoolSegment create(File file, long id, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            return new SpoolSegment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Map an existing segment file and scan it for the end of its last complete record.
+     * @param file
+     * @param id
+     * @return segment
+     * @throws IOException
+     */
+    static SpoolSegment open(File file, long id) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            SpoolSegment segment = new SpoolSegment(id, file,
+                raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+
+            int offset = 0;
+            byte[] payload;
+            while ((payload = segment.read(offset)) != null) {
+                offset += HEADER_BYTES + payload.length;
+            }
+            segment.limit = offset;
+
+            return segment;
+        }
+    }
+
+    /**
+     * Compute the checksum stored with a payload.
+     * @param payload
+     * @return crc
+     */
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -29,6 +29,29 @@ public class Statistics extends StatisticsMap {
     private static String SUCCESSFUL_KEY = "Successful";
     private static String FAILED_KEY = "Failed";
 
+    private static String DROPPED_BLOCKED_KEY = "DroppedBlocked";
+    private static String DROPPED_NEWEST_KEY = "DroppedNewest";
+    private static String DROPPED_OLDEST_KEY = "DroppedOldest";
+    private static String DROPPED_SPILL_KEY = "DroppedSpill";
+    private static String SPILLED_KEY = "Spilled";
+
+    private static String SPOOL_DEPTH_KEY = "SpoolDepth";
+    private static String ROTATION_KEY = "Rotation";
+
+    private static String RETRY_KEY = "Retry";
+    private static String CIRCUIT_STATE_KEY = "CircuitState";
+    private static String CIRCUIT_OPENED_KEY = "CircuitOpened";
+    private static String CIRCUIT_REJECTED_KEY = "CircuitRejected";
+
+    private static String LATENCY_KEY = "Latency";
+    private static String CONCURRENCY_LIMIT_KEY = "ConcurrencyLimit";
+    private static String BATCH_LIMIT_KEY = "BatchLimit";
+    private static String RATE_LIMITED_KEY = "RateLimited";
+
+    private static String FAILOVER_KEY = "Failover";
+    private static String EJECTION_KEY = "Ejection";
+    private static String HEALTHY_ENDPOINTS_KEY = "HealthyEndpoints";
+
     public Statistic getDescribes() {
         return ensure(DESCRIBE_KEY);
     }
@@ -60,4 +83,148 @@ public class Statistics extends StatisticsMap {
     public void updateFailed(double val) {
         update(FAILED_KEY, val);
     }
-}
\ No newline at end of file
+
+    public Statistic getDroppedBlocked() {
+        return ensure(DROPPED_BLOCKED_KEY);
+    }
+
+    public void updateDroppedBlocked(double val) {
+        update(DROPPED_BLOCKED_KEY, val);
+    }
+
+    public Statistic getDroppedNewest() {
+        return ensure(DROPPED_NEWEST_KEY);
+    }
+
+    public void updateDroppedNewest(double val) {
+        update(DROPPED_NEWEST_KEY, val);
+    }
+
+    public Statistic getDroppedOldest() {
+        return ensure(DROPPED_OLDEST_KEY);
+    }
+
+    public void updateDroppedOldest(double val) {
+        update(DROPPED_OLDEST_KEY, val);
+    }
+
+    public Statistic getDroppedSpill() {
+        return ensure(DROPPED_SPILL_KEY);
+    }
+
+    public void updateDroppedSpill(double val) {
+        update(DROPPED_SPILL_KEY, val);
+    }
+
+    public Statistic getSpilled() {
+        return ensure(SPILLED_KEY);
+    }
+
+    public void updateSpilled(double val) {
+        update(SPILLED_KEY, val);
+    }
+
+    public Statistic getSpoolDepth() {
+        return ensure(SPOOL_DEPTH_KEY);
+    }
+
+    public void updateSpoolDepth(double val) {
+        update(SPOOL_DEPTH_KEY, val);
+    }
+
+    public Statistic getRotations() {
+        return ensure(ROTATION_KEY);
+    }
+
+    public void updateRotations(double val) {
+        update(ROTATION_KEY, val);
+    }
+
+    public Statistic getRetries() {
+        return ensure(RETRY_KEY);
+    }
+
+    public void updateRetries(double val) {
+        update(RETRY_KEY, val);
+    }
+
+    public Statistic getCircuitState() {
+        return ensure(CIRCUIT_STATE_KEY);
+    }
+
+    public void updateCircuitState(double val) {
+        update(CIRCUIT_STATE_KEY, val);
+    }
+
+    public Statistic getCircuitOpened() {
+        return ensure(CIRCUIT_OPENED_KEY);
+    }
+
+    public void updateCircuitOpened(double val) {
+        update(CIRCUIT_OPENED_KEY, val);
+    }
+
+    public Statistic getCircuitRejected() {
+        return ensure(CIRCUIT_REJECTED_KEY);
+    }
+
+    public void updateCircuitRejected(double val) {
+        update(CIRCUIT_REJECTED_KEY, val);
+    }
+
+    public Statistic getLatency() {
+        return ensure(LATENCY_KEY);
+    }
+
+    public void updateLatency(double val) {
+        update(LATENCY_KEY, val);
+    }
+
+    public Statistic getConcurrencyLimit() {
+        return ensure(CONCURRENCY_LIMIT_KEY);
+    }
+
+    public void updateConcurrencyLimit(double val) {
+        update(CONCURRENCY_LIMIT_KEY, val);
+    }
+
+    public Statistic getBatchLimit() {
+        return ensure(BATCH_LIMIT_KEY);
+    }
+
+    public void updateBatchLimit(double val) {
+        update(BATCH_LIMIT_KEY, val);
+    }
+
+    public Statistic getRateLimited() {
+        return ensure(RATE_LIMITED_KEY);
+    }
+
+    public void updateRateLimited(double val) {
+        update(RATE_LIMITED_KEY, val);
+    }
+
+    public Statistic getFailovers() {
+        return ensure(FAILOVER_KEY);
+    }
+
+    public void updateFailovers(double val) {
+        update(FAILOVER_KEY, val);
+    }
+
+    public Statistic getEjections() {
+        return ensure(EJECTION_KEY);
+    }
+
+    public void updateEjections(double val) {
+        update(EJECTION_KEY, val);
+    }
+
+    public Statistic getHealthyEndpoints() {
+        return ensure(HEALTHY_ENDPOINTS_KEY);
+    }
+
+    public void updateHealthyEndpoints(double val) {
+        update(HEALTHY_ENDPOINTS_KEY, val);
+    }
+}
@@ -61,6 +61,30 @@ public class SensorValidator {
         checkArgument(options != null, "Sensor client configuration options must be specified.");
     }
 
+    /**
+     * Check that a numeric option is greater than zero.
+     *
+     * @param value
+     * @param name
+     * @throws IllegalArgumentException
+     */
+    public static void chkPositive(long value, String name) throws IllegalArgumentException {
+        checkArgument(value > 0, "%s must be greater than zero but was %s", name, value);
+    }
+
+    /**
+     * Check that a numeric option lies within an inclusive range.
+     *
+     * @param value
+     * @param min
+     * @param max
+     * @param name
+     * @throws IllegalArgumentException
+     */
+    public static void chkRange(long value, long min, long max, String name) throws IllegalArgumentException {
+        checkArgument(value >= min && value <= max, "%s must be between %s and %s but was %s", name, min, max, value);
+    }
+
     /**
      * Check if Sensor identifier is null or empty.
      *
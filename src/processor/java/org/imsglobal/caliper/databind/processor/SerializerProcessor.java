@@ -0,0 +1,581 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a GeneratedSerializer for every concrete Caliper entity and event, together with the
+ * GeneratedSerializers registry that creates them by type.  Properties are collected from the
+ * @JsonProperty fields and the public getters of the class and its superclasses, and ordered as
+ * Jackson's bean introspection orders them: properties named only by their accessors first, then
+ * those given an explicit name, each group in field declaration order, unless @JsonPropertyOrder
+ * says otherwise.  Jackson orders properties that have no field by reflection, which is not
+ * stable across JVMs, so a type may have at most one such property that @JsonPropertyOrder does
+ * not place.
+ *
+ * Only the annotations the library uses are understood: @JsonProperty, @JsonIgnore,
+ * @JsonIgnoreProperties, @JsonPropertyOrder and @JsonInclude with NON_EMPTY or, on primitives,
+ * NON_DEFAULT.  Any other Jackson annotation on a serialized type fails the build, as does a
+ * property that cannot be read through a public getter.
+ */
+@SupportedAnnotationTypes("com.fasterxml.jackson.annotation.JsonProperty")
+public class SerializerProcessor extends AbstractProcessor {
+    private static final String ENTITY = "org.imsglobal.caliper.entities.CaliperEntity";
+    private static final String EVENT = "org.imsglobal.caliper.events.CaliperEvent";
+    private static final String PACKAGE = "org.imsglobal.caliper.databind.generated";
+    private static final String REGISTRY = "GeneratedSerializers";
+
+    private static final String JACKSON = "com.fasterxml.jackson.";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final String JSON_INCLUDE = "com.fasterxml.jackson.annotation.JsonInclude";
+    private static final String JSON_IGNORE_PROPERTIES = "com.fasterxml.jackson.annotation.JsonIgnoreProperties";
+    private static final String JSON_PROPERTY_ORDER = "com.fasterxml.jackson.annotation.JsonPropertyOrder";
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (generated || round.processingOver()) {
+            return false;
+        }
+
+        TypeElement entity = processingEnv.getElementUtils().getTypeElement(ENTITY);
+        TypeElement event = processingEnv.getElementUtils().getTypeElement(EVENT);
+        if (entity == null || event == null) {
+            return false;
+        }
+
+        List<TypeElement> types = new ArrayList<>();
+        for (TypeElement type : ElementFilter.typesIn(round.getRootElements())) {
+            if (type.getKind() == ElementKind.CLASS
+                    && type.getModifiers().contains(Modifier.PUBLIC)
+                    && !type.getModifiers().contains(Modifier.ABSTRACT)
+                    && (isSubtype(type, entity) || isSubtype(type, event))) {
+                types.add(type);
+            }
+        }
+        if (types.isEmpty()) {
+            return false;
+        }
+        Collections.sort(types, new Comparator<TypeElement>() {
+            @Override
+            public int compare(TypeElement a, TypeElement b) {
+                return a.getQualifiedName().toString().compareTo(b.getQualifiedName().toString());
+            }
+        });
+
+        Map<String, TypeElement> names = new HashMap<>();
+        Map<TypeElement, List<Property>> properties = new LinkedHashMap<>();
+        for (TypeElement type : types) {
+            TypeElement clash = names.put(serializerName(type), type);
+            if (clash != null) {
+                error(type, "serializer name clashes with " + clash.getQualifiedName());
+                continue;
+            }
+            List<Property> collected = collect(type);
+            if (collected != null) {
+                properties.put(type, collected);
+            }
+        }
+
+        generated = true;
+        if (properties.size() < types.size()) {
+            return false;
+        }
+
+        try {
+            for (Map.Entry<TypeElement, List<Property>> entry : properties.entrySet()) {
+                writeSerializer(entry.getKey(), entry.getValue());
+            }
+            writeRegistry(types);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "cannot write serializers: " + e);
+        }
+        return false;
+    }
+
+    /**
+     * A serialized property and the accessors it was collected from.
+     */
+    private static class Property {
+        private final String implicitName;
+        private String explicitName;
+        private VariableElement field;
+        private ExecutableElement getter;
+        private boolean visible;
+        private boolean ignored;
+        private boolean nonDefault;
+
+        private Property(String implicitName) {
+            this.implicitName = implicitName;
+        }
+
+        private String getName() {
+            return explicitName != null ? explicitName : implicitName;
+        }
+    }
+
+    private List<Property> collect(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement t = type; t != null && !t.getQualifiedName().contentEquals("java.lang.Object"); t = superclass(t)) {
+            hierarchy.add(0, t);
+        }
+
+        boolean valid = true;
+        Map<String, Property> properties = new LinkedHashMap<>();
+
+        for (TypeElement t : hierarchy) {
+            valid &= checkTypeAnnotations(t);
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                Property property = property(properties, field.getSimpleName().toString());
+                property.field = field;
+                property.visible |= field.getModifiers().contains(Modifier.PUBLIC);
+                valid &= annotate(property, field);
+            }
+        }
+
+        for (TypeElement t : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(t.getEnclosedElements())) {
+                String name = getterName(method);
+                if (name == null) {
+                    continue;
+                }
+                Property property = property(properties, name);
+                property.getter = method;
+                property.visible |= method.getModifiers().contains(Modifier.PUBLIC);
+                valid &= annotate(property, method);
+            }
+        }
+
+        Set<String> ignoredNames = ignoredNames(type);
+        List<Property> named = new ArrayList<>();
+        List<Property> renamed = new ArrayList<>();
+        for (Property property : properties.values()) {
+            if (!property.visible || (property.ignored && property.explicitName == null)
+                    || ignoredNames.contains(property.getName())) {
+                continue;
+            }
+            if (property.getter == null || !property.getter.getModifiers().contains(Modifier.PUBLIC)) {
+                error(property.field, "property " + property.getName() + " of " + type.getQualifiedName()
+                    + " needs a public getter to be serialized without reflection");
+                valid = false;
+                continue;
+            }
+            if (property.explicitName != null) {
+                renamed.add(property);
+            } else {
+                named.add(property);
+            }
+        }
+        named.addAll(renamed);
+
+        List<Property> ordered = new ArrayList<>();
+        for (String name : propertyOrder(type)) {
+            for (Iterator<Property> it = named.iterator(); it.hasNext(); ) {
+                Property property = it.next();
+                if (property.getName().equals(name) || property.implicitName.equals(name)) {
+                    ordered.add(property);
+                    it.remove();
+                    break;
+                }
+            }
+        }
+
+        List<String> unordered = new ArrayList<>();
+        for (Property property : named) {
+            if (property.field == null) {
+                unordered.add(property.getName());
+            }
+        }
+        if (unordered.size() > 1) {
+            error(type, "properties " + unordered + " of " + type.getQualifiedName()
+                + " have no field, so Jackson orders them by reflection; list them in @JsonPropertyOrder");
+            valid = false;
+        }
+
+        ordered.addAll(named);
+        return valid ? ordered : null;
+    }
+
+    private static Property property(Map<String, Property> properties, String implicitName) {
+        Property property = properties.get(implicitName);
+        if (property == null) {
+            property = new Property(implicitName);
+            properties.put(implicitName, property);
+        }
+        return property;
+    }
+
+    /**
+     * Apply the annotations of a field or getter to its property.
+     */
+    private boolean annotate(Property property, Element accessor) {
+        boolean valid = true;
+        for (AnnotationMirror annotation : accessor.getAnnotationMirrors()) {
+            String name = annotationName(annotation);
+            if (name.equals(JSON_PROPERTY)) {
+                String value = (String) value(annotation, "value");
+                property.explicitName = value == null || value.isEmpty() ? property.implicitName : value;
+                property.visible = true;
+            } else if (name.equals(JSON_IGNORE)) {
+                Object value = value(annotation, "value");
+                property.ignored |= value == null || Boolean.TRUE.equals(value);
+            } else if (name.equals(JSON_INCLUDE)) {
+                Object value = value(annotation, "value");
+                String inclusion = value == null ? "ALWAYS" : value.toString();
+                if (inclusion.equals("NON_DEFAULT")) {
+                    property.nonDefault = true;
+                } else if (!inclusion.equals("NON_EMPTY") && !inclusion.equals("USE_DEFAULTS")) {
+                    error(accessor, "@JsonInclude(" + inclusion + ") is not supported by generated serializers");
+                    valid = false;
+                }
+            } else if (name.startsWith(JACKSON)) {
+                error(accessor, "@" + annotation.getAnnotationType().asElement().getSimpleName()
+                    + " is not supported by generated serializers");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean checkTypeAnnotations(TypeElement type) {
+        boolean valid = true;
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            String name = annotationName(annotation);
+            if (name.startsWith(JACKSON) && !name.equals(JSON_IGNORE_PROPERTIES) && !name.equals(JSON_PROPERTY_ORDER)) {
+                error(type, "@" + annotation.getAnnotationType().asElement().getSimpleName()
+                    + " is not supported by generated serializers");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Derive the implicit property name of a getter as Jackson does, or return null if the
+     * method is not a getter.
+     */
+    private static String getterName(ExecutableElement method) {
+        if (method.getModifiers().contains(Modifier.STATIC) || !method.getParameters().isEmpty()) {
+            return null;
+        }
+        String name = method.getSimpleName().toString();
+        TypeMirror returnType = method.getReturnType();
+        if (name.startsWith("get") && returnType.getKind() != TypeKind.VOID) {
+            return mangle(name, 3);
+        }
+        if (name.startsWith("is") && (returnType.getKind() == TypeKind.BOOLEAN
+                || returnType.toString().equals("java.lang.Boolean"))) {
+            return mangle(name, 2);
+        }
+        return null;
+    }
+
+    /**
+     * Lower-case the leading upper-case characters that follow the prefix.
+     */
+    private static String mangle(String name, int offset) {
+        if (name.length() == offset) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(name.length() - offset);
+        int i = offset;
+        for (; i < name.length(); i++) {
+            char c = name.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (c == lower) {
+                break;
+            }
+            sb.append(lower);
+        }
+        return sb.append(name, i, name.length()).toString();
+    }
+
+    private Set<String> ignoredNames(TypeElement type) {
+        Set<String> names = new HashSet<>();
+        for (TypeElement t : supertypes(type)) {
+            AnnotationMirror annotation = annotation(t, JSON_IGNORE_PROPERTIES);
+            if (annotation != null) {
+                names.addAll(strings(value(annotation, "value")));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Find the @JsonPropertyOrder nearest to the type, which Jackson lets override those of its
+     * supertypes.
+     */
+    private List<String> propertyOrder(TypeElement type) {
+        for (TypeElement t : supertypes(type)) {
+            AnnotationMirror annotation = annotation(t, JSON_PROPERTY_ORDER);
+            if (annotation != null) {
+                if (Boolean.TRUE.equals(value(annotation, "alphabetic"))) {
+                    error(t, "alphabetic @JsonPropertyOrder is not supported by generated serializers");
+                }
+                return strings(value(annotation, "value"));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * List the type, its superclasses and then its interfaces, nearest first.
+     */
+    private List<TypeElement> supertypes(TypeElement type) {
+        List<TypeElement> classes = new ArrayList<>();
+        for (TypeElement t = type; t != null; t = superclass(t)) {
+            classes.add(t);
+        }
+        List<TypeElement> all = new ArrayList<>(classes);
+        for (int i = 0; i < all.size(); i++) {
+            for (TypeMirror mirror : all.get(i).getInterfaces()) {
+                TypeElement element = (TypeElement) ((DeclaredType) mirror).asElement();
+                if (!all.contains(element)) {
+                    all.add(element);
+                }
+            }
+        }
+        return all;
+    }
+
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private boolean isSubtype(TypeElement type, TypeElement supertype) {
+        return processingEnv.getTypeUtils().isSubtype(
+            processingEnv.getTypeUtils().erasure(type.asType()),
+            processingEnv.getTypeUtils().erasure(supertype.asType()));
+    }
+
+    private static String annotationName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotationName(annotation).equals(name)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> strings(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                strings.add((String) ((AnnotationValue) element).getValue());
+            }
+        } else if (value instanceof String) {
+            strings.add((String) value);
+        }
+        return strings;
+    }
+
+    private static String serializerName(TypeElement type) {
+        return type.getSimpleName() + "Serializer";
+    }
+
+    private void writeSerializer(TypeElement type, List<Property> properties) throws IOException {
+        String name = serializerName(type);
+        String typeName = type.getQualifiedName().toString();
+
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(PACKAGE + "." + name, type).openWriter())) {
+            out.println("package " + PACKAGE + ";");
+            out.println();
+            out.println("import com.fasterxml.jackson.core.JsonGenerator;");
+            out.println("import com.fasterxml.jackson.databind.SerializerProvider;");
+            out.println("import org.imsglobal.caliper.databind.GeneratedSerializer;");
+            out.println();
+            out.println("import java.io.IOException;");
+            out.println();
+            out.println("/**");
+            out.println(" * Serializer for " + typeName + ", generated by SerializerProcessor.  Do not edit.");
+            out.println(" */");
+            out.println("public final class " + name + " extends GeneratedSerializer<" + typeName + "> {");
+            for (Property property : properties) {
+                out.println("    private final Property " + field(property) + " = new Property(\"" + property.getName() + "\");");
+            }
+            out.println();
+            out.println("    public " + name + "() {");
+            out.println("        super(" + typeName + ".class);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    protected void serializeProperties(" + typeName + " value, JsonGenerator generator, SerializerProvider provider)");
+            out.println("            throws IOException {");
+            for (Property property : properties) {
+                writeProperty(out, property);
+            }
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeProperty(PrintWriter out, Property property) {
+        String field = field(property);
+        String read = "value." + property.getter.getSimpleName() + "()";
+        TypeMirror type = property.getter.getReturnType();
+
+        switch (type.getKind()) {
+            case INT:
+            case LONG:
+                writePrimitive(out, property, type, "writeNumber", field + "Value != 0");
+                break;
+            case DOUBLE:
+                writePrimitive(out, property, type, "writeNumber", "Double.doubleToLongBits(" + field + "Value) != 0L");
+                break;
+            case BOOLEAN:
+                writePrimitive(out, property, type, "writeBoolean", field + "Value");
+                break;
+            case DECLARED:
+                if (!property.nonDefault) {
+                    String method = type.toString().equals("java.lang.String") ? "writeString" : "writeObject";
+                    String provider = method.equals("writeObject") ? ", provider" : "";
+                    out.println("        this." + field + "." + method + "(" + read + ", generator" + provider + ");");
+                    break;
+                }
+                // Fall through: NON_DEFAULT is only understood for primitives
+            default:
+                error(property.getter, "property " + property.getName() + " of type " + type
+                    + (property.nonDefault ? " with NON_DEFAULT inclusion" : "")
+                    + " is not supported by generated serializers");
+        }
+    }
+
+    /**
+     * Write a primitive property, skipping its default value if it is annotated NON_DEFAULT.
+     */
+    private static void writePrimitive(PrintWriter out, Property property, TypeMirror type, String method, String isSet) {
+        String field = field(property);
+        String read = "value." + property.getter.getSimpleName() + "()";
+        if (!property.nonDefault) {
+            out.println("        this." + field + "." + method + "(" + read + ", generator);");
+            return;
+        }
+        out.println("        " + type + " " + field + "Value = " + read + ";");
+        out.println("        if (" + isSet + ") {");
+        out.println("            this." + field + "." + method + "(" + field + "Value, generator);");
+        out.println("        }");
+    }
+
+    private static String field(Property property) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : property.getName().toCharArray()) {
+            if (Character.isJavaIdentifierPart(c)) {
+                sb.append(c);
+            }
+        }
+        return SourceVersion.isKeyword(sb) ? sb + "_" : sb.toString();
+    }
+
+    private void writeRegistry(List<TypeElement> types) throws IOException {
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+                PACKAGE + "." + REGISTRY, types.toArray(new Element[types.size()])).openWriter())) {
+            out.println("package " + PACKAGE + ";");
+            out.println();
+            out.println("import org.imsglobal.caliper.databind.GeneratedSerializer;");
+            out.println();
+            out.println("/**");
+            out.println(" * Creates the serializers generated by SerializerProcessor.  Do not edit.");
+            out.println(" */");
+            out.println("public final class " + REGISTRY + " {");
+            out.println();
+            out.println("    private " + REGISTRY + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    /**");
+            out.println("     * Create a serializer for exactly the given type.");
+            out.println("     * @param type");
+            out.println("     * @return a new serializer, or null if none was generated for the type");
+            out.println("     */");
+            out.println("    public static GeneratedSerializer<?> create(Class<?> type) {");
+            out.println("        switch (type.getName()) {");
+            for (TypeElement type : types) {
+                out.println("            case \"" + processingEnv.getElementUtils().getBinaryName(type) + "\":");
+                out.println("                return new " + serializerName(type) + "();");
+            }
+            out.println("            default:");
+            out.println("                return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
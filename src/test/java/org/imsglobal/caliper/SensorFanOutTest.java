@@ -0,0 +1,198 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.clients.CircuitBreakerOpenException;
+import org.imsglobal.caliper.clients.HttpClient;
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.clients.RetryPolicy;
+import org.imsglobal.caliper.clients.SendResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SensorFanOutTest {
+    private static final String BASE_IRI = "https://example.edu";
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private ExecutorService executor;
+    private Sensor sensor;
+    private Envelope envelope;
+    private List<StubEndpoint> endpoints = new ArrayList<>();
+    private List<HttpClient> clients = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+        sensor = Sensor.create(BASE_IRI.concat("/sensors/1"));
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        for (HttpClient client : clients) {
+            client.close();
+        }
+        for (StubEndpoint endpoint : endpoints) {
+            endpoint.close();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sendsToClientsConcurrently() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            register("client-" + i, endpoint(200).getUrl(), 5);
+        }
+        sensor.setFanOut(executor, 5000);
+
+        long start = System.nanoTime();
+        Map<String, SendResult> results = sensor.fanOut(envelope);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("fan-out took " + elapsed + "ms", elapsed < 500);
+        assertEquals(3, results.size());
+        for (SendResult result : results.values()) {
+            assertTrue(result.isSuccessful());
+            assertEquals(200, result.getStatusCode());
+        }
+    }
+
+    @Test
+    public void reportsEachClientOutcome() throws Exception {
+        register("healthy", endpoint(0).getUrl(), 5);
+        StubEndpoint rejecting = endpoint(0);
+        rejecting.setStatusCode(400);
+        register("rejected", rejecting.getUrl(), 5);
+        register("unreachable", closedEndpointUrl(), 5);
+        sensor.setFanOut(executor, 5000);
+
+        Map<String, SendResult> results = sensor.fanOut(envelope);
+
+        assertTrue(results.get("healthy").isSuccessful());
+        assertFalse(results.get("rejected").isSuccessful());
+        assertEquals(400, results.get("rejected").getStatusCode());
+        assertFalse(results.get("unreachable").isSuccessful());
+        assertEquals(SendResult.NO_STATUS, results.get("unreachable").getStatusCode());
+        assertTrue(results.get("unreachable").getError() instanceof IOException);
+    }
+
+    @Test
+    public void reportsOpenCircuit() throws Exception {
+        StubEndpoint unavailable = endpoint(0);
+        unavailable.setStatusCode(503);
+        HttpClient client = register("unavailable", unavailable.getUrl(), 1);
+        sensor.setFanOut(executor, 5000);
+
+        assertEquals(503, sensor.fanOut(envelope).get("unavailable").getStatusCode());
+
+        SendResult result = sensor.fanOut(envelope).get("unavailable");
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getError() instanceof CircuitBreakerOpenException);
+        assertEquals(1, unavailable.getRequests());
+        assertEquals(2, client.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void stopsWaitingAtDeadline() throws Exception {
+        register("slow", endpoint(2000).getUrl(), 5);
+        register("fast", endpoint(0).getUrl(), 5);
+        sensor.setFanOut(executor, 100);
+
+        long start = System.nanoTime();
+        Map<String, SendResult> results = sensor.fanOut(envelope);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("fan-out took " + elapsed + "ms", elapsed < 1000);
+        assertTrue(results.get("fast").isSuccessful());
+        assertFalse(results.get("slow").isSuccessful());
+        assertTrue(results.get("slow").getError() instanceof TimeoutException);
+    }
+
+    @Test
+    public void sendLogsFailuresInFanOutMode() throws Exception {
+        StubEndpoint healthy = endpoint(0);
+        register("healthy", healthy.getUrl(), 5);
+        HttpClient unreachable = register("unreachable", closedEndpointUrl(), 5);
+        sensor.setFanOut(executor, 5000);
+
+        sensor.send(envelope);
+
+        assertEquals(1, healthy.getRequests());
+        assertEquals(1, unreachable.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void fansOutOnCallingThreadWithoutExecutor() throws Exception {
+        register("healthy", endpoint(0).getUrl(), 5);
+        register("unreachable", closedEndpointUrl(), 5);
+
+        Map<String, SendResult> results = sensor.fanOut(envelope);
+
+        assertTrue(results.get("healthy").isSuccessful());
+        assertFalse(results.get("unreachable").isSuccessful());
+        assertTrue(results.get("unreachable").getError() instanceof IOException);
+    }
+
+    private StubEndpoint endpoint(long latencyMillis) throws IOException {
+        StubEndpoint endpoint = StubEndpoint.start(latencyMillis);
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    /**
+     * Start an endpoint and close it again, leaving a URL that refuses connections.
+     * @return url
+     * @throws IOException
+     */
+    private static String closedEndpointUrl() throws IOException {
+        StubEndpoint endpoint = StubEndpoint.start(0);
+        endpoint.close();
+        return endpoint.getUrl();
+    }
+
+    private HttpClient register(String id, String url, int circuitBreakerThreshold) {
+        HttpClientOptions opts = HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(url)
+            .retryPolicy(RetryPolicy.NONE)
+            .circuitBreakerThreshold(circuitBreakerThreshold)
+            .build();
+        HttpClient client = HttpClient.create(id, opts);
+        clients.add(client);
+        sensor.registerClient(client);
+        return client;
+    }
+}
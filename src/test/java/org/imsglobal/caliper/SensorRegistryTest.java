@@ -0,0 +1,149 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SensorRegistryTest {
+
+    @Test
+    public void sendsWhileClientsAreRegistered() throws Exception {
+        final Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        final Envelope envelope = TestEnvelopes.envelope(1);
+        final CountingClient stable = new CountingClient("stable");
+        sensor.registerClient(stable);
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Integer>> senders = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                senders.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int sends = 0;
+                        while (running.get()) {
+                            sensor.send(envelope);
+                            sends++;
+                        }
+                        return sends;
+                    }
+                }));
+            }
+            Future<?> registrar = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 2000; i++) {
+                        sensor.registerClient(new CountingClient("transient-" + (i % 10)));
+                        sensor.unregisterClient("transient-" + ((i + 5) % 10));
+                    }
+                }
+            });
+
+            registrar.get(30, TimeUnit.SECONDS);
+            running.set(false);
+
+            int sends = 0;
+            for (Future<Integer> sender : senders) {
+                sends += sender.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(sends, stable.sent.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void snapshotsAreUnaffectedByLaterRegistration() {
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        CountingClient first = new CountingClient("first");
+        sensor.registerClient(first);
+
+        Map<String, CaliperClient> clients = sensor.getClients();
+        Map<String, Statistics> statistics = sensor.getStatistics();
+
+        sensor.registerClient(new CountingClient("second"));
+        sensor.unregisterClient("first");
+
+        assertEquals(1, clients.size());
+        assertSame(first, clients.get("first"));
+        assertEquals(1, statistics.size());
+        assertSame(first.getStatistics(), statistics.get("first"));
+
+        assertFalse(sensor.getClients().containsKey("first"));
+        assertTrue(sensor.getStatistics().containsKey("second"));
+        assertNull(sensor.getClient("first"));
+    }
+
+    /**
+     * Client that counts the envelopes it is given.
+     */
+    private static class CountingClient implements CaliperClient {
+        private final String id;
+        private final Statistics statistics = new Statistics();
+        private final AtomicInteger sent = new AtomicInteger();
+
+        private CountingClient(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            sent.incrementAndGet();
+        }
+    }
+}
@@ -19,8 +19,12 @@
 package org.imsglobal.caliper;
 
 import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.clients.CaliperClient;
 import org.imsglobal.caliper.clients.HttpClient;
 import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.clients.LoopbackClient;
+import org.imsglobal.caliper.clients.LoopbackClientOptions;
+import org.imsglobal.caliper.clients.RetryPolicy;
 import org.imsglobal.caliper.config.Config;
 import org.imsglobal.caliper.context.JsonldStringContext;
 import org.imsglobal.caliper.entities.agent.CourseSection;
@@ -34,112 +38,201 @@ import org.imsglobal.caliper.entities.session.Session;
 import org.imsglobal.caliper.events.NavigationEvent;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
-// @Category(org.imsglobal.caliper.UnitTest.class)
+/**
+ * Sends envelopes through the Sensor to a local stub endpoint and to an in-memory loopback
+ * client, and logs the throughput and per-send latency observed.
+ */
+@Category(org.imsglobal.caliper.UnitTest.class)
 public class SensorSendEventsTest {
     private static final String BASE_IRI = "https://example.edu";
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private static final Logger log = LoggerFactory.getLogger(SensorSendEventsTest.class);
 
-    // private static final Logger log = LoggerFactory.getLogger(SensorSendEventsTest.class);
+    private StubEndpoint endpoint;
+    private Sensor sensor;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(1);
+        sensor = Sensor.create(BASE_IRI.concat("/sensors/1"));
+    }
+
+    @After
+    public void teardown() {
+        endpoint.close();
+    }
 
     @Test
     public void test() {
 
-        // Initialize Sensor, Client and Requestor provisioned with Options
-        Sensor sensor = Sensor.create(BASE_IRI.concat("/sensors/1"));
-        HttpClientOptions opts = HttpClientOptions.builder().apiKey("869e5ce5-214c-4e85-86c6-b99e8458a592").build();
+        // Initialize Client provisioned with Options
+        HttpClientOptions opts = HttpClientOptions.builder().apiKey(API_KEY).host(endpoint.getUrl()).build();
         HttpClient client = HttpClient.create(sensor.getId(), opts);
         sensor.registerClient(client);
 
-        // Fire event test - Send 50 envelopes containing the above event
-        for (int i = 0 ; i < 50 ; i++) {
-            JsonldStringContext context = JsonldStringContext.getDefault();
-
-            String id = "urn:id:" + UUID.randomUUID().toString();
-
-            Person actor = Person.builder().id(BASE_IRI.concat("/users/554433")).build();
-
-            String currentLocation = BASE_IRI.concat("/terms/201601/courses/7/sections/1/pages/" + (i + 2));
-            String previousLocation = BASE_IRI.concat("/terms/201601/courses/7/sections/1/pages/" + (i + 1));
-
-            WebPage object = WebPage.builder()
-                .id(currentLocation)
-                .name("Learning Analytics Specifications")
-                .description("Overview of Learning Analytics Specifications with particular emphasis on IMS Caliper.")
-                .dateCreated(new DateTime(2016, 8, 1, 9, 0, 0, 0, DateTimeZone.UTC))
-                .build();
-
-            WebPage referrer = WebPage.builder().id(previousLocation).build();
-
-            SoftwareApplication edApp = SoftwareApplication.builder().id(BASE_IRI).build();
-
-            CourseSection group = CourseSection.builder().id(BASE_IRI.concat("/terms/201601/courses/7/sections/1"))
-                .courseNumber("CPS 435-01")
-                .academicSession("Fall 2016")
-                .build();
-
-            Membership membership = Membership.builder()
-                .id(BASE_IRI.concat("/terms/201601/courses/7/sections/1/rosters/1"))
-                .member(actor)
-                .organization(CourseSection.builder().id(group.getId()).build())
-                .status(Status.ACTIVE)
-                .role(Role.LEARNER)
-                .dateCreated(new DateTime(2016, 8, 1, 6, 0, 0, 0, DateTimeZone.UTC))
-                .build();
-
-            Session session = Session.builder()
-                .id(BASE_IRI.concat("/sessions/1f6442a482de72ea6ad134943812bff564a76259"))
-                .startedAtTime(new DateTime(2016, 11, 15, 10, 0, 0, 0, DateTimeZone.UTC))
-                .build();
-
-            NavigationEvent event = NavigationEvent.builder()
-                .context(context)
-                .id(id)
-                .actor(actor)
-                .action(Action.NAVIGATED_TO)
-                .object(object)
-                .eventTime(new DateTime(DateTimeZone.UTC))
-                .referrer(referrer)
-                .edApp(edApp)
-                .group(group)
-                .membership(membership)
-                .session(session)
-                .build();
-
-            // Prep envelope
-            DateTime sendTime = new DateTime(DateTimeZone.UTC);
-            List<CaliperSendable> data = new ArrayList<>();
-            data.add(event);
+        // Fire event test - Send 50 envelopes containing a navigation event
+        long[] latencies = send(client, 50);
+        report("stub endpoint", latencies);
 
-            Envelope envelope = sensor.create(client.getId(), sendTime, Config.DATA_VERSION, data);
+        // There should be fifty caliperEvents sent
+        assertEquals("Expect fifty Caliper events to be sent", 50,
+                sensor.getStatistics().get(client.getId()).getMeasures().getCount());
+        assertEquals(50, endpoint.getRequests());
 
-            // Send envelope
-            sensor.send(client, envelope);
-        }
+        // There should be fifty messages successfully sent
+        int successes = sensor.getStatistics().get(client.getId()).getSuccessful().getCount();
+        assertEquals("Expect fifty messages to be sent successfully", 50, successes);
 
-        // There should be two caliperEvents queued
-        assertEquals("Expect fifty Caliper events to be sent", 50,
-                sensor.getStatistics().get("default").getMeasures().getCount());
+        // There should be zero failures
+        int failures = sensor.getStatistics().get(client.getId()).getFailed().getCount();
+        assertEquals("Expect zero message failures to be sent", 0, failures);
+    }
+
+    @Test
+    public void countsInjectedFaultsAsFailures() {
+        endpoint.setErrorRate(0.2);
+        endpoint.setResetRate(0.1);
+
+        HttpClientOptions opts = HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .retryPolicy(RetryPolicy.NONE)
+            .circuitBreakerThreshold(Integer.MAX_VALUE)
+            .build();
+        HttpClient client = HttpClient.create(sensor.getId(), opts);
+        sensor.registerClient(client);
 
-        //Statistic statistics = client.getStatistics().get("default");
+        report("stub endpoint with faults", send(client, 50));
 
-        // TODO - Describes test - Send five describes
+        int successes = client.getStatistics().getSuccessful().getCount();
+        int failures = client.getStatistics().getFailed().getCount();
+        assertEquals(50, successes + failures);
+        assertTrue("failures " + failures, failures >= endpoint.getErrors());
+        assertTrue("failures " + failures, failures > 0);
+    }
 
-        // There should be four describes queued assertEquals("Expect five describes to be sent", 5,
-        // Caliper.getStatistics().getDescribes().getCount());
+    @Test
+    public void measuresPipelineWithLoopbackClient() {
+        LoopbackClient client = LoopbackClient.create(sensor.getId(), LoopbackClientOptions.builder().capacity(100).build());
+        sensor.registerClient(client);
 
-        // There should be two message successfully sent
-        int successes = sensor.getStatistics().get("default").getSuccessful().getCount();
-        assertEquals("Expect fifty messages to be sent successfully", 50, successes);
+        report("loopback", send(client, 1000));
 
-        // There should be zero failures
-        int failures = sensor.getStatistics().get("default").getFailed().getCount();
-        assertEquals("Expect zero message failures to be sent", 0, failures);
+        assertEquals(1000, client.getCapturedCount());
+        assertEquals(100, client.getCaptured().size());
+        assertEquals(1000, client.getStatistics().getSuccessful().getCount());
+    }
+
+    /**
+     * Send envelopes of one navigation event each, recording the latency of every send.  Sends
+     * rejected by the endpoint are counted in the client's statistics.
+     * @param client
+     * @param count
+     * @return latencies in nanoseconds
+     */
+    private long[] send(CaliperClient client, int count) {
+        long[] latencies = new long[count];
+        for (int i = 0 ; i < count ; i++) {
+            List<CaliperSendable> data = new ArrayList<>();
+            data.add(navigationEvent(i));
+            Envelope envelope = sensor.create(client.getId(), new DateTime(DateTimeZone.UTC), Config.DATA_VERSION, data);
+
+            long start = System.nanoTime();
+            try {
+                sensor.send(client, envelope);
+            } catch (RuntimeException e) {
+                log.debug(e.getMessage());
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static void report(String target, long[] latencies) {
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+
+        log.info(String.format("%s: %d envelopes, %.0f/s, p50 %.3fms, p99 %.3fms, max %.3fms", target,
+            sorted.length,
+            sorted.length / (total / (double) TimeUnit.SECONDS.toNanos(1)),
+            sorted[sorted.length / 2] / 1e6,
+            sorted[(int) (sorted.length * 0.99)] / 1e6,
+            sorted[sorted.length - 1] / 1e6));
+    }
+
+    private static NavigationEvent navigationEvent(int i) {
+        JsonldStringContext context = JsonldStringContext.getDefault();
+
+        String id = "urn:id:" + UUID.randomUUID().toString();
+
+        Person actor = Person.builder().id(BASE_IRI.concat("/users/554433")).build();
+
+        String currentLocation = BASE_IRI.concat("/terms/201601/courses/7/sections/1/pages/" + (i + 2));
+        String previousLocation = BASE_IRI.concat("/terms/201601/courses/7/sections/1/pages/" + (i + 1));
+
+        WebPage object = WebPage.builder()
+            .id(currentLocation)
+            .name("Learning Analytics Specifications")
+            .description("Overview of Learning Analytics Specifications with particular emphasis on IMS Caliper.")
+            .dateCreated(new DateTime(2016, 8, 1, 9, 0, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        WebPage referrer = WebPage.builder().id(previousLocation).build();
+
+        SoftwareApplication edApp = SoftwareApplication.builder().id(BASE_IRI).build();
+
+        CourseSection group = CourseSection.builder().id(BASE_IRI.concat("/terms/201601/courses/7/sections/1"))
+            .courseNumber("CPS 435-01")
+            .academicSession("Fall 2016")
+            .build();
+
+        Membership membership = Membership.builder()
+            .id(BASE_IRI.concat("/terms/201601/courses/7/sections/1/rosters/1"))
+            .member(actor)
+            .organization(CourseSection.builder().id(group.getId()).build())
+            .status(Status.ACTIVE)
+            .role(Role.LEARNER)
+            .dateCreated(new DateTime(2016, 8, 1, 6, 0, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        Session session = Session.builder()
+            .id(BASE_IRI.concat("/sessions/1f6442a482de72ea6ad134943812bff564a76259"))
+            .startedAtTime(new DateTime(2016, 11, 15, 10, 0, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        return NavigationEvent.builder()
+            .context(context)
+            .id(id)
+            .actor(actor)
+            .action(Action.NAVIGATED_TO)
+            .object(object)
+            .eventTime(new DateTime(DateTimeZone.UTC))
+            .referrer(referrer)
+            .edApp(edApp)
+            .group(group)
+            .membership(membership)
+            .session(session)
+            .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.clients.HttpClient;
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SensorSerializeOnceTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private CountingSerializer serializer;
+    private Sensor sensor;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() {
+        serializer = new CountingSerializer();
+        sensor = Sensor.create("https://example.edu/sensors/1");
+        envelope = TestEnvelopes.envelope(10);
+    }
+
+    @Test
+    public void serializesOncePerSharedSerializer() {
+        RecordingClient[] clients = register(serializer, 3);
+
+        sensor.send(envelope);
+
+        assertEquals(1, serializer.calls.get());
+        for (RecordingClient client : clients) {
+            assertSame(clients[0].serialized, client.serialized);
+        }
+        assertSame(envelope, clients[0].serialized.getEnvelope());
+    }
+
+    @Test
+    public void sharesBytesWhenFanningOut() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            RecordingClient[] clients = register(serializer, 3);
+            sensor.setFanOut(executor, 5000);
+
+            sensor.fanOut(envelope);
+
+            assertEquals(1, serializer.calls.get());
+            for (RecordingClient client : clients) {
+                assertSame(clients[0].serialized, client.serialized);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void leavesClientsWithOwnSerializerAlone() {
+        RecordingClient shared = register(serializer, 2)[0];
+        RecordingClient own = new RecordingClient("own", new CountingSerializer());
+        sensor.registerClient(own);
+
+        sensor.send(envelope);
+
+        assertEquals(1, serializer.calls.get());
+        assertTrue(shared.serialized != null);
+        assertNull(own.serialized);
+        assertSame(envelope, own.envelope);
+    }
+
+    @Test
+    public void httpClientsPostSharedBytes() throws Exception {
+        try (StubEndpoint first = StubEndpoint.start(0);
+             StubEndpoint second = StubEndpoint.start(0);
+             HttpClient firstClient = HttpClient.create("first", options(first));
+             HttpClient secondClient = HttpClient.create("second", options(second))) {
+            sensor.registerClient(firstClient);
+            sensor.registerClient(secondClient);
+
+            sensor.send(envelope);
+
+            byte[] expected = CaliperSerializer.getDefault().serialize(envelope);
+            assertArrayEquals(expected, first.getLastBody());
+            assertArrayEquals(expected, second.getLastBody());
+            assertEquals(1, firstClient.getStatistics().getSuccessful().getCount());
+            assertEquals(1, secondClient.getStatistics().getSuccessful().getCount());
+        }
+    }
+
+    @Test
+    public void exposesReadOnlyViews() throws Exception {
+        SerializedEnvelope serialized = serializer.serializeEnvelope(envelope);
+
+        assertTrue(serialized.asByteBuffer().isReadOnly());
+        serialized.toByteArray()[0] = 0;
+        assertEquals('{', serialized.asByteBuffer().get(0));
+        assertEquals(serialized.size(), serialized.asByteBuffer().remaining());
+
+        HttpEntity entity = serialized.asEntity();
+        assertTrue(entity.isRepeatable());
+        assertEquals(serialized.size(), entity.getContentLength());
+        assertArrayEquals(serialized.toByteArray(), EntityUtils.toByteArray(entity));
+        assertArrayEquals(serialized.toByteArray(), EntityUtils.toByteArray(entity));
+    }
+
+    private RecordingClient[] register(CaliperSerializer serializer, int count) {
+        RecordingClient[] clients = new RecordingClient[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = new RecordingClient("client-" + i, serializer);
+            sensor.registerClient(clients[i]);
+        }
+        return clients;
+    }
+
+    private static HttpClientOptions options(StubEndpoint endpoint) {
+        return HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .build();
+    }
+
+    /**
+     * Serializer that counts the values it serializes.
+     */
+    private static class CountingSerializer extends CaliperSerializer {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public byte[] serialize(Object value) throws JsonProcessingException {
+            calls.incrementAndGet();
+            return super.serialize(value);
+        }
+    }
+
+    /**
+     * Client that records what it is handed.
+     */
+    private static class RecordingClient implements CaliperClient {
+        private final String id;
+        private final CaliperSerializer serializer;
+        private final Statistics statistics = new Statistics();
+        private volatile Envelope envelope;
+        private volatile SerializedEnvelope serialized;
+
+        private RecordingClient(String id, CaliperSerializer serializer) {
+            this.id = id;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public CaliperSerializer getSerializer() {
+            return serializer;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            this.envelope = envelope;
+        }
+
+        @Override
+        public void send(SerializedEnvelope serialized) {
+            this.serialized = serialized;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Local stub of a Caliper endpoint for tests and benchmarks.  Every POST is answered with the
+ * configured status code after the configured latency.  The stub records the number of requests,
+ * the bytes received and the peak number of requests it was serving concurrently.  The body of
+ * the most recent request is kept, decoded according to its Content-Encoding, along with its headers.
+ * Headers set with setResponseHeader are added to every response.
+ *
+ * Faults can be injected at random: a fraction of requests, given by the error rate, is answered
+ * with the error status code instead, and a fraction, given by the reset rate, has its connection
+ * dropped without any response.
+ */
+public class StubEndpoint implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger peakConcurrent = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile int statusCode = 200;
+    private volatile double errorRate;
+    private volatile int errorStatusCode = 503;
+    private volatile double resetRate;
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger resets = new AtomicInteger();
+    private volatile Headers lastHeaders;
+    private volatile byte[] lastBody;
+    private final Map<String, String> responseHeaders = new ConcurrentHashMap<>();
+
+    /**
+     * Connections waiting to be accepted, enough for a burst of thousands of concurrent clients.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method.
+     * @param latencyMillis
+     * @throws IOException
+     */
+    private StubEndpoint(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), BACKLOG);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StubEndpoint.this.handle(exchange);
+            }
+        });
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * Answer one request.
+     * @param exchange
+     * @throws IOException
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        // Leave the concurrency window before responding; the client may send again as soon as
+        // it sees the response.
+        int current = concurrent.incrementAndGet();
+        try {
+            requests.incrementAndGet();
+            updatePeak(current);
+
+            byte[] body = read(exchange.getRequestBody());
+            bytesReceived.addAndGet(body.length);
+            lastHeaders = exchange.getRequestHeaders();
+            lastBody = decode(body, lastHeaders.getFirst("Content-Encoding"));
+
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            concurrent.decrementAndGet();
+        }
+
+        double fault = ThreadLocalRandom.current().nextDouble();
+        if (fault < resetRate) {
+            // Closing the exchange before the response headers are sent drops the connection
+            resets.incrementAndGet();
+            exchange.close();
+            return;
+        }
+
+        int status = statusCode;
+        if (fault < resetRate + errorRate) {
+            errors.incrementAndGet();
+            status = errorStatusCode;
+        }
+
+        try {
+            for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            }
+            exchange.sendResponseHeaders(status, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void updatePeak(int current) {
+        int peak = peakConcurrent.get();
+        while (current > peak && !peakConcurrent.compareAndSet(peak, current)) {
+            peak = peakConcurrent.get();
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        if ("gzip".equals(contentEncoding)) {
+            return read(new GZIPInputStream(new ByteArrayInputStream(body)));
+        } else if ("deflate".equals(contentEncoding)) {
+            return read(new InflaterInputStream(new ByteArrayInputStream(body)));
+        }
+        return body;
+    }
+
+    /**
+     * Get the endpoint URL.
+     * @return url
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public int getPeakConcurrent() {
+        return peakConcurrent.get();
+    }
+
+    /**
+     * Get the number of requests answered with the error status code by fault injection.
+     * @return errors
+     */
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Get the number of requests whose connection was dropped by fault injection.
+     * @return resets
+     */
+    public int getResets() {
+        return resets.get();
+    }
+
+    /**
+     * Get a header of the most recent request.
+     * @param name
+     * @return header value or null
+     */
+    public String getLastHeader(String name) {
+        Headers headers = lastHeaders;
+        return headers == null ? null : headers.getFirst(name);
+    }
+
+    public String getLastContentEncoding() {
+        return getLastHeader("Content-Encoding");
+    }
+
+    /**
+     * Get the decoded body of the most recent request.
+     * @return body
+     */
+    public byte[] getLastBody() {
+        return lastBody;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Answer the given fraction of requests with the error status code.
+     * @param errorRate between 0 and 1
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setErrorStatusCode(int errorStatusCode) {
+        this.errorStatusCode = errorStatusCode;
+    }
+
+    /**
+     * Drop the connection of the given fraction of requests without responding.
+     * @param resetRate between 0 and 1
+     */
+    public void setResetRate(double resetRate) {
+        this.resetRate = resetRate;
+    }
+
+    /**
+     * Add a header to every response, or remove it if the value is null.
+     * @param name
+     * @param value
+     */
+    public void setResponseHeader(String name, String value) {
+        if (value == null) {
+            responseHeaders.remove(name);
+        } else {
+            responseHeaders.put(name, value);
+        }
+    }
+
+    /**
+     * Reset counters.
+     */
+    public void reset() {
+        requests.set(0);
+        bytesReceived.set(0);
+        peakConcurrent.set(0);
+        errors.set(0);
+        resets.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Factory method for starting a stub on an ephemeral local port.
+     * @param latencyMillis
+     * @return stub endpoint
+     * @throws IOException
+     */
+    public static StubEndpoint start(long latencyMillis) throws IOException {
+        return new StubEndpoint(latencyMillis);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.context.JsonldStringContext;
+import org.imsglobal.caliper.entities.agent.CourseSection;
+import org.imsglobal.caliper.entities.agent.Membership;
+import org.imsglobal.caliper.entities.agent.Person;
+import org.imsglobal.caliper.entities.agent.Role;
+import org.imsglobal.caliper.entities.agent.SoftwareApplication;
+import org.imsglobal.caliper.entities.agent.Status;
+import org.imsglobal.caliper.entities.outcome.Score;
+import org.imsglobal.caliper.entities.resource.Assessment;
+import org.imsglobal.caliper.entities.resource.Attempt;
+import org.imsglobal.caliper.entities.resource.WebPage;
+import org.imsglobal.caliper.entities.session.Session;
+import org.imsglobal.caliper.events.GradeEvent;
+import org.imsglobal.caliper.events.NavigationEvent;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds representative envelopes for the tests and benchmarks: a single learner navigating through
+ * the pages of one course section, so that actor, edApp, group, membership and session repeat
+ * across every event as they do in a typical batched session.  Grade events carry the dates and
+ * scores of an autograded quiz attempt.
+ */
+public class TestEnvelopes {
+    private static final String BASE_IRI = "https://example.edu";
+    private static final String SECTION_IRI = BASE_IRI.concat("/terms/201601/courses/7/sections/1");
+    private static final String ACTOR_IRI = BASE_IRI.concat("/users/554433");
+
+    /**
+     * The edApp, group and membership are built once and shared by every event, as an
+     * application would hold them.
+     */
+    private static final SoftwareApplication EDAPP = SoftwareApplication.builder().id(BASE_IRI).version("v2").build();
+
+    private static final CourseSection GROUP = CourseSection.builder().id(SECTION_IRI)
+        .courseNumber("CPS 435-01")
+        .academicSession("Fall 2016")
+        .build();
+
+    private static final Membership MEMBERSHIP = Membership.builder()
+        .id(SECTION_IRI.concat("/rosters/1"))
+        .member(Person.builder().id(ACTOR_IRI).build())
+        .organization(CourseSection.builder().id(SECTION_IRI).build())
+        .status(Status.ACTIVE)
+        .role(Role.LEARNER)
+        .dateCreated(new DateTime(2016, 8, 1, 6, 0, 0, 0, DateTimeZone.UTC))
+        .build();
+
+    /**
+     * Constructor
+     */
+    private TestEnvelopes() {
+
+    }
+
+    /**
+     * Build a NavigationEvent for page n.
+     * @param n
+     * @return event
+     */
+    public static NavigationEvent navigationEvent(int n) {
+        Person actor = Person.builder().id(ACTOR_IRI).build();
+
+        WebPage object = WebPage.builder()
+            .id(SECTION_IRI.concat("/pages/" + (n + 2)))
+            .name("Learning Analytics Specifications")
+            .description("Overview of Learning Analytics Specifications with particular emphasis on IMS Caliper.")
+            .dateCreated(new DateTime(2016, 8, 1, 9, 0, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        WebPage referrer = WebPage.builder().id(SECTION_IRI.concat("/pages/" + (n + 1))).build();
+
+        Session session = Session.builder()
+            .id(BASE_IRI.concat("/sessions/1f6442a482de72ea6ad134943812bff564a76259"))
+            .startedAtTime(new DateTime(2016, 11, 15, 10, 0, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        return NavigationEvent.builder()
+            .context(JsonldStringContext.getDefault())
+            .id("urn:uuid:71657137-8e6e-44f8-8499-" + String.format("%012d", n))
+            .actor(actor)
+            .action(Action.NAVIGATED_TO)
+            .object(object)
+            .eventTime(new DateTime(2016, 11, 15, 10, 15, 0, 0, DateTimeZone.UTC).plusSeconds(n))
+            .referrer(referrer)
+            .edApp(EDAPP)
+            .group(GROUP)
+            .membership(MEMBERSHIP)
+            .session(session)
+            .build();
+    }
+
+    /**
+     * Build a GradeEvent for the attempt of learner n.
+     * @param n
+     * @return event
+     */
+    public static GradeEvent gradeEvent(int n) {
+        String assessmentIri = SECTION_IRI.concat("/assess/1");
+        String attemptIri = assessmentIri.concat("/users/" + (554433 + n) + "/attempts/1");
+
+        Assessment assessment = Assessment.builder()
+            .id(assessmentIri)
+            .dateToShow(new DateTime(2016, 8, 16, 5, 0, 0, 0, DateTimeZone.UTC))
+            .dateToSubmit(new DateTime(2016, 9, 28, 11, 59, 59, 0, DateTimeZone.UTC))
+            .maxAttempts(2)
+            .maxScore(15.0)
+            .build();
+
+        Attempt attempt = Attempt.builder()
+            .id(attemptIri)
+            .assignable(assessment)
+            .assignee(Person.builder().id(BASE_IRI.concat("/users/" + (554433 + n))).build())
+            .count(1)
+            .dateCreated(new DateTime(2016, 11, 15, 10, 5, 0, 0, DateTimeZone.UTC))
+            .startedAtTime(new DateTime(2016, 11, 15, 10, 5, 0, 0, DateTimeZone.UTC))
+            .endedAtTime(new DateTime(2016, 11, 15, 10, 55, 12, 0, DateTimeZone.UTC))
+            .duration("PT50M12S")
+            .build();
+
+        Score score = Score.builder()
+            .id(attemptIri.concat("/scores/1"))
+            .attempt(Attempt.builder().id(attemptIri).coercedToId(true).build())
+            .maxScore(15.0)
+            .scoreGiven(10.0 + (n % 10) * 0.5)
+            .scoredBy(EDAPP)
+            .dateCreated(new DateTime(2016, 11, 15, 10, 56, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        return GradeEvent.builder()
+            .context(JsonldStringContext.getDefault())
+            .id("urn:uuid:a50ca17f-5971-47bb-8fca-" + String.format("%012d", n))
+            .actor(SoftwareApplication.builder().id(BASE_IRI.concat("/autograder")).version("v2").build())
+            .action(Action.GRADED)
+            .object(attempt)
+            .generated(score)
+            .eventTime(new DateTime(2016, 11, 15, 10, 57, 6, 0, DateTimeZone.UTC).plusMillis(n))
+            .edApp(EDAPP)
+            .group(GROUP)
+            .build();
+    }
+
+    /**
+     * Build an envelope holding the given number of grade events.
+     * @param size
+     * @return envelope
+     */
+    public static Envelope gradeEnvelope(int size) {
+        List<CaliperSendable> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            data.add(gradeEvent(i));
+        }
+
+        return new Envelope(BASE_IRI.concat("/sensors/1"),
+            new DateTime(2016, 11, 15, 11, 5, 1, 0, DateTimeZone.UTC), Config.DATA_VERSION, data);
+    }
+
+    /**
+     * Build an envelope holding the given number of events.
+     * @param size
+     * @return envelope
+     */
+    public static Envelope envelope(int size) {
+        List<CaliperSendable> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            data.add(navigationEvent(i));
+        }
+
+        return new Envelope(BASE_IRI.concat("/sensors/1"),
+            new DateTime(2016, 11, 15, 11, 5, 1, 0, DateTimeZone.UTC), Config.DATA_VERSION, data);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.benchmarks;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes allocated per event when serializing an envelope of 100 grade events, each with three
+ * dates on the attempt, two on the assessment, two scores and an event time, into a reused
+ * stream.  The bean mapper formats dates through the Joda module and doubles through
+ * Double.toString; the default mapper writes both directly into the generator's buffer.
+ *
+ * Run with: mvn -P benchmark verify -DskipTests -Dbenchmark="AllocationBenchmark -prof gc"
+ * and compare gc.alloc.rate.norm, which is reported in bytes per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+    private static final int EVENTS = 100;
+
+    @Param({"bean", "default"})
+    private String mapper;
+
+    private Envelope envelope;
+    private CaliperSerializer serializer;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        envelope = TestEnvelopes.gradeEnvelope(EVENTS);
+        serializer = "bean".equals(mapper)
+            ? new CaliperSerializer(CaliperSerializer.createObjectMapper(false))
+            : CaliperSerializer.getDefault();
+        out = new ByteArrayOutputStream(256 * 1024);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int serializeGradeEvents() throws IOException {
+        out.reset();
+        serializer.serialize(envelope, out);
+        return out.size();
+    }
+}
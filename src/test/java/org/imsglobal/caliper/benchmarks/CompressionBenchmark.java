@@ -0,0 +1,139 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of compressing a serialized envelope against the bytes it saves on the wire, for each
+ * caliper-common-fixtures JSON document used by the test suite and for synthetic batches of
+ * navigation events.  The measured time is the compression overhead per POST; the compressed size
+ * is printed once per trial.  Fixtures are re-serialized compactly so that the input matches what
+ * HttpClient posts.  The fixture documents require the fixtures symlink described in the README;
+ * to run the synthetic batches only:
+ *
+ * Run with: mvn -P benchmark verify -DskipTests -Dbenchmark="CompressionBenchmark -p fixture=batch-10,batch-100"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    private static final String BATCH_PREFIX = "batch-";
+
+    @Param({
+        "batch-1",
+        "batch-10",
+        "batch-100",
+        "caliperEntityAssessment",
+        "caliperEntityAssessmentItemExtended",
+        "caliperEntityPerson",
+        "caliperEnvelopeEventSingle",
+        "caliperEventAnnotationBookmarked",
+        "caliperEventAnnotationHighlighted",
+        "caliperEventAnnotationShared",
+        "caliperEventAnnotationTagged",
+        "caliperEventAssessmentItemCompleted",
+        "caliperEventAssessmentItemSkipped",
+        "caliperEventAssessmentItemStarted",
+        "caliperEventAssessmentStarted",
+        "caliperEventAssessmentSubmitted",
+        "caliperEventAssignableActivated",
+        "caliperEventBasicCreated",
+        "caliperEventBasicModifiedExtended",
+        "caliperEventForumSubscribed",
+        "caliperEventGradeGraded",
+        "caliperEventGradeGradedItem",
+        "caliperEventMediaPausedVideo",
+        "caliperEventMessagePosted",
+        "caliperEventMessageReplied",
+        "caliperEventNavigationNavigatedTo",
+        "caliperEventNavigationNavigatedToThinned",
+        "caliperEventSessionLoggedIn",
+        "caliperEventSessionLoggedInExtended",
+        "caliperEventSessionLoggedOut",
+        "caliperEventSessionTimedOut",
+        "caliperEventThreadMarkedAsRead",
+        "caliperEventToolUseUsed",
+        "caliperEventViewViewed",
+        "caliperEventViewViewedExtended",
+        "caliperEventViewViewedFedSession"
+    })
+    private String fixture;
+
+    @Param({"GZIP", "DEFLATE"})
+    private Compression compression;
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+
+        if (fixture.startsWith(BATCH_PREFIX)) {
+            int events = Integer.parseInt(fixture.substring(BATCH_PREFIX.length()));
+            payload = serializer.serialize(TestEnvelopes.envelope(events));
+        } else {
+            String path = "fixtures/v1p1/" + fixture + ".json";
+            URL resource = CompressionBenchmark.class.getClassLoader().getResource(path);
+            if (resource == null) {
+                throw new IllegalStateException(path + " not found; link caliper-common-fixtures as described in the README");
+            }
+            ObjectMapper mapper = serializer.getObjectMapper();
+            payload = mapper.writeValueAsBytes(mapper.readTree(Resources.toByteArray(resource)));
+        }
+    }
+
+    @TearDown
+    public void report() throws IOException {
+        int compressed = compression.compress(payload, level).length;
+        System.out.printf("%n%s %s level %d: %d -> %d bytes, %.1f%% saved%n", fixture, compression, level,
+            payload.length, compressed, 100.0 * (payload.length - compressed) / payload.length);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return compression.compress(payload, level);
+    }
+}
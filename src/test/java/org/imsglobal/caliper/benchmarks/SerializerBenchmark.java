@@ -0,0 +1,100 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.benchmarks;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.EntityCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-envelope serialization cost of building a fresh ObjectMapper for every envelope (the
+ * former AbstractClient behavior) versus the shared CaliperSerializer, with and without an entity
+ * cache for the edApp, group and membership shared by every event, and with the generated
+ * serializers versus bean introspection.
+ *
+ * Run with: mvn -P benchmark verify -DskipTests -Dbenchmark=SerializerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int events;
+
+    private Envelope envelope;
+    private CaliperSerializer serializer;
+    private CaliperSerializer cachingSerializer;
+    private CaliperSerializer beanSerializer;
+
+    @Setup
+    public void setup() {
+        envelope = TestEnvelopes.envelope(events);
+        serializer = CaliperSerializer.getDefault();
+        cachingSerializer = serializer.withEntityCache(new EntityCache(EntityCache.MAX_ENTITIES));
+        beanSerializer = new CaliperSerializer(CaliperSerializer.createObjectMapper(false));
+    }
+
+    @Benchmark
+    public String newObjectMapperPerEnvelope() throws Exception {
+        return CaliperSerializer.createObjectMapper().writeValueAsString(envelope);
+    }
+
+    @Benchmark
+    public String newBeanObjectMapperPerEnvelope() throws Exception {
+        return CaliperSerializer.createObjectMapper(false).writeValueAsString(envelope);
+    }
+
+    @Benchmark
+    public String sharedSerializerToString() throws Exception {
+        return serializer.serializeToString(envelope);
+    }
+
+    @Benchmark
+    public byte[] sharedSerializerToBytes() throws Exception {
+        return serializer.serialize(envelope);
+    }
+
+    @Benchmark
+    public byte[] beanSerializerToBytes() throws Exception {
+        return beanSerializer.serialize(envelope);
+    }
+
+    @Benchmark
+    public byte[] entityCacheToBytes() throws Exception {
+        return cachingSerializer.serialize(envelope);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.benchmarks;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.spool.Spool;
+import org.imsglobal.caliper.spool.SpoolOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spool append throughput with a single envelope per record, from 16 producer threads, while a
+ * consumer acknowledges records so that segments are recycled.  appendAndAwaitSync waits for the
+ * group commit covering each record, so its throughput reflects how many records share an fsync.
+ *
+ * Run with: mvn -P benchmark verify -DskipTests -Dbenchmark=SpoolBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class SpoolBenchmark {
+    private Path directory;
+    private Spool spool;
+    private Thread consumer;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("caliper-spool");
+        spool = Spool.open(SpoolOptions.builder().directory(directory.toFile()).build());
+        payload = CaliperSerializer.getDefault().serialize(TestEnvelopes.envelope(1));
+
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        Spool.Entry entry = spool.poll(100, TimeUnit.MILLISECONDS);
+                        if (entry != null) {
+                            spool.acknowledge(entry);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        consumer.interrupt();
+        consumer.join();
+        System.out.printf("%n%d group commits%n", spool.getSyncCount());
+        spool.close();
+        MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        return spool.append(payload);
+    }
+
+    @Benchmark
+    public boolean appendAndAwaitSync() throws Exception {
+        return spool.awaitSync(spool.append(payload), 10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.benchmarks;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.clients.HttpClient;
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.clients.SendExecutors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of blocking HttpClient sends against a stub endpoint with high latency, when a burst
+ * of envelopes is handed to a fixed pool of platform threads and when each envelope gets a
+ * virtual thread of its own.  With the pool, at most PLATFORM_THREADS envelopes wait on the
+ * endpoint at a time; with virtual threads the whole burst does, bounded only by the client's
+ * connection and in-flight limits, which are set to the burst size.  The stub endpoint is allowed
+ * to keep every connection of the burst alive between invocations.  The virtual variant needs
+ * Java 21 or later, and the packaged multi-release jar, which the benchmark profile puts first on
+ * the classpath.
+ *
+ * Run with: mvn -P benchmark verify -DskipTests -Dbenchmark=VirtualThreadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.maxIdleConnections=" + VirtualThreadBenchmark.BURST)
+public class VirtualThreadBenchmark {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+    private static final int PLATFORM_THREADS = 200;
+    static final int BURST = 2000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200"})
+    public long latencyMillis;
+
+    private StubEndpoint endpoint;
+    private HttpClient client;
+    private ExecutorService executor;
+    private Envelope envelope;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("virtual".equals(threads)) {
+            executor = SendExecutors.newVirtualThreadExecutor("caliper-send");
+        } else {
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+
+        endpoint = StubEndpoint.start(latencyMillis);
+        client = HttpClient.create("http", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .maxConnections(BURST)
+            .maxConnectionsPerRoute(BURST)
+            .maxInFlightRequests(BURST)
+            .build());
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        System.out.printf("%n%d delivered, %d failed, peak of %d concurrent requests at endpoint%n",
+            client.getStatistics().getSuccessful().getCount(), client.getStatistics().getFailed().getCount(),
+            endpoint.getPeakConcurrent());
+        client.close();
+        endpoint.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void sendBurst() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(BURST);
+        for (int i = 0; i < BURST; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client.send(envelope);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+    }
+}
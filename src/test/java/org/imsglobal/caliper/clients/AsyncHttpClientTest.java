@@ -0,0 +1,302 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class AsyncHttpClientTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+    private static final long LATENCY_MILLIS = 200;
+
+    private StubEndpoint endpoint;
+    private AsyncHttpClient client;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(LATENCY_MILLIS);
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        endpoint.close();
+    }
+
+    @Test
+    public void sendAsyncReportsStatusLatencyAndBytes() throws Exception {
+        client = AsyncHttpClient.create("async", options(endpoint.getUrl(), 4));
+
+        SendResult result = client.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(200, result.getStatusCode());
+        assertTrue(result.getLatencyMillis() >= LATENCY_MILLIS);
+        assertEquals(endpoint.getBytesReceived(), result.getBytesSent());
+        assertEquals(1, client.getStatistics().getSuccessful().getCount());
+    }
+
+    @Test
+    public void sendAsyncDoesNotBlockCaller() throws Exception {
+        client = AsyncHttpClient.create("async", options(endpoint.getUrl(), 100));
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(client.sendAsync(envelope));
+        }
+        long dispatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+
+        assertTrue("dispatch took " + dispatchMillis + " ms", dispatchMillis < 1000 * LATENCY_MILLIS / 100);
+        for (CompletableFuture<SendResult> future : futures) {
+            assertTrue(future.get().isSuccessful());
+        }
+        assertEquals(1000, endpoint.getRequests());
+        assertTrue(endpoint.getPeakConcurrent() <= 100);
+    }
+
+    @Test
+    public void sendAsyncReportsRejectedEnvelope() throws Exception {
+        endpoint.setStatusCode(503);
+        client = AsyncHttpClient.create("async", options(endpoint.getUrl(), 4));
+
+        SendResult result = client.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(503, result.getStatusCode());
+        assertEquals(1, client.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void sendAsyncCompletesExceptionallyWithoutResponse() throws Exception {
+        String url = endpoint.getUrl();
+        endpoint.close();
+        client = AsyncHttpClient.create("async", options(url, 4));
+
+        try {
+            client.sendAsync(envelope).get(15, TimeUnit.SECONDS);
+            fail("Expected connection failure");
+        } catch (ExecutionException e) {
+            assertNotNull(e.getCause());
+        }
+        assertEquals(1, client.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void sendAsyncQueuesBeyondInFlightLimit() throws Exception {
+        client = AsyncHttpClient.create("async", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .maxInFlightRequests(2)
+            .build());
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(client.sendAsync(envelope));
+        }
+        assertEquals(6, client.getPendingRequests());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(15, TimeUnit.SECONDS);
+
+        assertEquals(6, endpoint.getRequests());
+        assertEquals(2, endpoint.getPeakConcurrent());
+        assertEquals(0, client.getPendingRequests());
+    }
+
+    @Test
+    public void offerReturnsFalseAtInFlightLimit() throws Exception {
+        client = AsyncHttpClient.create("async", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .maxInFlightRequests(2)
+            .build());
+
+        assertTrue(client.offer(envelope));
+        assertTrue(client.offer(envelope));
+        assertFalse(client.offer(envelope));
+
+        assertEquals(0, client.flush(5, TimeUnit.SECONDS).getUndelivered());
+        assertTrue(client.offer(envelope));
+        assertEquals(0, client.flush(5, TimeUnit.SECONDS).getUndelivered());
+        assertEquals(3, endpoint.getRequests());
+    }
+
+    @Test
+    public void openCircuitFailsFast() throws Exception {
+        endpoint.setStatusCode(503);
+        client = AsyncHttpClient.create("async", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .circuitBreakerThreshold(1)
+            .build());
+
+        assertEquals(503, client.sendAsync(envelope).get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().getState());
+
+        try {
+            client.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+            fail("Expected open circuit");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(1, endpoint.getRequests());
+        assertEquals(0, client.getPendingRequests());
+    }
+
+    @Test
+    public void createRejectsOptionsOnlyHttpClientSupports() {
+        List<HttpClientOptions> unsupported = new ArrayList<>();
+        unsupported.add(HttpClientOptions.builder().apiKey(API_KEY)
+            .retryPolicy(RetryPolicy.builder().maxAttempts(2).build()).build());
+        unsupported.add(HttpClientOptions.builder().apiKey(API_KEY)
+            .rateLimitPolicy(RateLimitPolicy.builder().eventsPerSecond(10).build()).build());
+        unsupported.add(HttpClientOptions.builder().apiKey(API_KEY)
+            .congestionPolicy(CongestionPolicy.builder().build()).build());
+        unsupported.add(HttpClientOptions.builder().apiKey(API_KEY)
+            .describePolicy(DescribePolicy.builder().build()).build());
+
+        for (HttpClientOptions options : unsupported) {
+            try {
+                AsyncHttpClient.create("async", options);
+                fail("Expected options to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("use HttpClient"));
+            }
+        }
+    }
+
+    @Test
+    public void sensorCombinesPerClientResults() throws Exception {
+        client = AsyncHttpClient.create("async", options(endpoint.getUrl(), 4));
+        HttpClient blocking = HttpClient.create("blocking", options(endpoint.getUrl(), 4));
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(client);
+        sensor.registerClient(blocking);
+
+        try {
+            Map<String, SendResult> results = sensor.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, results.size());
+            assertEquals(200, results.get("async").getStatusCode());
+            assertTrue(results.get("blocking").isSuccessful());
+            assertTrue(sensor.sendAsync(client, envelope).get(5, TimeUnit.SECONDS).isSuccessful());
+        } finally {
+            blocking.close();
+        }
+    }
+
+    @Test
+    public void sensorReportsFailuresOfBlockingClients() throws Exception {
+        client = AsyncHttpClient.create("async", options(endpoint.getUrl(), 4));
+        StubEndpoint closed = StubEndpoint.start(0);
+        closed.close();
+        HttpClient unreachable = HttpClient.create("unreachable", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(closed.getUrl())
+            .retryPolicy(RetryPolicy.NONE)
+            .build());
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(client);
+        sensor.registerClient(unreachable);
+
+        try {
+            Map<String, SendResult> results = sensor.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+
+            assertTrue(results.get("async").isSuccessful());
+            assertFalse(results.get("unreachable").isSuccessful());
+            assertTrue(results.get("unreachable").getError() instanceof IOException);
+
+            SendResult result = sensor.sendAsync(unreachable, envelope).get(5, TimeUnit.SECONDS);
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getError() instanceof IOException);
+            assertEquals(2, unreachable.getStatistics().getFailed().getCount());
+        } finally {
+            unreachable.close();
+        }
+    }
+
+    @Test
+    public void sensorReportsStatusOfBlockingClients() throws Exception {
+        endpoint.setStatusCode(400);
+        HttpClient blocking = HttpClient.create("blocking", options(endpoint.getUrl(), 4));
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(blocking);
+
+        try {
+            SendResult result = sensor.sendAsync(blocking, envelope).get(5, TimeUnit.SECONDS);
+
+            assertFalse(result.isSuccessful());
+            assertEquals(400, result.getStatusCode());
+        } finally {
+            blocking.close();
+        }
+    }
+
+    @Test
+    public void deliverReportsFailureWithoutResponse() throws Exception {
+        String url = endpoint.getUrl();
+        endpoint.close();
+        client = AsyncHttpClient.create("async", options(url, 4));
+
+        SendResult result = client.deliver(envelope);
+
+        assertFalse(result.isSuccessful());
+        assertNotNull(result.getError());
+    }
+
+    private static HttpClientOptions options(String host, int connections) {
+        return HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(host)
+            .maxConnections(connections)
+            .maxConnectionsPerRoute(connections)
+            .maxInFlightRequests(connections)
+            .build();
+    }
+}
@@ -0,0 +1,478 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.spool.SpoolOptions;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class BatchingClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RecordingClient delegate;
+    private BatchingClient client;
+
+    @Before
+    public void setUp() {
+        delegate = new RecordingClient();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        delegate.release();
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void flushesWhenMaxEventsReached() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxBatchEvents(5)
+            .lingerMillis(60000)
+            .build());
+
+        client.send(TestEnvelopes.envelope(12));
+        waitFor(2);
+
+        assertEquals(5, delegate.envelopes.get(0).getData().size());
+        assertEquals(5, delegate.envelopes.get(1).getData().size());
+
+        client.close();
+        assertEquals(3, delegate.envelopes.size());
+        assertEquals(2, delegate.envelopes.get(2).getData().size());
+        assertEquals(12, client.getStatistics().getSuccessful().getSum(), 0);
+    }
+
+    @Test
+    public void flushesWhenLingerExpires() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .lingerMillis(50)
+            .build());
+
+        client.send(TestEnvelopes.envelope(3));
+        waitFor(1);
+
+        assertEquals(3, delegate.envelopes.get(0).getData().size());
+    }
+
+    @Test
+    public void flushesWhenMaxBytesReached() throws Exception {
+        long eventBytes = CaliperSerializer.getDefault().serialize(TestEnvelopes.navigationEvent(0)).length + 1;
+
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxBatchBytes(eventBytes * 3)
+            .lingerMillis(60000)
+            .build());
+
+        client.send(TestEnvelopes.envelope(7));
+        client.close();
+
+        assertEquals(3, delegate.envelopes.size());
+        assertTrue(delegate.envelopes.get(0).getData().size() <= 3);
+        assertEquals(7, delegate.events());
+    }
+
+    @Test
+    public void reusesSizedBytesWhenDelegateSharesSerializer() throws Exception {
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+        delegate.serializer = serializer;
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .lingerMillis(60000)
+            .build());
+
+        Envelope envelope = TestEnvelopes.envelope(3);
+        client.send(envelope);
+        client.close();
+
+        List<CaliperSendable> delivered = delivered();
+        assertEquals(3, delivered.size());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(delivered.get(i) instanceof SerializedSendable);
+            assertArrayEquals(serializer.serialize(envelope.getData().get(i)), serializer.serialize(delivered.get(i)));
+        }
+    }
+
+    @Test
+    public void registersWithSensor() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder().build());
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(client);
+        sensor.send(TestEnvelopes.envelope(4));
+        client.close();
+
+        assertEquals(4, sensor.getStatistics().get("batching").getMeasures().getCount());
+        assertEquals(4, delegate.events());
+    }
+
+    @Test
+    public void dropsNewestWhenQueueIsFull() throws Exception {
+        client = stalled(options(BackpressurePolicy.DROP_NEWEST));
+
+        Envelope envelope = TestEnvelopes.envelope(10);
+        assertFalse(client.offer(envelope));
+        assertEquals(8, client.getStatistics().getDroppedNewest().getCount());
+
+        delegate.release();
+        client.close();
+        assertEquals(envelope.getData().subList(0, 2), delivered().subList(1, 3));
+        assertEquals(3, client.getStatistics().getSuccessful().getSum(), 0);
+    }
+
+    @Test
+    public void dropsOldestWhenQueueIsFull() throws Exception {
+        client = stalled(options(BackpressurePolicy.DROP_OLDEST));
+
+        Envelope envelope = TestEnvelopes.envelope(10);
+        assertTrue(client.offer(envelope));
+        assertEquals(8, client.getStatistics().getDroppedOldest().getCount());
+
+        delegate.release();
+        client.close();
+        assertEquals(envelope.getData().subList(8, 10), delivered().subList(1, 3));
+    }
+
+    @Test
+    public void blocksNoLongerThanTimeout() throws Exception {
+        client = stalled(options(BackpressurePolicy.BLOCK).blockTimeoutMillis(50));
+
+        long start = System.nanoTime();
+        client.send(TestEnvelopes.envelope(4));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("blocked for " + elapsed + "ms", elapsed >= 50 && elapsed < 1000);
+        assertEquals(2, client.getStatistics().getDroppedBlocked().getCount());
+
+        assertFalse(client.offer(TestEnvelopes.envelope(1)));
+        assertEquals(3, client.getStatistics().getDroppedBlocked().getCount());
+    }
+
+    @Test
+    public void spillsToDiskWhenQueueIsFull() throws Exception {
+        client = stalled(options(BackpressurePolicy.SPILL_TO_DISK)
+            .spoolOptions(SpoolOptions.builder().directory(folder.getRoot()).build()));
+
+        Envelope envelope = TestEnvelopes.envelope(10);
+        assertTrue(client.offer(envelope));
+        assertEquals(8, client.getStatistics().getSpilled().getCount());
+        assertEquals(8, client.getSpoolDepth());
+
+        delegate.release();
+        waitFor(11);
+        client.close();
+
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+        List<CaliperSendable> delivered = delivered();
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(serializer.serialize(envelope.getData().get(i)), serializer.serialize(delivered.get(i + 1)));
+        }
+        assertEquals(envelope.getSensorId(), delegate.envelopes.get(10).getSensorId());
+        assertEquals(0, client.getSpoolDepth());
+    }
+
+    @Test
+    public void keepsSpilledSendablesOnDiskUntilDelivered() throws Exception {
+        client = stalled(options(BackpressurePolicy.SPILL_TO_DISK)
+            .spoolOptions(SpoolOptions.builder().directory(folder.getRoot()).build()));
+        assertTrue(client.offer(TestEnvelopes.envelope(3)));
+        assertEquals(1, client.getSpoolDepth());
+
+        delegate.failing = true;
+        delegate.release();
+        awaitAttempts(5);
+
+        assertEquals(0, delegate.events());
+        assertEquals(3, client.getStatistics().getFailed().getSum(), 0);
+        assertEquals(1, client.getSpoolDepth());
+
+        delegate.failing = false;
+        assertTrue(client.flush(10, TimeUnit.SECONDS).isComplete());
+        assertEquals(1, delegate.events());
+        assertEquals(1, client.getStatistics().getSuccessful().getSum(), 0);
+        assertEquals(0, client.getSpoolDepth());
+    }
+
+    @Test
+    public void closeLeavesUndeliveredSpilledSendablesForNextClient() throws Exception {
+        BatchingClientOptions.OptionsBuilder options = options(BackpressurePolicy.SPILL_TO_DISK)
+            .spoolOptions(SpoolOptions.builder().directory(folder.getRoot()).build());
+        client = stalled(options);
+        assertTrue(client.offer(TestEnvelopes.envelope(3)));
+
+        delegate.failing = true;
+        delegate.release();
+        awaitAttempts(4);
+
+        FlushResult result = client.close(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, result.getSpooled());
+        client.close();
+
+        RecordingClient next = new RecordingClient();
+        client = BatchingClient.create("batching", next, options.build());
+        assertTrue(client.flush(10, TimeUnit.SECONDS).isComplete());
+        assertEquals(1, next.events());
+    }
+
+    @Test
+    public void sensorOfferReportsRejection() throws Exception {
+        client = stalled(options(BackpressurePolicy.DROP_NEWEST));
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(client);
+
+        assertTrue(sensor.offer(TestEnvelopes.envelope(2)));
+        assertFalse(sensor.offer(TestEnvelopes.envelope(1)));
+        assertEquals(1, sensor.getStatistics().get("batching").getDroppedNewest().getCount());
+    }
+
+    @Test
+    public void flushDeliversPartialBatchWithoutLingering() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxBatchEvents(100)
+            .lingerMillis(60000)
+            .build());
+
+        client.send(TestEnvelopes.envelope(3));
+        long start = System.nanoTime();
+        FlushResult result = client.flush(10, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isComplete());
+        assertTrue("flush took " + elapsed + "ms", elapsed < 5000);
+        assertEquals(3, delegate.events());
+    }
+
+    @Test
+    public void closeReportsSendablesLeftInMemory() throws Exception {
+        client = stalled(options(BackpressurePolicy.DROP_NEWEST));
+        assertTrue(client.offer(TestEnvelopes.envelope(2)));
+
+        FlushResult result = client.close(100, TimeUnit.MILLISECONDS);
+
+        assertEquals(3, result.getUndelivered());
+        assertEquals(0, result.getSpooled());
+        assertFalse(result.isDurable());
+    }
+
+    @Test
+    public void closeSpillsQueuedSendablesForNextClient() throws Exception {
+        BatchingClientOptions.OptionsBuilder options = options(BackpressurePolicy.SPILL_TO_DISK)
+            .spoolOptions(SpoolOptions.builder().directory(folder.getRoot()).build());
+        client = stalled(options);
+        assertTrue(client.offer(TestEnvelopes.envelope(2)));
+
+        FlushResult result = client.close(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, result.getUndelivered());
+        assertEquals(2, result.getSpooled());
+
+        delegate.release();
+        client.close();
+
+        RecordingClient next = new RecordingClient();
+        client = BatchingClient.create("batching", next, options.build());
+        assertTrue(client.flush(10, TimeUnit.SECONDS).isComplete());
+        assertEquals(2, next.events());
+    }
+
+    @Test
+    public void sensorCloseReportsEachClient() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .lingerMillis(60000)
+            .build());
+
+        Sensor sensor = Sensor.create("https://example.edu/sensors/1");
+        sensor.registerClient(client);
+        sensor.send(TestEnvelopes.envelope(5));
+
+        Map<String, FlushResult> results = sensor.close(10, TimeUnit.SECONDS);
+
+        assertTrue(results.get("batching").isComplete());
+        assertEquals(5, delegate.events());
+    }
+
+    /**
+     * Options for a client with room for two queued sendables, delivered one at a time.
+     * @param policy
+     * @return options builder
+     */
+    private static BatchingClientOptions.OptionsBuilder options(BackpressurePolicy policy) {
+        return BatchingClientOptions.builder()
+            .queueCapacity(2)
+            .maxBatchEvents(1)
+            .backpressurePolicy(policy);
+    }
+
+    /**
+     * Create a client whose delegate is stalled delivering a first sendable, so that the queue
+     * fills up.
+     * @param options
+     * @return client
+     */
+    private BatchingClient stalled(BatchingClientOptions.OptionsBuilder options) throws Exception {
+        delegate.stall();
+        BatchingClient stalled = BatchingClient.create("batching", delegate, options.build());
+        stalled.send(TestEnvelopes.envelope(1));
+        assertTrue(delegate.entered.await(5, TimeUnit.SECONDS));
+        return stalled;
+    }
+
+    @Test
+    public void failsSendablesThatCannotBeSerialized() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .lingerMillis(60000)
+            .build());
+
+        Envelope envelope = TestEnvelopes.envelope(4);
+        List<CaliperSendable> data = new ArrayList<>(envelope.getData());
+        data.add(2, new Unserializable());
+        client.send(new Envelope(envelope.getSensorId(), envelope.getSendTime(), envelope.getDataVersion(), data));
+        client.close();
+
+        assertEquals(envelope.getData(), delivered());
+        assertEquals(1, delegate.envelopes.size());
+        assertEquals(4, client.getStatistics().getSuccessful().getSum(), 0);
+        assertEquals(1, client.getStatistics().getSuccessful().getCount());
+        assertEquals(1, client.getStatistics().getFailed().getSum(), 0);
+    }
+
+    private List<CaliperSendable> delivered() {
+        List<CaliperSendable> sendables = new ArrayList<>();
+        for (Envelope envelope : delegate.envelopes) {
+            sendables.addAll(envelope.getData());
+        }
+        return sendables;
+    }
+
+    private void waitFor(int envelopes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delegate.envelopes.size() < envelopes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Expected " + envelopes + " envelopes", delegate.envelopes.size() >= envelopes);
+    }
+
+    private void awaitAttempts(int attempts) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delegate.attempts.get() < attempts && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Expected " + attempts + " attempts", delegate.attempts.get() >= attempts);
+    }
+
+    /**
+     * Sendable whose serialization always fails.
+     */
+    private static class Unserializable implements CaliperSendable {
+        public String getId() {
+            throw new IllegalStateException("unserializable");
+        }
+    }
+
+    /**
+     * Delegate that records the envelopes it is handed, or fails them while failing is set.
+     */
+    private static class RecordingClient implements CaliperClient {
+        private final List<Envelope> envelopes = new CopyOnWriteArrayList<>();
+        private final Statistics statistics = new Statistics();
+
+        @Override
+        public String getId() {
+            return "recording";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile boolean failing;
+        private volatile CaliperSerializer serializer;
+
+        @Override
+        public CaliperSerializer getSerializer() {
+            return serializer;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            attempts.incrementAndGet();
+            if (failing) {
+                throw new RuntimeException("recording failed");
+            }
+            envelopes.add(envelope);
+        }
+
+        private void stall() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void release() {
+            gate.countDown();
+        }
+
+        private int events() {
+            int count = 0;
+            for (Envelope envelope : envelopes) {
+                count += envelope.getData().size();
+            }
+            return count;
+        }
+    }
+}
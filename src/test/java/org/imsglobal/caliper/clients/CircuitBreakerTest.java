@@ -0,0 +1,137 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CircuitBreakerTest {
+    private ManualTicker ticker;
+    private Statistics statistics;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        ticker = new ManualTicker();
+        statistics = new Statistics();
+        breaker = new CircuitBreaker(3, 1000, statistics, ticker);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        fail(2);
+        breaker.onSuccess(breaker.tryAcquire());
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(-1, breaker.tryAcquire());
+
+        assertEquals(1, statistics.getCircuitOpened().getCount());
+        assertEquals(1, statistics.getCircuitRejected().getCount());
+        assertEquals(CircuitBreaker.State.OPEN.ordinal(), statistics.getCircuitState().getLast(), 0.0);
+    }
+
+    @Test
+    public void halfOpenAdmitsSingleProbe() {
+        fail(3);
+        ticker.advance(1000);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        long probe = breaker.tryAcquire();
+        assertTrue(probe >= 0);
+        assertEquals(-1, breaker.tryAcquire());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire() >= 0);
+        assertTrue(breaker.tryAcquire() >= 0);
+    }
+
+    @Test
+    public void failedProbeReopens() {
+        fail(3);
+        ticker.advance(1000);
+        long probe = breaker.tryAcquire();
+        assertTrue(probe >= 0);
+
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(-1, breaker.tryAcquire());
+
+        ticker.advance(999);
+        assertEquals(-1, breaker.tryAcquire());
+        ticker.advance(1);
+        assertTrue(breaker.tryAcquire() >= 0);
+        assertEquals(2, statistics.getCircuitOpened().getCount());
+    }
+
+    @Test
+    public void ignoresOutcomesOfRequestsStartedBeforeOpening() {
+        long late = breaker.tryAcquire();
+        long later = breaker.tryAcquire();
+        fail(3);
+
+        breaker.onSuccess(late);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(-1, breaker.tryAcquire());
+
+        ticker.advance(1000);
+        long probe = breaker.tryAcquire();
+        breaker.onSuccess(later);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(later);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, statistics.getCircuitOpened().getCount());
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            long ticket = breaker.tryAcquire();
+            assertTrue(ticket >= 0);
+            breaker.onFailure(ticket);
+        }
+    }
+
+    private static class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
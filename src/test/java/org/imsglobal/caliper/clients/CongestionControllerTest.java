@@ -0,0 +1,137 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CongestionControllerTest {
+    private ManualTicker ticker;
+    private Statistics statistics;
+    private CongestionController controller;
+
+    @Before
+    public void setUp() {
+        ticker = new ManualTicker();
+        statistics = new Statistics();
+        controller = new CongestionController(CongestionPolicy.builder()
+            .targetLatencyMillis(100)
+            .maxBatchEvents(10)
+            .build(), 4, statistics, ticker);
+    }
+
+    @Test
+    public void growsAdditivelyWithinTargetLatency() throws Exception {
+        assertEquals(1, controller.getConcurrencyLimit());
+        assertEquals(1, controller.getBatchLimit());
+
+        respond(1, 200, 50);
+        assertEquals(2, controller.getConcurrencyLimit());
+        assertEquals(2, controller.getBatchLimit());
+
+        respond(20, 200, 50);
+        assertEquals(4, controller.getConcurrencyLimit());
+        assertEquals(10, controller.getBatchLimit());
+
+        assertEquals(4.0, statistics.getConcurrencyLimit().getLast(), 0.0);
+        assertEquals(10.0, statistics.getBatchLimit().getLast(), 0.0);
+        assertEquals(21, statistics.getLatency().getCount());
+    }
+
+    @Test
+    public void holdsWhenLatencyExceedsTarget() throws Exception {
+        respond(5, 200, 150);
+        assertEquals(1, controller.getConcurrencyLimit());
+        assertEquals(1, controller.getBatchLimit());
+        assertEquals(150.0, statistics.getLatency().getLast(), 0.0);
+    }
+
+    @Test
+    public void cutsMultiplicativelyOncePerRoundTrip() throws Exception {
+        respond(20, 200, 50);
+
+        long[] tickets = new long[4];
+        for (int i = 0; i < tickets.length; i++) {
+            tickets[i] = controller.acquire(0, TimeUnit.MILLISECONDS);
+        }
+        for (long ticket : tickets) {
+            controller.onResponse(ticket, 429, 50, 0);
+        }
+        assertEquals(2, controller.getConcurrencyLimit());
+        assertEquals(5, controller.getBatchLimit());
+
+        respond(1, 503, 50);
+        assertEquals(1, controller.getConcurrencyLimit());
+        assertEquals(2, controller.getBatchLimit());
+    }
+
+    @Test
+    public void honorsRetryAfter() throws Exception {
+        respond(1, 200, 50);
+        controller.onResponse(controller.acquire(0, TimeUnit.MILLISECONDS), 503, 50, 1000);
+
+        assertEquals(1000, controller.getPauseMillis());
+        assertEquals(-1, controller.acquire(10, TimeUnit.MILLISECONDS));
+
+        ticker.advance(1000);
+        assertEquals(0, controller.getPauseMillis());
+        assertTrue(controller.acquire(0, TimeUnit.MILLISECONDS) >= 0);
+    }
+
+    @Test
+    public void limitsConcurrency() throws Exception {
+        long ticket = controller.acquire(0, TimeUnit.MILLISECONDS);
+        assertEquals(-1, controller.acquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, controller.getInFlight());
+
+        controller.onFailure(ticket);
+        assertEquals(1, controller.getConcurrencyLimit());
+        assertTrue(controller.acquire(0, TimeUnit.MILLISECONDS) >= 0);
+    }
+
+    private void respond(int times, int statusCode, long latencyMillis) throws InterruptedException {
+        for (int i = 0; i < times; i++) {
+            long ticket = controller.acquire(0, TimeUnit.MILLISECONDS);
+            assertTrue(ticket >= 0);
+            controller.onResponse(ticket, statusCode, latencyMillis, 0);
+        }
+    }
+
+    private static class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
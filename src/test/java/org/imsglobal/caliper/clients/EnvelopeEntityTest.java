@@ -0,0 +1,139 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.io.ByteStreams;
+import org.apache.http.util.EntityUtils;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class EnvelopeEntityTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    @Test
+    public void writesEnvelopeInSmallChunks() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(1000);
+        byte[] json = CaliperSerializer.getDefault().serialize(envelope);
+        EnvelopeEntity entity = new EnvelopeEntity(envelope, CaliperSerializer.getDefault(), Compression.NONE, -1);
+
+        RecordingOutputStream out = new RecordingOutputStream();
+        entity.writeTo(out);
+
+        assertArrayEquals(json, out.toByteArray());
+        assertTrue("largest write was " + out.largestWrite + " bytes", out.largestWrite <= 16 * 1024);
+        assertFalse(out.closed);
+        assertTrue(entity.isChunked());
+        assertEquals(-1, entity.getContentLength());
+    }
+
+    @Test
+    public void isRepeatable() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(10);
+        EnvelopeEntity entity = new EnvelopeEntity(envelope, CaliperSerializer.getDefault(), Compression.GZIP, -1);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        entity.writeTo(first);
+        entity.writeTo(second);
+
+        assertTrue(entity.isRepeatable());
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+    }
+
+    @Test
+    public void readsContentAsWritten() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(10);
+        byte[] json = CaliperSerializer.getDefault().serialize(envelope);
+
+        EnvelopeEntity plain = new EnvelopeEntity(envelope, CaliperSerializer.getDefault(), Compression.NONE, -1);
+        assertArrayEquals(json, EntityUtils.toByteArray(plain));
+
+        EnvelopeEntity gzip = new EnvelopeEntity(envelope, CaliperSerializer.getDefault(), Compression.GZIP, -1);
+        try (InputStream content = new GZIPInputStream(gzip.getContent())) {
+            assertArrayEquals(json, ByteStreams.toByteArray(content));
+        }
+    }
+
+    @Test
+    public void httpClientStreamsChunkedBody() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(100);
+        byte[] json = CaliperSerializer.getDefault().serialize(envelope);
+
+        try (StubEndpoint endpoint = StubEndpoint.start(0)) {
+            HttpClientOptions opts = HttpClientOptions.builder()
+                .apiKey(API_KEY)
+                .host(endpoint.getUrl())
+                .streaming(true)
+                .compression(Compression.GZIP)
+                .build();
+
+            try (HttpClient client = HttpClient.create("streaming", opts)) {
+                client.send(envelope);
+                assertEquals(1, client.getStatistics().getSuccessful().getCount());
+            }
+
+            assertEquals("chunked", endpoint.getLastHeader("Transfer-Encoding"));
+            assertEquals("gzip", endpoint.getLastContentEncoding());
+            assertArrayEquals(json, endpoint.getLastBody());
+        }
+    }
+
+    private static class RecordingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private int largestWrite;
+        private boolean closed;
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+            largestWrite = Math.max(largestWrite, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.write(b, off, len);
+            largestWrite = Math.max(largestWrite, len);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class FileClientTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesOneLinePerEvent() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(5);
+
+        try (FileClient client = FileClient.create("file", options().build())) {
+            client.send(envelope);
+            client.send(envelope);
+        }
+
+        List<String> lines = lines(segment(1));
+        assertEquals(10, lines.size());
+        for (String line : lines) {
+            assertEquals("NavigationEvent", MAPPER.readTree(line).get("type").asText());
+        }
+
+        List<JsonNode> index = index();
+        assertEquals(1, index.size());
+        assertEquals("caliper-000001.ndjson", index.get(0).get("segment").asText());
+        assertEquals(10, index.get(0).get("events").asInt());
+        assertEquals("2016-11-15T10:15:00.000Z", index.get(0).get("firstEventTime").asText());
+        assertEquals("2016-11-15T10:15:04.000Z", index.get(0).get("lastEventTime").asText());
+    }
+
+    @Test
+    public void rotatesBySize() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(1);
+        long envelopeBytes;
+
+        try (FileClient client = FileClient.create("file", options().maxSegmentBytes(1).build())) {
+            for (int i = 0; i < 4; i++) {
+                client.send(envelope);
+            }
+            envelopeBytes = client.getSegment().length();
+            assertEquals(3.0, client.getStatistics().getRotations().getCount(), 0.0);
+        }
+
+        List<JsonNode> index = index();
+        assertEquals(4, index.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.format("caliper-%06d.ndjson", i + 1), index.get(i).get("segment").asText());
+            assertEquals(envelopeBytes, index.get(i).get("bytes").asLong());
+            assertEquals(1, lines(segment(i + 1)).size());
+        }
+    }
+
+    @Test
+    public void rotatesIdleSegmentByTime() throws Exception {
+        try (FileClient client = FileClient.create("file", options().rotateIntervalMillis(100).build())) {
+            client.send(TestEnvelopes.envelope(1));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (index().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, index().size());
+
+            client.send(TestEnvelopes.envelope(1));
+            assertEquals(new File(folder.getRoot(), "caliper-000002.ndjson"), client.getSegment());
+        }
+    }
+
+    @Test
+    public void compressesClosedSegments() throws Exception {
+        try (FileClient client = FileClient.create("file", options().maxSegmentBytes(1).compress(true).build())) {
+            client.send(TestEnvelopes.envelope(3));
+            client.send(TestEnvelopes.envelope(3));
+        }
+
+        for (int i = 1; i <= 2; i++) {
+            File compressed = new File(folder.getRoot(), String.format("caliper-%06d.ndjson.gz", i));
+            assertTrue(compressed.exists());
+            assertFalse(segment(i).exists());
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+                String text = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+                assertEquals(3, text.split("\n").length);
+            }
+        }
+        assertEquals("caliper-000002.ndjson.gz", index().get(1).get("segment").asText());
+    }
+
+    @Test
+    public void continuesNumberingAfterRestart() throws Exception {
+        try (FileClient client = FileClient.create("file", options().build())) {
+            client.send(TestEnvelopes.envelope(1));
+        }
+        try (FileClient client = FileClient.create("file", options().build())) {
+            client.send(TestEnvelopes.envelope(1));
+            assertEquals(segment(2), client.getSegment());
+        }
+
+        assertEquals(1, lines(segment(1)).size());
+        assertEquals(2, index().size());
+    }
+
+    private FileClientOptions.OptionsBuilder options() {
+        return FileClientOptions.builder().directory(folder.getRoot());
+    }
+
+    private File segment(int sequence) {
+        return new File(folder.getRoot(), String.format("caliper-%06d.ndjson", sequence));
+    }
+
+    private List<JsonNode> index() throws IOException {
+        List<JsonNode> entries = new ArrayList<>();
+        File index = new File(folder.getRoot(), "caliper-index.ndjson");
+        if (index.exists()) {
+            for (String line : lines(index)) {
+                entries.add(MAPPER.readTree(line));
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> lines(File file) throws IOException {
+        assertNotNull(file);
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
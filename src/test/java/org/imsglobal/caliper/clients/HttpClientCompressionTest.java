@@ -0,0 +1,117 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.config.Compression;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientCompressionTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private StubEndpoint endpoint;
+    private Envelope envelope;
+    private byte[] json;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(0);
+        envelope = TestEnvelopes.envelope(10);
+        json = CaliperSerializer.getDefault().serialize(envelope);
+    }
+
+    @After
+    public void teardown() {
+        endpoint.close();
+    }
+
+    @Test
+    public void gzipCompressesLargeEnvelopes() throws Exception {
+        try (HttpClient client = HttpClient.create("gzip", options(Compression.GZIP, 1024))) {
+            client.send(envelope);
+        }
+
+        assertEquals("gzip", endpoint.getLastContentEncoding());
+        assertArrayEquals(json, endpoint.getLastBody());
+        assertTrue(endpoint.getBytesReceived() < json.length / 4);
+    }
+
+    @Test
+    public void deflateCompressesLargeEnvelopes() throws Exception {
+        try (HttpClient client = HttpClient.create("deflate", options(Compression.DEFLATE, 1024))) {
+            client.send(envelope);
+        }
+
+        assertEquals("deflate", endpoint.getLastContentEncoding());
+        assertArrayEquals(json, endpoint.getLastBody());
+        assertTrue(endpoint.getBytesReceived() < json.length / 4);
+    }
+
+    @Test
+    public void envelopesBelowThresholdAreSentAsIs() throws Exception {
+        try (HttpClient client = HttpClient.create("gzip", options(Compression.GZIP, json.length + 1))) {
+            client.send(envelope);
+        }
+
+        assertNull(endpoint.getLastContentEncoding());
+        assertArrayEquals(json, endpoint.getLastBody());
+        assertEquals(json.length, endpoint.getBytesReceived());
+    }
+
+    @Test
+    public void asyncClientReportsCompressedSize() throws Exception {
+        try (AsyncHttpClient client = AsyncHttpClient.create("gzip", options(Compression.GZIP, 0))) {
+            SendResult result = client.sendAsync(envelope).get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccessful());
+            assertEquals(endpoint.getBytesReceived(), result.getBytesSent());
+        }
+
+        assertEquals("gzip", endpoint.getLastContentEncoding());
+        assertArrayEquals(json, endpoint.getLastBody());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCompressionLevel() {
+        HttpClientOptions.builder().apiKey(API_KEY).compressionLevel(10).build();
+    }
+
+    private HttpClientOptions options(Compression compression, int threshold) {
+        return HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .compression(compression)
+            .compressionThreshold(threshold)
+            .build();
+    }
+}
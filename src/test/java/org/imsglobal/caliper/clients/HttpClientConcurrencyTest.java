@@ -0,0 +1,146 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress HttpClient from many threads against a local stub with fixed latency.
+ */
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientConcurrencyTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+    private static final int THREADS = 16;
+    private static final int ENVELOPES = 64;
+    private static final long LATENCY_MILLIS = 25;
+
+    private StubEndpoint endpoint;
+    private ExecutorService executor;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(LATENCY_MILLIS);
+        executor = Executors.newFixedThreadPool(THREADS);
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        endpoint.close();
+    }
+
+    @Test
+    public void concurrentSendsAreAllCounted() throws Exception {
+        HttpClient client = create(8);
+        try {
+            run(client);
+        } finally {
+            client.close();
+        }
+
+        assertEquals(ENVELOPES, endpoint.getRequests());
+        assertEquals(ENVELOPES, client.getStatistics().getSuccessful().getCount());
+        assertEquals(0, client.getStatistics().getFailed().getCount());
+        assertEquals(0, client.getInFlightRequests());
+    }
+
+    @Test
+    public void inFlightRequestsNeverExceedLimit() throws Exception {
+        for (int limit : new int[] {1, 4}) {
+            endpoint.reset();
+            HttpClient client = create(limit);
+            try {
+                run(client);
+            } finally {
+                client.close();
+            }
+
+            assertTrue("peak " + endpoint.getPeakConcurrent() + " exceeds limit " + limit,
+                endpoint.getPeakConcurrent() <= limit);
+        }
+    }
+
+    @Test
+    public void throughputScalesWithLimit() throws Exception {
+        double serial = throughput(1);
+        double parallel = throughput(8);
+
+        assertTrue(String.format("expected limit 8 (%.1f/s) to outpace limit 1 (%.1f/s) at least 3x",
+            parallel, serial), parallel > serial * 3);
+    }
+
+    private double throughput(int limit) throws Exception {
+        HttpClient client = create(limit);
+        try {
+            run(client); // warm up the pool
+            long start = System.nanoTime();
+            run(client);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return ENVELOPES / seconds;
+        } finally {
+            client.close();
+        }
+    }
+
+    private HttpClient create(int limit) {
+        HttpClientOptions opts = HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .maxConnections(THREADS)
+            .maxConnectionsPerRoute(THREADS)
+            .maxInFlightRequests(limit)
+            .build();
+
+        return HttpClient.create("stress-" + limit, opts);
+    }
+
+    private void run(final HttpClient client) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ENVELOPES; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    client.send(envelope);
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientCongestionTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private StubEndpoint endpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(0);
+    }
+
+    @After
+    public void teardown() {
+        endpoint.close();
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        assertEquals(120000, HttpClient.retryAfterMillis(response("120")));
+        assertEquals(0, HttpClient.retryAfterMillis(response("soon")));
+        assertEquals(0, HttpClient.retryAfterMillis(response(null)));
+
+        long millis = HttpClient.retryAfterMillis(response(DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000))));
+        assertTrue("retry after " + millis, millis > 50000 && millis <= 60000);
+    }
+
+    @Test
+    public void cutsLimitsOnThrottling() throws Exception {
+        try (HttpClient client = HttpClient.create("congestion", options())) {
+            CongestionController controller = client.getCongestionController();
+            for (int i = 0; i < 5; i++) {
+                client.send(TestEnvelopes.envelope(1));
+            }
+            assertEquals(3, controller.getConcurrencyLimit());
+            assertEquals(6, controller.getBatchLimit());
+
+            endpoint.setStatusCode(429);
+            endpoint.setResponseHeader("Retry-After", "1");
+            try {
+                client.send(TestEnvelopes.envelope(1));
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("429"));
+            }
+
+            assertEquals(1, controller.getConcurrencyLimit());
+            assertEquals(3, controller.getBatchLimit());
+            assertTrue(controller.getPauseMillis() > 0);
+            assertEquals(6, client.getStatistics().getLatency().getCount());
+            assertEquals(1.0, client.getStatistics().getConcurrencyLimit().getLast(), 0.0);
+        }
+    }
+
+    @Test
+    public void batchingClientFollowsBatchLimit() throws Exception {
+        endpoint.setLatencyMillis(20);
+
+        try (HttpClient http = HttpClient.create("congestion", options())) {
+            BatchingClient client = BatchingClient.create("batching", http, BatchingClientOptions.builder()
+                .lingerMillis(10)
+                .build());
+            client.send(TestEnvelopes.envelope(20));
+            client.close();
+
+            assertEquals(20, client.getStatistics().getSuccessful().getSum(), 0);
+            assertTrue("requests " + endpoint.getRequests(), endpoint.getRequests() >= 5);
+            assertTrue(http.getCongestionController().getBatchLimit() > 1);
+        }
+    }
+
+    private HttpClientOptions options() {
+        return HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .retryPolicy(RetryPolicy.NONE)
+            .congestionPolicy(CongestionPolicy.builder().build())
+            .build();
+    }
+
+    private static HttpResponse response(String retryAfter) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, "Service Unavailable");
+        if (retryAfter != null) {
+            response.setHeader("Retry-After", retryAfter);
+        }
+        return response;
+    }
+}
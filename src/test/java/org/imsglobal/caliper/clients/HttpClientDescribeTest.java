@@ -0,0 +1,113 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientDescribeTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+    private static final String ACTOR_ID = "https://example.edu/users/554433";
+
+    private StubEndpoint endpoint;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(0);
+        client = HttpClient.create("http", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .retryPolicy(RetryPolicy.NONE)
+            .streaming(true)
+            .describePolicy(DescribePolicy.builder().build())
+            .build());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        client.close();
+        endpoint.close();
+    }
+
+    @Test
+    public void sendsDescribedEntitiesAsIds() throws Exception {
+        client.send(TestEnvelopes.envelope(3));
+        assertTrue(lastData().get(0).get("actor").isObject());
+
+        client.send(TestEnvelopes.envelope(3));
+        assertEquals(ACTOR_ID, lastData().get(0).get("actor").asText());
+        assertTrue(client.getStatistics().getDescribes().getCount() > 0);
+    }
+
+    @Test
+    public void recordsDescriptionsOnlyOnceDelivered() throws Exception {
+        endpoint.setStatusCode(400);
+        try {
+            client.send(TestEnvelopes.envelope(3));
+        } catch (RuntimeException e) {
+            // Rejected envelopes are reported by throwing
+        }
+        assertEquals(0, client.getDescribeCache().size());
+        assertEquals(0, client.getStatistics().getDescribes().getCount());
+
+        endpoint.setStatusCode(200);
+        client.send(TestEnvelopes.envelope(3));
+        assertTrue(lastData().get(0).get("actor").isObject());
+        assertTrue(client.getDescribeCache().size() > 0);
+    }
+
+    @Test
+    public void keepsDeliveredDescriptionsAfterFailedDelivery() throws Exception {
+        client.send(TestEnvelopes.envelope(3));
+        long described = client.getDescribeCache().size();
+
+        endpoint.setStatusCode(400);
+        assertFalse(client.deliver(TestEnvelopes.envelope(3)).isSuccessful());
+        assertEquals(described, client.getDescribeCache().size());
+
+        endpoint.setStatusCode(200);
+        client.send(TestEnvelopes.envelope(3));
+        assertEquals(ACTOR_ID, lastData().get(0).get("actor").asText());
+    }
+
+    @Test
+    public void usesSerializerOfItsOwn() {
+        assertNotSame(CaliperSerializer.getDefault(), client.getSerializer());
+        assertEquals(client.getDescribeCache(), client.getSerializer().getDescribeCache());
+    }
+
+    private JsonNode lastData() throws Exception {
+        return new ObjectMapper().readTree(endpoint.getLastBody()).get("data");
+    }
+}
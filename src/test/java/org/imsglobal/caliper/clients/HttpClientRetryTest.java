@@ -0,0 +1,232 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientRetryTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private StubEndpoint endpoint;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(0);
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() {
+        endpoint.close();
+    }
+
+    @Test
+    public void retriesRetryableStatusUpToMaxAttempts() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (HttpClient client = HttpClient.create("retry", options(policy(4), 100))) {
+            try {
+                client.send(envelope);
+                fail("Expected status code failure");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("503"));
+            }
+
+            assertEquals(4, endpoint.getRequests());
+            assertEquals(3, client.getStatistics().getRetries().getCount());
+            assertEquals(1, client.getStatistics().getFailed().getCount());
+        }
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        endpoint.setStatusCode(400);
+
+        try (HttpClient client = HttpClient.create("retry", options(policy(4), 100))) {
+            try {
+                client.send(envelope);
+                fail("Expected status code failure");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("400"));
+            }
+
+            assertEquals(1, endpoint.getRequests());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker().getState());
+        }
+    }
+
+    @Test
+    public void retriesConnectionFailures() throws Exception {
+        String url = endpoint.getUrl();
+        endpoint.close();
+
+        try (HttpClient client = HttpClient.create("retry", options(url, policy(3), 100))) {
+            client.send(envelope);
+
+            assertEquals(2, client.getStatistics().getRetries().getCount());
+            assertEquals(1, client.getStatistics().getFailed().getCount());
+        }
+    }
+
+    @Test
+    public void openCircuitFailsFast() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (HttpClient client = HttpClient.create("retry", options(RetryPolicy.NONE, 2))) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    client.send(envelope);
+                } catch (RuntimeException e) {
+                    // expected
+                }
+            }
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().getState());
+
+            endpoint.reset();
+            client.send(envelope);
+
+            assertEquals(0, endpoint.getRequests());
+            assertEquals(3, client.getStatistics().getFailed().getCount());
+            assertEquals(1, client.getStatistics().getCircuitRejected().getCount());
+            assertEquals(1, client.getStatistics().getCircuitOpened().getCount());
+        }
+    }
+
+    @Test
+    public void deliverReportsConnectionFailures() throws Exception {
+        String url = endpoint.getUrl();
+        endpoint.close();
+
+        try (HttpClient client = HttpClient.create("retry", options(url, policy(2), 100))) {
+            SendResult result = client.deliver(envelope);
+
+            assertFalse(result.isSuccessful());
+            assertEquals(SendResult.NO_STATUS, result.getStatusCode());
+            assertTrue(result.getError() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void deliverReportsOpenCircuit() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (HttpClient client = HttpClient.create("retry", options(RetryPolicy.NONE, 1))) {
+            assertEquals(503, client.deliver(envelope).getStatusCode());
+            assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker().getState());
+
+            SendResult result = client.deliver(envelope);
+
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getError() instanceof CircuitBreakerOpenException);
+        }
+    }
+
+    @Test
+    public void localWaitFailuresNeitherOpenCircuitNorRetry() throws Exception {
+        try (HttpClient client = HttpClient.create("retry", options(policy(4), 1))) {
+            Thread.currentThread().interrupt();
+            SendResult result = client.deliver(envelope);
+            assertTrue(Thread.interrupted());
+
+            assertTrue(result.getError() instanceof InterruptedIOException);
+            assertEquals(0, endpoint.getRequests());
+            assertEquals(0, client.getStatistics().getRetries().getCount());
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker().getState());
+        }
+    }
+
+    @Test
+    public void retriesAndCircuitBreakerAreOffByDefault() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (HttpClient client = HttpClient.create("retry", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .build())) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(503, client.deliver(envelope).getStatusCode());
+            }
+
+            assertNull(client.getCircuitBreaker());
+            assertEquals(10, endpoint.getRequests());
+            assertEquals(0, client.getStatistics().getRetries().getCount());
+        }
+    }
+
+    @Test
+    public void deliverReportsStatusCode() throws Exception {
+        try (HttpClient client = HttpClient.create("retry", options(policy(4), 100))) {
+            SendResult result = client.deliver(envelope);
+            assertTrue(result.isSuccessful());
+            assertEquals(200, result.getStatusCode());
+            assertTrue(result.getBytesSent() > 0);
+
+            endpoint.setStatusCode(400);
+            result = client.deliver(envelope);
+            assertFalse(result.isSuccessful());
+            assertEquals(400, result.getStatusCode());
+            assertEquals(1, client.getStatistics().getFailed().getCount());
+        }
+    }
+
+    @Test
+    public void backoffIsCappedAndJittered() {
+        RetryPolicy policy = RetryPolicy.builder().backoffBaseMillis(100).backoffCapMillis(1000).jitter(0.5).build();
+
+        for (int attempt = 1; attempt < 100; attempt++) {
+            long expected = Math.min(1000, 100L << Math.min(attempt - 1, 20));
+            long delay = policy.backoffMillis(attempt);
+            assertTrue("attempt " + attempt + " delay " + delay, delay <= expected && delay >= expected / 2);
+        }
+    }
+
+    private static RetryPolicy policy(int maxAttempts) {
+        return RetryPolicy.builder().maxAttempts(maxAttempts).backoffBaseMillis(1).backoffCapMillis(5).build();
+    }
+
+    private HttpClientOptions options(RetryPolicy policy, int threshold) {
+        return options(endpoint.getUrl(), policy, threshold);
+    }
+
+    private static HttpClientOptions options(String host, RetryPolicy policy, int threshold) {
+        return HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(host)
+            .retryPolicy(policy)
+            .circuitBreakerThreshold(threshold)
+            .build();
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    @Test
+    public void poolDefaultsToOptionDefaults() throws Exception {
+        HttpClientOptions opts = HttpClientOptions.builder().apiKey(API_KEY).build();
+
+        try (HttpClient client = HttpClient.create("default", opts)) {
+            assertEquals(HttpClientOptions.MAX_CONNECTIONS, client.getConnectionManager().getMaxTotal());
+            assertEquals(HttpClientOptions.MAX_CONNECTIONS_PER_ROUTE, client.getConnectionManager().getDefaultMaxPerRoute());
+            assertEquals(HttpClientOptions.CONNECTION_REQUEST_TIMEOUT, opts.getConnectionRequestTimeout());
+        }
+    }
+
+    @Test
+    public void poolIsSizedPerClient() throws Exception {
+        HttpClientOptions small = HttpClientOptions.builder().apiKey(API_KEY)
+            .maxConnections(4)
+            .maxConnectionsPerRoute(2)
+            .build();
+        HttpClientOptions large = HttpClientOptions.builder().apiKey(API_KEY)
+            .maxConnections(200)
+            .maxConnectionsPerRoute(100)
+            .build();
+
+        try (HttpClient first = HttpClient.create("small", small);
+             HttpClient second = HttpClient.create("large", large)) {
+            assertNotSame(first.getConnectionManager(), second.getConnectionManager());
+            assertEquals(4, first.getConnectionManager().getMaxTotal());
+            assertEquals(2, first.getConnectionManager().getDefaultMaxPerRoute());
+            assertEquals(200, second.getConnectionManager().getMaxTotal());
+            assertEquals(100, second.getConnectionManager().getDefaultMaxPerRoute());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPool() {
+        HttpClientOptions.builder().apiKey(API_KEY).maxConnections(0).build();
+    }
+}
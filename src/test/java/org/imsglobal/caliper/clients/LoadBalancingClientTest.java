@@ -0,0 +1,222 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class LoadBalancingClientTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    private List<StubEndpoint> stubs;
+    private List<HttpClient> clients;
+    private LoadBalancingClient client;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() throws Exception {
+        stubs = new ArrayList<>();
+        clients = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            StubEndpoint stub = StubEndpoint.start(0);
+            stubs.add(stub);
+            clients.add(HttpClient.create("http-" + i, HttpClientOptions.builder()
+                .apiKey(API_KEY)
+                .host(stub.getUrl())
+                .build()));
+        }
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        for (HttpClient http : clients) {
+            http.close();
+        }
+        for (StubEndpoint stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    public void spreadsEnvelopesRoundRobin() {
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder().build());
+
+        for (int i = 0; i < 9; i++) {
+            client.send(envelope);
+        }
+
+        for (StubEndpoint stub : stubs) {
+            assertEquals(3, stub.getRequests());
+        }
+        assertEquals(9, client.getStatistics().getSuccessful().getCount());
+    }
+
+    @Test
+    public void prefersLeastOutstandingEndpoint() throws Exception {
+        stubs.get(0).setLatencyMillis(200);
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder()
+            .strategy(LoadBalancingStrategy.LEAST_OUTSTANDING)
+            .build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        client.send(envelope);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40, client.getStatistics().getSuccessful().getCount());
+        assertTrue("slow endpoint took " + stubs.get(0).getRequests(),
+            stubs.get(0).getRequests() < stubs.get(1).getRequests());
+    }
+
+    @Test
+    public void failsOverAndEjectsFailingEndpoint() {
+        stubs.get(0).setStatusCode(503);
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder().build());
+
+        for (int i = 0; i < 12; i++) {
+            client.send(envelope);
+        }
+
+        assertEquals(12, client.getStatistics().getSuccessful().getCount());
+        assertEquals(3, stubs.get(0).getRequests());
+        assertEquals(3, client.getStatistics().getFailovers().getCount());
+        assertEquals(1, client.getStatistics().getEjections().getCount());
+        assertEquals(2.0, client.getStatistics().getHealthyEndpoints().getLast(), 0.0);
+        assertEquals(clients.subList(1, 3), client.getHealthyEndpoints());
+    }
+
+    @Test
+    public void readmitsEndpointAfterHealthProbe() throws Exception {
+        stubs.get(0).setStatusCode(503);
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder()
+            .ejectionThreshold(1)
+            .probeIntervalMillis(20)
+            .build());
+
+        client.send(envelope);
+        assertEquals(2, client.getHealthyEndpoints().size());
+
+        stubs.get(0).setStatusCode(200);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.getHealthyEndpoints().size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, client.getHealthyEndpoints().size());
+
+        stubs.get(0).reset();
+        for (int i = 0; i < 3; i++) {
+            client.send(envelope);
+        }
+        assertEquals(1, stubs.get(0).getRequests());
+    }
+
+    @Test
+    public void failsWhenNoEndpointIsHealthy() {
+        for (StubEndpoint stub : stubs) {
+            stub.setStatusCode(503);
+        }
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder()
+            .ejectionThreshold(1)
+            .probeIntervalMillis(60000)
+            .build());
+
+        client.send(envelope);
+        client.send(envelope);
+
+        assertEquals(2, client.getStatistics().getFailed().getCount());
+        assertEquals(0.0, client.getStatistics().getHealthyEndpoints().getLast(), 0.0);
+        assertEquals(3, stubs.get(0).getRequests() + stubs.get(1).getRequests() + stubs.get(2).getRequests());
+    }
+
+    @Test
+    public void reportsFailureOnceEveryEndpointIsEjected() throws Exception {
+        for (StubEndpoint stub : stubs) {
+            stub.setStatusCode(503);
+        }
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder()
+            .ejectionThreshold(1)
+            .probeIntervalMillis(60000)
+            .build());
+
+        SendResult first = client.deliver(envelope);
+        assertFalse(first.isSuccessful());
+        assertTrue(first.getError() instanceof IOException);
+        assertTrue(client.getHealthyEndpoints().isEmpty());
+
+        SendResult ejected = client.deliver(CaliperSerializer.getDefault().serializeEnvelope(envelope));
+        assertFalse(ejected.isSuccessful());
+        assertTrue(ejected.getError() instanceof IOException);
+        assertEquals(3, stubs.get(0).getRequests() + stubs.get(1).getRequests() + stubs.get(2).getRequests());
+        assertEquals(2, client.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void doesNotFailOverRejectedEnvelopes() {
+        for (StubEndpoint stub : stubs) {
+            stub.setStatusCode(400);
+        }
+        client = LoadBalancingClient.create("balancing", clients, LoadBalancingClientOptions.builder().build());
+
+        try {
+            client.send(envelope);
+            fail("Expected status code failure");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("400"));
+        }
+        assertEquals(1, stubs.get(0).getRequests() + stubs.get(1).getRequests() + stubs.get(2).getRequests());
+        assertEquals(0, client.getStatistics().getEjections().getCount());
+    }
+}
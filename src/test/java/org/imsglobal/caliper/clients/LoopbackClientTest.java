@@ -0,0 +1,80 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.databind.SerializedEnvelope;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class LoopbackClientTest {
+
+    @Test
+    public void keepsMostRecentEnvelopesOldestFirst() throws Exception {
+        LoopbackClient client = LoopbackClient.create("loopback", LoopbackClientOptions.builder().capacity(3).build());
+
+        long bytes = 0;
+        for (int i = 1; i <= 5; i++) {
+            Envelope envelope = TestEnvelopes.envelope(i);
+            bytes += CaliperSerializer.getDefault().serialize(envelope).length;
+            client.send(envelope);
+        }
+
+        List<ByteBuffer> captured = client.getCaptured();
+        assertEquals(3, captured.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(text(CaliperSerializer.getDefault().serialize(TestEnvelopes.envelope(i + 3))),
+                text(captured.get(i)));
+        }
+        assertEquals(5, client.getCapturedCount());
+        assertEquals(bytes, client.getBytesCaptured());
+        assertEquals(5, client.getStatistics().getSuccessful().getCount());
+    }
+
+    @Test
+    public void capturesSharedBytes() throws Exception {
+        LoopbackClient client = LoopbackClient.create("loopback", LoopbackClientOptions.builder().build());
+        SerializedEnvelope serialized = CaliperSerializer.getDefault().serializeEnvelope(TestEnvelopes.envelope(2));
+
+        client.send(serialized);
+
+        assertEquals(text(serialized.toByteArray()), text(client.getCaptured().get(0)));
+        assertEquals(serialized.size(), client.getBytesCaptured());
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return text(bytes);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class RateLimiterTest {
+    private ManualTicker ticker;
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        ticker = new ManualTicker();
+        statistics = new Statistics();
+    }
+
+    @Test
+    public void allowsBurstThenPacesEvents() {
+        RateLimiter limiter = new RateLimiter(RateLimitPolicy.builder()
+            .eventsPerSecond(10)
+            .eventBurst(5)
+            .build(), statistics, ticker);
+
+        assertEquals(0, limiter.reserve(5, 0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1, 0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), limiter.reserve(1, 0));
+
+        ticker.advance(200);
+        assertEquals(0, limiter.reserve(0, 0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1, 0));
+    }
+
+    @Test
+    public void refillsUpToBurst() {
+        RateLimiter limiter = new RateLimiter(RateLimitPolicy.builder()
+            .eventsPerSecond(10)
+            .eventBurst(5)
+            .build(), statistics, ticker);
+
+        limiter.reserve(5, 0);
+        ticker.advance(10000);
+
+        assertEquals(5.0, limiter.getAvailableEvents(), 0.0);
+        assertEquals(0, limiter.reserve(5, 0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.reserve(1, 0));
+    }
+
+    @Test
+    public void waitsForTheScarcerResource() {
+        RateLimiter limiter = new RateLimiter(RateLimitPolicy.builder()
+            .eventsPerSecond(100)
+            .bytesPerSecond(1000)
+            .build(), statistics, ticker);
+
+        assertEquals(0, limiter.reserve(1, 1000));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.reserve(1, 500));
+    }
+
+    @Test
+    public void letsOversizedRequestsThroughOnceTokensAccrue() {
+        RateLimiter limiter = new RateLimiter(RateLimitPolicy.builder()
+            .bytesPerSecond(1000)
+            .build(), statistics, ticker);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(2), limiter.reserve(1, 3000));
+        assertEquals(-2000.0, limiter.getAvailableBytes(), 0.0);
+    }
+
+    @Test
+    public void pacesHttpClient() throws Exception {
+        Envelope envelope = TestEnvelopes.envelope(1);
+
+        try (StubEndpoint endpoint = StubEndpoint.start(0);
+             HttpClient client = HttpClient.create("http", HttpClientOptions.builder()
+                 .apiKey("869e5ce5-214c-4e85-86c6-b99e8458a592")
+                 .host(endpoint.getUrl())
+                 .rateLimitPolicy(RateLimitPolicy.builder().eventsPerSecond(20).eventBurst(5).build())
+                 .build())) {
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 15; i++) {
+                client.send(envelope);
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("15 events at 20/s after a burst of 5 took " + elapsed + "ms", elapsed >= 450);
+            assertEquals(15, endpoint.getRequests());
+            assertEquals(15, client.getStatistics().getSuccessful().getCount());
+            assertTrue(client.getStatistics().getRateLimited().getCount() >= 9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresALimit() {
+        RateLimitPolicy.builder().build();
+    }
+
+    private static class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
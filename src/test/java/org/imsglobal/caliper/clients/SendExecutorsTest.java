@@ -0,0 +1,112 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.clients;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SendExecutorsTest {
+
+    @Test
+    public void platformThreadsAreNamedDaemons() throws Exception {
+        ExecutorService executor = SendExecutors.newPlatformThreadExecutor("caliper-send");
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+
+            assertTrue(thread.isDaemon());
+            assertEquals("caliper-send-0", thread.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sendExecutorRunsBlockingSends() throws Exception {
+        ExecutorService executor = SendExecutors.newSendExecutor("caliper-send");
+        try {
+            String name = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    Thread.sleep(10);
+                    return Thread.currentThread().getName();
+                }
+            }).get();
+
+            assertTrue(name, name.startsWith("caliper-send-"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutorFallsBackToBoundedPlatformThreads() throws Exception {
+        assumeFalse(SendExecutors.isVirtualThreadSupported());
+
+        ExecutorService executor = SendExecutors.newVirtualThreadExecutor("caliper-send");
+        try {
+            assertEquals(SendExecutors.FALLBACK_THREADS, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertEquals("caliper-send-0", thread.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutorStartsVirtualThreads() throws Exception {
+        assumeTrue(SendExecutors.isVirtualThreadSupported());
+
+        ExecutorService executor = SendExecutors.newVirtualThreadExecutor("caliper-send");
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+            assertEquals("caliper-send-0", thread.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
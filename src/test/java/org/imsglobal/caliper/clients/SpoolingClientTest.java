@@ -0,0 +1,234 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.StubEndpoint;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.spool.SpoolOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SpoolingClientTest {
+    private static final String API_KEY = "869e5ce5-214c-4e85-86c6-b99e8458a592";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubEndpoint endpoint;
+    private HttpClient http;
+    private Envelope envelope;
+
+    @Before
+    public void setUp() throws Exception {
+        endpoint = StubEndpoint.start(0);
+        http = HttpClient.create("http", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .circuitBreakerOpenMillis(100)
+            .build());
+        envelope = TestEnvelopes.envelope(1);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        http.close();
+        endpoint.close();
+    }
+
+    @Test
+    public void spoolsWhileEndpointIsDown() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, options())) {
+            for (int i = 0; i < 20; i++) {
+                client.send(envelope);
+            }
+            assertEquals(20, client.getSpoolDepth());
+            assertEquals(20.0, client.getStatistics().getSpoolDepth().getLast(), 0.0);
+
+            endpoint.setStatusCode(200);
+            awaitDepth(client, 0);
+
+            assertEquals(20, client.getStatistics().getSuccessful().getCount());
+            assertEquals(0.0, client.getStatistics().getSpoolDepth().getLast(), 0.0);
+        }
+    }
+
+    @Test
+    public void replaysUndeliveredEnvelopesAfterRestart() throws Exception {
+        endpoint.setStatusCode(503);
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, options())) {
+            for (int i = 0; i < 10; i++) {
+                client.send(envelope);
+            }
+        }
+
+        endpoint.setStatusCode(200);
+        endpoint.reset();
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, options())) {
+            assertEquals(10.0, client.getStatistics().getSpoolDepth().getLast(), 0.0);
+            awaitDepth(client, 0);
+
+            assertEquals(10, client.getStatistics().getSuccessful().getCount());
+            assertEquals(10, endpoint.getRequests());
+        }
+    }
+
+    @Test
+    public void spoolsEntitiesInFullDespiteDescribeCache() throws Exception {
+        HttpClient describing = HttpClient.create("describing", HttpClientOptions.builder()
+            .apiKey(API_KEY)
+            .host(endpoint.getUrl())
+            .describePolicy(DescribePolicy.builder().build())
+            .build());
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", describing, options())) {
+            assertNull(client.getSerializer().getDescribeCache());
+
+            for (int i = 0; i < 2; i++) {
+                client.send(envelope);
+                awaitDepth(client, 0);
+
+                JsonNode data = new ObjectMapper().readTree(endpoint.getLastBody()).get("data");
+                assertTrue(data.get(0).get("actor").isObject());
+            }
+            assertEquals(0, describing.getDescribeCache().size());
+        } finally {
+            describing.close();
+        }
+    }
+
+    @Test
+    public void dropsPermanentlyRejectedEnvelopes() throws Exception {
+        endpoint.setStatusCode(400);
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, options())) {
+            client.send(envelope);
+            awaitDepth(client, 0);
+
+            assertEquals(1, client.getStatistics().getFailed().getCount());
+            assertEquals(1, endpoint.getRequests());
+        }
+    }
+
+    @Test
+    public void awaitsGroupCommit() throws Exception {
+        SpoolOptions opts = SpoolOptions.builder().directory(folder.getRoot()).awaitSync(true).build();
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, opts)) {
+            for (int i = 0; i < 10; i++) {
+                client.send(envelope);
+            }
+            awaitDepth(client, 0);
+
+            assertEquals(10, client.getStatistics().getSuccessful().getCount());
+        }
+    }
+
+    @Test
+    public void reportsEnvelopesThatCannotBeSpooled() throws Exception {
+        File directory = folder.newFolder("spool");
+        SpoolOptions opts = SpoolOptions.builder().directory(directory).segmentBytes(64).build();
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, opts)) {
+            for (File file : directory.listFiles()) {
+                assertTrue(file.delete());
+            }
+            assertTrue(directory.delete());
+
+            SendResult result = client.deliver(envelope);
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getError() instanceof IOException);
+            assertEquals(1, client.getStatistics().getFailed().getCount());
+        }
+    }
+
+    @Test
+    public void reportsEnvelopesNotKnownToBeSynced() throws Exception {
+        SpoolOptions opts = SpoolOptions.builder().directory(folder.getRoot()).awaitSync(true).build();
+
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, opts)) {
+            assertTrue(client.deliver(envelope).isSuccessful());
+
+            Thread.currentThread().interrupt();
+            SendResult result = client.deliver(envelope);
+            assertTrue(Thread.interrupted());
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getError() instanceof InterruptedException);
+        }
+    }
+
+    @Test
+    public void flushWaitsForForwarder() throws Exception {
+        try (SpoolingClient client = SpoolingClient.create("spooling", http, options())) {
+            for (int i = 0; i < 10; i++) {
+                client.send(envelope);
+            }
+
+            assertTrue(client.flush(10, TimeUnit.SECONDS).isComplete());
+            assertEquals(10, endpoint.getRequests());
+        }
+    }
+
+    @Test
+    public void closeReportsSpooledEnvelopes() throws Exception {
+        endpoint.setStatusCode(503);
+
+        SpoolingClient client = SpoolingClient.create("spooling", http, options());
+        for (int i = 0; i < 5; i++) {
+            client.send(envelope);
+        }
+
+        FlushResult result = client.close(100, TimeUnit.MILLISECONDS);
+        assertEquals(0, result.getUndelivered());
+        assertEquals(5, result.getSpooled());
+        assertTrue(result.isDurable());
+    }
+
+    private SpoolOptions options() {
+        return SpoolOptions.builder().directory(folder.getRoot()).segmentBytes(16 * 1024).build();
+    }
+
+    private static void awaitDepth(SpoolingClient client, long depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (client.getSpoolDepth() > depth && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("spool depth " + client.getSpoolDepth(), client.getSpoolDepth() <= depth);
+    }
+}
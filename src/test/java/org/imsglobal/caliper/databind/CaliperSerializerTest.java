@@ -0,0 +1,139 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CaliperSerializerTest {
+    private Envelope envelope;
+    private String expected;
+
+    @Before
+    public void setUp() throws Exception {
+        envelope = TestEnvelopes.envelope(5);
+        expected = CaliperSerializer.createObjectMapper().writeValueAsString(envelope);
+    }
+
+    @Test
+    public void sharedSerializerMatchesFreshMapper() throws Exception {
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+
+        assertEquals(expected, serializer.serializeToString(envelope));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), serializer.serialize(envelope));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(envelope, out);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void pooledBufferIsResetBetweenCalls() throws Exception {
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+        Envelope small = TestEnvelopes.envelope(1);
+        String smallJson = serializer.serializeToString(small);
+
+        serializer.serialize(envelope);
+        assertEquals(smallJson, new String(serializer.serialize(small), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void serializesConcurrently() throws Exception {
+        final CaliperSerializer serializer = CaliperSerializer.getDefault();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        return serializer.serialize(envelope);
+                    }
+                }));
+            }
+            for (Future<byte[]> future : futures) {
+                assertEquals(expected, new String(future.get(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deduplicatesRepeatedEntities() throws Exception {
+        CaliperSerializer serializer = CaliperSerializer.getDefault().withEntityDeduplication();
+        assertTrue(serializer.isDeduplicatingEntities());
+        assertFalse(CaliperSerializer.getDefault().isDeduplicatingEntities());
+
+        JsonNode data = serializer.getObjectMapper().readTree(serializer.serialize(envelope)).get("data");
+        JsonNode first = data.get(0);
+        assertEquals("https://example.edu/users/554433", first.get("actor").get("id").asText());
+        assertEquals("https://example.edu", first.get("edApp").get("id").asText());
+        assertEquals("CPS 435-01", first.get("group").get("courseNumber").asText());
+        assertEquals("https://example.edu/users/554433", first.get("membership").get("member").asText());
+        assertTrue(first.get("session").isObject());
+
+        for (int i = 1; i < data.size(); i++) {
+            JsonNode event = data.get(i);
+            for (String property : new String[] {"actor", "edApp", "group", "membership", "session"}) {
+                assertEquals(first.get(property).get("id").asText(), event.get(property).asText());
+            }
+            assertTrue(event.get("object").isObject());
+        }
+    }
+
+    @Test
+    public void deduplicationStartsAfreshForEachValue() throws Exception {
+        CaliperSerializer serializer = CaliperSerializer.getDefault().withEntityDeduplication();
+        String json = serializer.serializeToString(envelope);
+
+        assertEquals(json, serializer.serializeToString(envelope));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(envelope, out);
+        assertEquals(json, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void deduplicationShrinksSessionBatches() throws Exception {
+        Envelope batch = TestEnvelopes.envelope(50);
+        int full = CaliperSerializer.getDefault().serialize(batch).length;
+        int deduplicated = CaliperSerializer.getDefault().withEntityDeduplication().serialize(batch).length;
+
+        assertTrue(full + " bytes vs " + deduplicated, deduplicated * 3 < full * 2);
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Ticker;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.entities.agent.Person;
+import org.imsglobal.caliper.events.NavigationEvent;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class DescribeCacheTest {
+    private ManualTicker ticker;
+    private Statistics statistics;
+    private DescribeCache cache;
+    private CaliperSerializer serializer;
+
+    @Before
+    public void setUp() {
+        ticker = new ManualTicker();
+        statistics = new Statistics();
+        cache = new DescribeCache(100, 1000, statistics, ticker);
+        serializer = CaliperSerializer.getDefault().withDescribeCache(cache);
+    }
+
+    @Test
+    public void describesEntitiesOnceAcrossEnvelopes() throws Exception {
+        JsonNode first = serialize(TestEnvelopes.envelope(2));
+        assertTrue(first.get(0).get("actor").isObject());
+        assertTrue(first.get(0).get("edApp").isObject());
+        assertEquals("https://example.edu/users/554433", first.get(1).get("actor").asText());
+
+        JsonNode second = serialize(TestEnvelopes.envelope(2));
+        assertEquals("https://example.edu/users/554433", second.get(0).get("actor").asText());
+        assertEquals("https://example.edu", second.get(0).get("edApp").asText());
+        assertTrue(cache.getReferences() > 0);
+        assertEquals(cache.size(), statistics.getDescribes().getCount());
+    }
+
+    @Test
+    public void describesExpiredEntitiesAgain() throws Exception {
+        String first = deliver(TestEnvelopes.envelope(2));
+
+        ticker.advance(999);
+        assertTrue(deliver(TestEnvelopes.envelope(2)).length() < first.length());
+
+        ticker.advance(1);
+        assertEquals(first, deliver(TestEnvelopes.envelope(2)));
+    }
+
+    @Test
+    public void describesChangedEntitiesAgain() throws Exception {
+        serialize(TestEnvelopes.envelope(1));
+
+        NavigationEvent event = TestEnvelopes.navigationEvent(0);
+        Person renamed = Person.builder().id(event.getActor().getId()).name("Ms Jane Marie Doe").build();
+        JsonNode data = serialize(new Envelope("https://example.edu/sensors/1", DateTime.now(), Config.DATA_VERSION,
+            Collections.<CaliperSendable>singletonList(NavigationEvent.builder()
+                .context(event.getContext())
+                .id(event.getId())
+                .actor(renamed)
+                .action(event.getAction())
+                .object(event.getObject())
+                .eventTime(event.getEventTime())
+                .build())));
+
+        assertEquals("Ms Jane Marie Doe", data.get(0).get("actor").get("name").asText());
+        assertEquals(event.getObject().getId(), data.get(0).get("object").asText());
+    }
+
+    @Test
+    public void forgetsDescriptionsWhenInvalidated() throws Exception {
+        String first = deliver(TestEnvelopes.envelope(2));
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertEquals(first, deliver(TestEnvelopes.envelope(2)));
+    }
+
+    @Test
+    public void recordsDescriptionsOnlyOnCommit() throws Exception {
+        DescribeCache.Descriptions undelivered = cache.newDescriptions();
+        String first = new String(serializer.serialize(TestEnvelopes.envelope(2), undelivered), StandardCharsets.UTF_8);
+
+        assertTrue(undelivered.size() > 0);
+        assertEquals(0, cache.size());
+        assertEquals(0, statistics.getDescribes().getCount());
+        assertEquals(first, deliver(TestEnvelopes.envelope(2)));
+    }
+
+    @Test
+    public void describesInEveryEnvelopeInFlight() throws Exception {
+        DescribeCache.Descriptions inFlight = cache.newDescriptions();
+        String first = new String(serializer.serialize(TestEnvelopes.envelope(2), inFlight), StandardCharsets.UTF_8);
+
+        DescribeCache.Descriptions concurrent = cache.newDescriptions();
+        assertEquals(first, new String(serializer.serialize(TestEnvelopes.envelope(2), concurrent),
+            StandardCharsets.UTF_8));
+
+        inFlight.commit();
+        concurrent.commit();
+        assertTrue(deliver(TestEnvelopes.envelope(2)).length() < first.length());
+        assertEquals(2 * cache.size(), statistics.getDescribes().getCount());
+    }
+
+    @Test
+    public void recordsNothingWithoutDescriptions() throws Exception {
+        String first = serializer.serializeToString(TestEnvelopes.envelope(2));
+
+        assertEquals(0, cache.size());
+        assertEquals(first, serializer.serializeToString(TestEnvelopes.envelope(2)));
+
+        deliver(TestEnvelopes.envelope(2));
+        assertTrue(serializer.serializeToString(TestEnvelopes.envelope(2)).length() < first.length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDescriptionsOfAnotherCache() throws Exception {
+        DescribeCache other = new DescribeCache(100, 1000, statistics, ticker);
+        serializer.serialize(TestEnvelopes.envelope(1), other.newDescriptions());
+    }
+
+    private JsonNode serialize(Envelope envelope) throws Exception {
+        return serializer.getObjectMapper().readTree(deliver(envelope)).get("data");
+    }
+
+    /**
+     * Serialize the envelope and commit its descriptions, as a client does once the envelope
+     * has been delivered.
+     * @param envelope
+     * @return JSON
+     * @throws Exception
+     */
+    private String deliver(Envelope envelope) throws Exception {
+        DescribeCache.Descriptions descriptions = cache.newDescriptions();
+        String json = new String(serializer.serialize(envelope, descriptions), StandardCharsets.UTF_8);
+        descriptions.commit();
+        return json;
+    }
+
+    private static class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class EntityCacheTest {
+    private Envelope envelope;
+    private EntityCache cache;
+    private CaliperSerializer serializer;
+
+    @Before
+    public void setUp() {
+        envelope = TestEnvelopes.envelope(5);
+        cache = new EntityCache(EntityCache.MAX_ENTITIES);
+        serializer = CaliperSerializer.getDefault().withEntityCache(cache);
+    }
+
+    @Test
+    public void matchesReflectiveSerialization() throws Exception {
+        String expected = CaliperSerializer.getDefault().serializeToString(envelope);
+
+        assertEquals(expected, serializer.serializeToString(envelope));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), serializer.serialize(envelope));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(envelope, out);
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void serializesEachHotEntityOnce() throws Exception {
+        serializer.serialize(envelope);
+
+        // edApp, group, membership and the membership's organization
+        assertEquals(4, cache.getMissCount());
+        assertEquals(4, cache.size());
+        // edApp, group and membership of the four later events
+        assertEquals(12, cache.getHitCount());
+
+        serializer.serialize(envelope);
+        assertEquals(4, cache.getMissCount());
+        assertEquals(27, cache.getHitCount());
+    }
+
+    @Test
+    public void isBypassedWhileDeduplicating() throws Exception {
+        CaliperSerializer deduplicating = CaliperSerializer.getDefault().withEntityDeduplication();
+
+        assertSame(cache, deduplicating.withEntityCache(cache).getEntityCache());
+        assertEquals(deduplicating.serializeToString(envelope),
+            deduplicating.withEntityCache(cache).serializeToString(envelope));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.imsglobal.caliper.TestEnvelopes;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.context.JsonldStringContext;
+import org.imsglobal.caliper.entities.agent.Person;
+import org.imsglobal.caliper.entities.agent.SoftwareApplication;
+import org.imsglobal.caliper.entities.outcome.Score;
+import org.imsglobal.caliper.entities.resource.Assessment;
+import org.imsglobal.caliper.entities.resource.Attempt;
+import org.imsglobal.caliper.entities.resource.Frame;
+import org.imsglobal.caliper.events.GradeEvent;
+import org.imsglobal.caliper.events.NavigationEvent;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class GeneratedSerializerTest {
+    private static final String BASE_IRI = "https://example.edu";
+
+    private final ObjectMapper generated = CaliperSerializer.createObjectMapper(true);
+    private final ObjectMapper reflective = CaliperSerializer.createObjectMapper(false);
+
+    @Test
+    public void matchesBeanSerializationOfEnvelope() throws Exception {
+        Object envelope = TestEnvelopes.envelope(5);
+
+        assertEquals(reflective.writeValueAsString(envelope), generated.writeValueAsString(envelope));
+    }
+
+    @Test
+    public void matchesBeanSerializationOfOrderedAndDefaultProperties() throws Exception {
+        Person learner = Person.builder().id(BASE_IRI.concat("/users/554433")).build();
+        Assessment assessment = Assessment.builder()
+            .id(BASE_IRI.concat("/assess/1"))
+            .dateToShow(new DateTime(2016, 8, 16, 5, 0, 0, 0, DateTimeZone.UTC))
+            .dateToSubmit(new DateTime(2016, 9, 28, 11, 59, 59, 0, DateTimeZone.UTC))
+            .maxAttempts(2)
+            .maxScore(15.0)
+            .build();
+        Attempt attempt = Attempt.builder()
+            .id(BASE_IRI.concat("/assess/1/users/554433/attempts/1"))
+            .assignable(assessment)
+            .assignee(learner)
+            .startedAtTime(new DateTime(2016, 11, 15, 10, 5, 0, 0, DateTimeZone.UTC))
+            .endedAtTime(new DateTime(2016, 11, 15, 10, 55, 12, 0, DateTimeZone.UTC))
+            .duration("PT50M12S")
+            .build();
+        Score score = Score.builder()
+            .id(BASE_IRI.concat("/assess/1/users/554433/attempts/1/scores/1"))
+            .attempt(Attempt.builder().id(attempt.getId()).coercedToId(true).build())
+            .maxScore(15)
+            .scoreGiven(0)
+            .comment("")
+            .build();
+        GradeEvent event = GradeEvent.builder()
+            .context(JsonldStringContext.getDefault())
+            .id("urn:uuid:a50ca17f-5971-47bb-8fca-4e6e6879001d")
+            .actor(SoftwareApplication.builder().id(BASE_IRI.concat("/autograder")).build())
+            .action(Action.GRADED)
+            .object(attempt)
+            .generated(score)
+            .eventTime(new DateTime(2016, 11, 15, 10, 57, 6, 0, DateTimeZone.UTC))
+            .build();
+
+        assertEquals(reflective.writeValueAsString(event), generated.writeValueAsString(event));
+        assertFalse(generated.writeValueAsString(score).contains("scoreGiven"));
+
+        Frame frame = Frame.builder().id(BASE_IRI.concat("/frames/1")).index(0).build();
+        assertEquals(reflective.writeValueAsString(frame), generated.writeValueAsString(frame));
+    }
+
+    @Test
+    public void matchesBeanSerializationOfDatesAndScores() throws Exception {
+        Object envelope = TestEnvelopes.gradeEnvelope(10);
+        assertEquals(reflective.writeValueAsString(envelope), generated.writeValueAsString(envelope));
+
+        DateTime[] dates = {
+            new DateTime(0L, DateTimeZone.UTC),
+            new DateTime(2016, 11, 15, 10, 57, 6, 123, DateTimeZone.UTC),
+            new DateTime(1969, 12, 31, 23, 59, 59, 999, DateTimeZone.UTC),
+            new DateTime(2016, 2, 29, 5, 0, 0, 7, DateTimeZone.forOffsetHours(-5)),
+            new DateTime(10000, 1, 1, 0, 0, 0, 0, DateTimeZone.UTC)
+        };
+        for (DateTime date : dates) {
+            Attempt attempt = Attempt.builder().id(BASE_IRI.concat("/attempts/1")).startedAtTime(date).build();
+            assertEquals(reflective.writeValueAsString(attempt), generated.writeValueAsString(attempt));
+        }
+
+        double[] scores = {15.0, 2.5, 0.85, -0.0, -3.125, 0.001, 1e-4, 9999999.999, 1e8, 0.1 + 0.2};
+        for (double given : scores) {
+            Score score = Score.builder().id(BASE_IRI.concat("/scores/1")).scoreGiven(given).maxScore(15.0).build();
+            assertEquals(reflective.writeValueAsString(score), generated.writeValueAsString(score));
+        }
+    }
+
+    @Test
+    public void fallsBackToJodaForOtherDateSettings() throws Exception {
+        Attempt attempt = Attempt.builder()
+            .id(BASE_IRI.concat("/attempts/1"))
+            .startedAtTime(new DateTime(2016, 11, 15, 10, 5, 0, 0, DateTimeZone.UTC))
+            .build();
+
+        ObjectMapper zoned = CaliperSerializer.createObjectMapper(true).setTimeZone(TimeZone.getTimeZone("America/New_York"));
+        assertTrue(zoned.writeValueAsString(attempt).contains("\"startedAtTime\":\"2016-11-15T05:05:00.000-05:00\""));
+
+        ObjectMapper timestamps = CaliperSerializer.createObjectMapper(true)
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
+        assertTrue(timestamps.writeValueAsString(attempt).contains("\"startedAtTime\":1479204300000"));
+    }
+
+    @Test
+    public void replacesBeanSerializersOnlyForCaliperMapperSettings() throws Exception {
+        assertTrue(serializerFor(generated, NavigationEvent.class) instanceof GeneratedSerializer);
+        assertFalse(serializerFor(reflective, NavigationEvent.class) instanceof GeneratedSerializer);
+
+        ObjectMapper sorted = CaliperSerializer.createObjectMapper(true)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        assertFalse(serializerFor(sorted, NavigationEvent.class) instanceof GeneratedSerializer);
+    }
+
+    private static Object serializerFor(ObjectMapper mapper, Class<?> type) throws Exception {
+        return mapper.getSerializerProviderInstance().findValueSerializer(type);
+    }
+}
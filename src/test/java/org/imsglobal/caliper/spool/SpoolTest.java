@@ -0,0 +1,194 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pollsRecordsInAppendOrder() throws Exception {
+        try (Spool spool = Spool.open(options(1024))) {
+            for (int i = 0; i < 100; i++) {
+                spool.append(record(i));
+            }
+            assertEquals(100, spool.getDepth());
+
+            for (int i = 0; i < 100; i++) {
+                Spool.Entry entry = spool.poll(1, TimeUnit.SECONDS);
+                assertEquals("record-" + i, text(entry));
+                spool.acknowledge(entry);
+            }
+
+            assertNull(spool.poll(10, TimeUnit.MILLISECONDS));
+            assertEquals(0, spool.getDepth());
+        }
+    }
+
+    @Test
+    public void deletesAcknowledgedSegments() throws Exception {
+        try (Spool spool = Spool.open(options(128))) {
+            for (int i = 0; i < 100; i++) {
+                spool.append(record(i));
+            }
+            assertTrue(spool.getSegmentCount() > 10);
+
+            for (int i = 0; i < 100; i++) {
+                spool.acknowledge(spool.poll(1, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, spool.getSegmentCount());
+            assertEquals(1, segmentFiles().length);
+        }
+    }
+
+    @Test
+    public void replaysUnacknowledgedRecordsOnReopen() throws Exception {
+        try (Spool spool = Spool.open(options(256))) {
+            for (int i = 0; i < 50; i++) {
+                spool.append(record(i));
+            }
+            for (int i = 0; i < 20; i++) {
+                spool.acknowledge(spool.poll(1, TimeUnit.SECONDS));
+            }
+            // Polled but never acknowledged
+            spool.poll(1, TimeUnit.SECONDS);
+        }
+
+        try (Spool spool = Spool.open(options(256))) {
+            assertEquals(30, spool.getDepth());
+            for (int i = 20; i < 50; i++) {
+                assertEquals("record-" + i, text(spool.poll(1, TimeUnit.SECONDS)));
+            }
+            assertNull(spool.poll(10, TimeUnit.MILLISECONDS));
+
+            spool.append(record(50));
+            assertEquals("record-50", text(spool.poll(1, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    public void ignoresTornTail() throws Exception {
+        try (Spool spool = Spool.open(options(1024))) {
+            for (int i = 0; i < 3; i++) {
+                spool.append(record(i));
+            }
+        }
+
+        // Simulate a crash part way through writing a fourth record
+        File segment = segmentFiles()[0];
+        int end = 3 * (SpoolSegment.HEADER_BYTES + record(0).length);
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(end);
+            raf.writeInt(100);
+            raf.writeInt(12345);
+            raf.write("partial".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (Spool spool = Spool.open(options(1024))) {
+            assertEquals(3, spool.getDepth());
+            spool.append(record(3));
+            for (int i = 0; i < 4; i++) {
+                assertEquals("record-" + i, text(spool.poll(1, TimeUnit.SECONDS)));
+            }
+        }
+    }
+
+    @Test
+    public void awaitSyncSharesGroupCommits() throws Exception {
+        final int threads = 8;
+        final int records = 200;
+
+        try (final Spool spool = Spool.open(options(1024 * 1024))) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            boolean synced = true;
+                            for (int i = 0; i < records; i++) {
+                                synced &= spool.awaitSync(spool.append(record(i)), 10, TimeUnit.SECONDS);
+                            }
+                            return synced;
+                        }
+                    }));
+                }
+                for (Future<Boolean> future : futures) {
+                    assertTrue(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertEquals(threads * records, spool.getDepth());
+            assertTrue("syncs " + spool.getSyncCount(), spool.getSyncCount() < threads * records);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsSecondOwner() throws Exception {
+        try (Spool first = Spool.open(options(1024))) {
+            Spool.open(options(1024));
+        }
+    }
+
+    private SpoolOptions options(int segmentBytes) {
+        return SpoolOptions.builder()
+            .directory(folder.getRoot())
+            .segmentBytes(segmentBytes)
+            .build();
+    }
+
+    private File[] segmentFiles() {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(".log"));
+    }
+
+    private static byte[] record(int i) {
+        return ("record-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Spool.Entry entry) {
+        return new String(entry.getPayload(), StandardCharsets.UTF_8);
+    }
+}